@@ -0,0 +1,53 @@
+package com.helvinotech.hms.config;
+
+import com.helvinotech.hms.enums.BedStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites the {@code status IN (...)} check constraints Hibernate creates for enum columns. Schema update
+ * creates them once and never alters them, so a value added to the enum later is rejected by databases
+ * created before it; each listed constraint is dropped and re-added with the enum's current values.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EnumConstraintInitializer implements CommandLineRunner {
+
+    private record EnumColumn(String table, String column, Class<? extends Enum<?>> type) {}
+
+    // Enums that have gained values since their tables were first created
+    private static final List<EnumColumn> COLUMNS = List.of(
+            new EnumColumn("beds", "status", BedStatus.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        for (EnumColumn column : COLUMNS) {
+            String constraint = column.table() + "_" + column.column() + "_check";
+            String values = Arrays.stream(column.type().getEnumConstants())
+                    .map(value -> "'" + value.name() + "'")
+                    .collect(Collectors.joining(", "));
+            try {
+                // One statement, so the column is never left without its constraint
+                jdbcTemplate.execute("ALTER TABLE " + column.table() +
+                        " DROP CONSTRAINT IF EXISTS " + constraint +
+                        ", ADD CONSTRAINT " + constraint + " CHECK (" + column.column() + " IN (" + values + "))");
+            } catch (DataAccessException e) {
+                log.warn("Could not rewrite {}, new {} values may be rejected: {}",
+                        constraint, column.type().getSimpleName(), e.getMostSpecificCause().getMessage());
+            }
+        }
+        log.info("Enum check constraints verified");
+    }
+}
@@ -0,0 +1,71 @@
+package com.helvinotech.hms.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the pg_trgm extension and the indexes used by patient search: trigram GIN indexes for
+ * contains-matches and btree {@code text_pattern_ops} indexes for the prefix matches of short queries.
+ * Hibernate's schema update cannot express expression/opclass indexes, so they are managed here.
+ * <p>
+ * Indexes are built concurrently so a deployment onto a populated registry does not block registrations
+ * while they build. That cannot run inside a transaction, so this runner is deliberately not transactional
+ * and each statement autocommits.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexInitializer implements CommandLineRunner {
+
+    private record SearchIndex(String name, String definition) {}
+
+    private static final List<SearchIndex> PATIENT_INDEXES = List.of(
+            new SearchIndex("idx_patients_full_name_trgm", "USING gin (LOWER(full_name) gin_trgm_ops)"),
+            new SearchIndex("idx_patients_patient_no_trgm", "USING gin (LOWER(patient_no) gin_trgm_ops)"),
+            new SearchIndex("idx_patients_phone_trgm", "USING gin (LOWER(phone) gin_trgm_ops)"),
+            new SearchIndex("idx_patients_id_number_trgm", "USING gin (LOWER(id_number) gin_trgm_ops)"),
+            new SearchIndex("idx_patients_full_name_prefix", "(LOWER(full_name) text_pattern_ops)"),
+            new SearchIndex("idx_patients_patient_no_prefix", "(LOWER(patient_no) text_pattern_ops)"),
+            new SearchIndex("idx_patients_phone_prefix", "(LOWER(phone) text_pattern_ops)"),
+            new SearchIndex("idx_patients_id_number_prefix", "(LOWER(id_number) text_pattern_ops)")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        } catch (DataAccessException e) {
+            log.warn("Could not create pg_trgm, patient search contains-matches will fall back to sequential scans: {}",
+                    e.getMostSpecificCause().getMessage());
+        }
+        int verified = 0;
+        for (SearchIndex index : PATIENT_INDEXES) {
+            try {
+                // A concurrent build that failed leaves an invalid index behind, which IF NOT EXISTS would keep
+                if (isInvalid(index.name())) {
+                    jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.name());
+                }
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index.name() + " ON patients " + index.definition());
+                verified++;
+            } catch (DataAccessException e) {
+                log.warn("Could not create {}, patient search may fall back to sequential scans: {}",
+                        index.name(), e.getMostSpecificCause().getMessage());
+            }
+        }
+        log.info("Patient search indexes verified: {} of {}", verified, PATIENT_INDEXES.size());
+    }
+
+    private boolean isInvalid(String indexName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                "WHERE c.relname = ? AND NOT i.indisvalid)", Boolean.class, indexName));
+    }
+}
@@ -1,9 +1,16 @@
 package com.helvinotech.hms.config;
 
+import com.helvinotech.hms.security.BoundedPasswordEncoder;
 import com.helvinotech.hms.security.JwtAuthenticationFilter;
+import com.helvinotech.hms.security.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -23,6 +30,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -31,18 +39,39 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Completion dispatches of SSE streams carry no token; the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasAnyRole("SUPER_ADMIN", "HOSPITAL_ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/reports/financial/rebuild").hasAnyRole("SUPER_ADMIN", "HOSPITAL_ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/billing/bed-charges/accrue").hasAnyRole("SUPER_ADMIN", "HOSPITAL_ADMIN", "ACCOUNTANT")
+                .requestMatchers("/api/reports/export/**").hasAnyRole("SUPER_ADMIN", "HOSPITAL_ADMIN", "ACCOUNTANT")
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // Only run inside the security chain, where the authenticated user is known
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${app.security.hashing.threads:0}") int threads,
+                                           @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${app.security.hashing.max-wait-ms:5000}") long maxWaitMillis,
+                                           @Value("${app.security.hashing.retry-after-seconds:2}") long retryAfterSeconds) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry,
+                threads, queueCapacity, maxWaitMillis, retryAfterSeconds);
     }
 
     @Bean
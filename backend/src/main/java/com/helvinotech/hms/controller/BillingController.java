@@ -2,20 +2,26 @@ package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.*;
 import com.helvinotech.hms.enums.PaymentStatus;
+import com.helvinotech.hms.service.BedChargeAccrualService;
 import com.helvinotech.hms.service.BillingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/billing")
 @RequiredArgsConstructor
 public class BillingController {
 
     private final BillingService billingService;
+    private final BedChargeAccrualService bedChargeAccrualService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<BillingDTO>> create(@RequestBody BillingDTO dto) {
@@ -42,6 +48,19 @@ public class BillingController {
         return ResponseEntity.ok(ApiResponse.success(billingService.getBillingsByStatus(status, pageable)));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<BillingDTO>>> scroll(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(billingService.scrollBillings(cursor, size)));
+    }
+
+    @GetMapping("/status/{status}/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<BillingDTO>>> scrollByStatus(
+            @PathVariable PaymentStatus status,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(billingService.scrollBillingsByStatus(status, cursor, size)));
+    }
+
     @PostMapping("/{id}/items")
     public ResponseEntity<ApiResponse<BillingDTO>> addItem(@PathVariable Long id, @Valid @RequestBody BillingItemDTO item) {
         return ResponseEntity.ok(ApiResponse.success(billingService.addItem(id, item)));
@@ -51,4 +70,12 @@ public class BillingController {
     public ResponseEntity<ApiResponse<BillingDTO>> processPayment(@Valid @RequestBody PaymentDTO payment) {
         return ResponseEntity.ok(ApiResponse.success(billingService.processPayment(payment)));
     }
+
+    /** Runs or resumes the bed-charge accrual for a day; defaults to yesterday, as the nightly job does. */
+    @PostMapping("/bed-charges/accrue")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> accrueBedCharges(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate chargeDate = date != null ? date : LocalDate.now().minusDays(1);
+        return ResponseEntity.ok(ApiResponse.success("Bed charges accrued", bedChargeAccrualService.accrueEndedDay(chargeDate)));
+    }
 }
@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/dashboard")
 @RequiredArgsConstructor
@@ -20,4 +22,9 @@ public class DashboardController {
     public ResponseEntity<ApiResponse<DashboardDTO>> getDashboard() {
         return ResponseEntity.ok(ApiResponse.success(dashboardService.getDashboard()));
     }
+
+    @GetMapping("/counters")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLiveCounters() {
+        return ResponseEntity.ok(ApiResponse.success(dashboardService.getLiveCounters()));
+    }
 }
@@ -1,6 +1,7 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.dto.CursorPage;
 import com.helvinotech.hms.dto.InsuranceClaimDTO;
 import com.helvinotech.hms.dto.InsuranceCompanyDTO;
 import com.helvinotech.hms.enums.ClaimStatus;
@@ -57,6 +58,19 @@ public class InsuranceController {
         return ResponseEntity.ok(ApiResponse.success(insuranceService.getClaimsByStatus(status, pageable)));
     }
 
+    @GetMapping("/claims/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<InsuranceClaimDTO>>> scrollClaims(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(insuranceService.scrollClaims(cursor, size)));
+    }
+
+    @GetMapping("/claims/status/{status}/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<InsuranceClaimDTO>>> scrollClaimsByStatus(
+            @PathVariable ClaimStatus status,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(insuranceService.scrollClaimsByStatus(status, cursor, size)));
+    }
+
     @PutMapping("/claims/{id}/status")
     public ResponseEntity<ApiResponse<InsuranceClaimDTO>> updateClaimStatus(
             @PathVariable Long id, @RequestBody Map<String, Object> body) {
@@ -1,6 +1,7 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.dto.CursorPage;
 import com.helvinotech.hms.dto.LabOrderDTO;
 import com.helvinotech.hms.dto.LabTestDTO;
 import com.helvinotech.hms.enums.LabOrderStatus;
@@ -56,6 +57,13 @@ public class LabController {
         return ResponseEntity.ok(ApiResponse.success(labService.getOrdersByStatus(status, pageable)));
     }
 
+    @GetMapping("/orders/status/{status}/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<LabOrderDTO>>> scrollOrdersByStatus(
+            @PathVariable LabOrderStatus status,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(labService.scrollOrdersByStatus(status, cursor, size)));
+    }
+
     @PutMapping("/orders/{id}/collect-sample")
     public ResponseEntity<ApiResponse<LabOrderDTO>> collectSample(@PathVariable Long id) {
         return ResponseEntity.ok(ApiResponse.success(labService.collectSample(id)));
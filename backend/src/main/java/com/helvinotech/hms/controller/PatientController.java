@@ -1,7 +1,11 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.dto.CursorPage;
+import com.helvinotech.hms.dto.DuplicateCandidateDTO;
+import com.helvinotech.hms.dto.DuplicatePairDTO;
 import com.helvinotech.hms.dto.PatientDTO;
+import com.helvinotech.hms.service.DuplicatePatientService;
 import com.helvinotech.hms.service.PatientService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -10,16 +14,21 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/patients")
 @RequiredArgsConstructor
 public class PatientController {
 
     private final PatientService patientService;
+    private final DuplicatePatientService duplicatePatientService;
 
     @PostMapping
-    public ResponseEntity<ApiResponse<PatientDTO>> create(@Valid @RequestBody PatientDTO dto) {
-        return ResponseEntity.ok(ApiResponse.success(patientService.createPatient(dto)));
+    public ResponseEntity<ApiResponse<PatientDTO>> create(@Valid @RequestBody PatientDTO dto,
+                                                          @RequestParam(defaultValue = "false") boolean allowDuplicate) {
+        return ResponseEntity.ok(ApiResponse.success(patientService.createPatient(dto, allowDuplicate)));
     }
 
     @GetMapping("/{id}")
@@ -37,11 +46,43 @@ public class PatientController {
         return ResponseEntity.ok(ApiResponse.success(patientService.getAllPatients(pageable)));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<PatientDTO>>> scroll(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(patientService.scrollPatients(cursor, size)));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<Page<PatientDTO>>> search(@RequestParam String q, Pageable pageable) {
         return ResponseEntity.ok(ApiResponse.success(patientService.searchPatients(q, pageable)));
     }
 
+    @GetMapping("/search/typeahead")
+    public ResponseEntity<ApiResponse<List<PatientDTO>>> typeahead(
+            @RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(patientService.typeaheadPatients(q, limit)));
+    }
+
+    @PostMapping("/duplicates/check")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateDTO>>> checkDuplicates(@RequestBody PatientDTO dto) {
+        return ResponseEntity.ok(ApiResponse.success(patientService.findDuplicates(dto)));
+    }
+
+    @GetMapping("/duplicates")
+    public ResponseEntity<ApiResponse<Page<DuplicatePairDTO>>> getDuplicatePairs(Pageable pageable) {
+        return ResponseEntity.ok(ApiResponse.success(duplicatePatientService.getDuplicatePairs(pageable)));
+    }
+
+    @PostMapping("/duplicates/scan")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> scanDuplicates() {
+        return ResponseEntity.accepted().body(ApiResponse.success("Duplicate scan started", duplicatePatientService.startScan()));
+    }
+
+    @GetMapping("/duplicates/scan")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getDuplicateScanStatus() {
+        return ResponseEntity.ok(ApiResponse.success(duplicatePatientService.getScanStatus()));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<PatientDTO>> update(@PathVariable Long id, @Valid @RequestBody PatientDTO dto) {
         return ResponseEntity.ok(ApiResponse.success(patientService.updatePatient(id, dto)));
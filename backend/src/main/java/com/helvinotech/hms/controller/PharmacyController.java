@@ -1,16 +1,29 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.dto.BatchDispenseRequest;
+import com.helvinotech.hms.dto.BatchDispenseResultDTO;
 import com.helvinotech.hms.dto.DrugDTO;
+import com.helvinotech.hms.dto.DrugInteractionDTO;
+import com.helvinotech.hms.dto.DrugLotDTO;
+import com.helvinotech.hms.dto.InteractionWarningDTO;
 import com.helvinotech.hms.dto.PrescriptionDTO;
+import com.helvinotech.hms.dto.ReorderSuggestionDTO;
+import com.helvinotech.hms.dto.StockBalanceDTO;
+import com.helvinotech.hms.dto.StockCountDTO;
+import com.helvinotech.hms.dto.StockMovementDTO;
+import com.helvinotech.hms.service.DrugInteractionService;
 import com.helvinotech.hms.service.PharmacyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +32,7 @@ import java.util.List;
 public class PharmacyController {
 
     private final PharmacyService pharmacyService;
+    private final DrugInteractionService drugInteractionService;
 
     @PostMapping("/drugs")
     public ResponseEntity<ApiResponse<DrugDTO>> createDrug(@Valid @RequestBody DrugDTO dto) {
@@ -50,11 +64,89 @@ public class PharmacyController {
         return ResponseEntity.ok(ApiResponse.success(pharmacyService.getLowStockDrugs()));
     }
 
+    @GetMapping("/reorder")
+    public ResponseEntity<ApiResponse<List<ReorderSuggestionDTO>>> getReorderSuggestions(
+            @RequestParam(defaultValue = "true") boolean dueOnly) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.getReorderSuggestions(dueOnly)));
+    }
+
     @GetMapping("/drugs/expiring")
     public ResponseEntity<ApiResponse<List<DrugDTO>>> getExpiring() {
         return ResponseEntity.ok(ApiResponse.success(pharmacyService.getExpiringDrugs()));
     }
 
+    @GetMapping("/drugs/{id}/lots")
+    public ResponseEntity<ApiResponse<List<DrugLotDTO>>> getDrugLots(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.getDrugLots(id)));
+    }
+
+    @PostMapping("/drugs/{id}/lots")
+    public ResponseEntity<ApiResponse<DrugLotDTO>> receiveLot(@PathVariable Long id, @Valid @RequestBody DrugLotDTO dto) {
+        return ResponseEntity.ok(ApiResponse.success("Stock received", pharmacyService.receiveLot(id, dto)));
+    }
+
+    @PostMapping("/drugs/{id}/stock-count")
+    public ResponseEntity<ApiResponse<DrugDTO>> recordStockCount(@PathVariable Long id, @Valid @RequestBody StockCountDTO dto) {
+        return ResponseEntity.ok(ApiResponse.success("Stock count recorded", pharmacyService.recordStockCount(id, dto)));
+    }
+
+    @PostMapping("/lots/{lotId}/return")
+    public ResponseEntity<ApiResponse<DrugLotDTO>> returnToLot(@PathVariable Long lotId, @RequestParam int quantity,
+                                                               @RequestParam(required = false) String reference) {
+        return ResponseEntity.ok(ApiResponse.success("Stock returned", pharmacyService.returnToLot(lotId, quantity, reference)));
+    }
+
+    @GetMapping("/drugs/{id}/stock")
+    public ResponseEntity<ApiResponse<StockBalanceDTO>> getStockAsOf(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.getStockAsOf(id, asOf)));
+    }
+
+    @GetMapping("/drugs/{id}/movements")
+    public ResponseEntity<ApiResponse<Page<StockMovementDTO>>> getStockMovements(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            Pageable pageable) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.getStockMovements(
+                id, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(), pageable)));
+    }
+
+    @GetMapping("/lots/expiring")
+    public ResponseEntity<ApiResponse<List<DrugLotDTO>>> getExpiringLots(@RequestParam(defaultValue = "90") int days) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.getExpiringLots(days)));
+    }
+
+    @GetMapping("/interactions")
+    public ResponseEntity<ApiResponse<List<DrugInteractionDTO>>> getInteractions(@RequestParam(required = false) Long drugId) {
+        return ResponseEntity.ok(ApiResponse.success(drugInteractionService.getInteractions(drugId)));
+    }
+
+    @PostMapping("/interactions")
+    public ResponseEntity<ApiResponse<DrugInteractionDTO>> addInteraction(@Valid @RequestBody DrugInteractionDTO dto) {
+        return ResponseEntity.ok(ApiResponse.success(drugInteractionService.addInteraction(dto)));
+    }
+
+    @DeleteMapping("/interactions/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteInteraction(@PathVariable Long id) {
+        drugInteractionService.deleteInteraction(id);
+        return ResponseEntity.ok(ApiResponse.success("Interaction removed", null));
+    }
+
+    /** For after a bulk import into drug_interactions; re-checks all open prescriptions. */
+    @PostMapping("/interactions/reload")
+    public ResponseEntity<ApiResponse<Integer>> reloadInteractions() {
+        int changed = drugInteractionService.reloadAndRecheck();
+        return ResponseEntity.ok(ApiResponse.success("Warnings updated on " + changed + " open prescriptions", changed));
+    }
+
+    @GetMapping("/interactions/check")
+    public ResponseEntity<ApiResponse<List<InteractionWarningDTO>>> checkInteractions(
+            @RequestParam Long visitId, @RequestParam Long drugId) {
+        return ResponseEntity.ok(ApiResponse.success(drugInteractionService.check(visitId, drugId)));
+    }
+
     @PostMapping("/prescriptions")
     public ResponseEntity<ApiResponse<PrescriptionDTO>> createPrescription(@Valid @RequestBody PrescriptionDTO dto) {
         return ResponseEntity.ok(ApiResponse.success(pharmacyService.createPrescription(dto)));
@@ -75,4 +167,10 @@ public class PharmacyController {
             @PathVariable Long id, @RequestParam Long pharmacistId) {
         return ResponseEntity.ok(ApiResponse.success(pharmacyService.dispensePrescription(id, pharmacistId)));
     }
+
+    @PostMapping("/prescriptions/dispense")
+    public ResponseEntity<ApiResponse<BatchDispenseResultDTO>> dispenseBatch(
+            @RequestBody BatchDispenseRequest request, @RequestParam Long pharmacistId) {
+        return ResponseEntity.ok(ApiResponse.success(pharmacyService.dispenseBatch(request, pharmacistId)));
+    }
 }
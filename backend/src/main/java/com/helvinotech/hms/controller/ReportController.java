@@ -1,12 +1,19 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.enums.ExportFormat;
+import com.helvinotech.hms.service.ExportService;
+import com.helvinotech.hms.service.FinancialFactService;
 import com.helvinotech.hms.service.ReportService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Map;
 
@@ -16,6 +23,8 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
+    private final FinancialFactService financialFactService;
+    private final ExportService exportService;
 
     @GetMapping("/financial")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getFinancialReport(
@@ -24,10 +33,33 @@ public class ReportController {
         return ResponseEntity.ok(ApiResponse.success(reportService.getFinancialReport(startDate, endDate)));
     }
 
+    @PostMapping("/financial/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildFinancialFacts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return ResponseEntity.ok(ApiResponse.success("Financial facts rebuilt", financialFactService.rebuild(startDate, endDate)));
+    }
+
     @GetMapping("/patients")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getPatientReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         return ResponseEntity.ok(ApiResponse.success(reportService.getPatientReport(startDate, endDate)));
     }
+
+    @GetMapping("/export/{dataset}")
+    public void export(@PathVariable String dataset,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+                       @RequestParam(defaultValue = "csv") String format,
+                       HttpServletResponse response) throws IOException {
+        ExportService.Dataset ds = exportService.resolveDataset(dataset);
+        ExportFormat fmt = exportService.resolveFormat(format);
+        String fileName = ds.getFileName() + "-" + startDate + "-to-" + endDate + "." + fmt.getExtension();
+        exportService.export(ds, startDate, endDate, fmt, () -> {
+            response.setContentType(fmt.getContentType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+            return response.getOutputStream();
+        });
+    }
 }
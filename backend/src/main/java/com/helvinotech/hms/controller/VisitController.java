@@ -1,14 +1,17 @@
 package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.ApiResponse;
+import com.helvinotech.hms.dto.CursorPage;
 import com.helvinotech.hms.dto.VisitDTO;
 import com.helvinotech.hms.service.VisitService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -34,6 +37,12 @@ public class VisitController {
         return ResponseEntity.ok(ApiResponse.success(visitService.getAllVisits(pageable)));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<VisitDTO>>> scroll(
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(visitService.scrollVisits(cursor, size)));
+    }
+
     @GetMapping("/patient/{patientId}")
     public ResponseEntity<ApiResponse<Page<VisitDTO>>> getByPatient(@PathVariable Long patientId, Pageable pageable) {
         return ResponseEntity.ok(ApiResponse.success(visitService.getVisitsByPatient(patientId, pageable)));
@@ -44,6 +53,12 @@ public class VisitController {
         return ResponseEntity.ok(ApiResponse.success(visitService.getDoctorQueue(doctorId)));
     }
 
+    @GetMapping(value = "/doctor/{doctorId}/queue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDoctorQueue(@PathVariable Long doctorId,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return visitService.streamDoctorQueue(doctorId, lastEventId);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ApiResponse<VisitDTO>> update(@PathVariable Long id, @Valid @RequestBody VisitDTO dto) {
         return ResponseEntity.ok(ApiResponse.success(visitService.updateVisit(id, dto)));
@@ -2,13 +2,18 @@ package com.helvinotech.hms.controller;
 
 import com.helvinotech.hms.dto.*;
 import com.helvinotech.hms.enums.AdmissionStatus;
+import com.helvinotech.hms.enums.BedStatus;
 import com.helvinotech.hms.service.WardService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -42,6 +47,18 @@ public class WardController {
         return ResponseEntity.ok(ApiResponse.success(wardService.createRoom(dto)));
     }
 
+    /** Conditional on the ward ETag: unchanged wards answer 304 without reading the database. */
+    @GetMapping("/{wardId}/hierarchy")
+    public ResponseEntity<ApiResponse<WardHierarchyDTO>> getWardHierarchy(@PathVariable Long wardId, WebRequest request) {
+        String etag = wardService.getWardEtag(wardId);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (etag != null) response.eTag(etag);
+        return response.body(ApiResponse.success(wardService.getWardHierarchy(wardId)));
+    }
+
     @GetMapping("/{wardId}/rooms")
     public ResponseEntity<ApiResponse<List<RoomDTO>>> getRoomsByWard(@PathVariable Long wardId) {
         return ResponseEntity.ok(ApiResponse.success(wardService.getRoomsByWard(wardId)));
@@ -53,6 +70,33 @@ public class WardController {
         return ResponseEntity.ok(ApiResponse.success(wardService.createBed(dto)));
     }
 
+    @GetMapping("/beds")
+    public ResponseEntity<ApiResponse<List<BedDTO>>> getBeds(@RequestParam(required = false) Long wardId,
+                                                            @RequestParam(required = false) BedStatus status) {
+        return ResponseEntity.ok(ApiResponse.success(wardService.getBeds(wardId, status)));
+    }
+
+    @GetMapping("/occupancy")
+    public ResponseEntity<ApiResponse<List<WardOccupancyDTO>>> getOccupancy() {
+        return ResponseEntity.ok(ApiResponse.success(wardService.getOccupancy()));
+    }
+
+    @GetMapping("/{wardId}/occupancy")
+    public ResponseEntity<ApiResponse<WardOccupancyDTO>> getWardOccupancy(@PathVariable Long wardId) {
+        return ResponseEntity.ok(ApiResponse.success(wardService.getWardOccupancy(wardId)));
+    }
+
+    @GetMapping(value = "/beds/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBedBoard(@RequestParam(required = false) Long wardId) {
+        return wardService.streamBedBoard(wardId);
+    }
+
+    @PutMapping("/beds/{id}/status")
+    public ResponseEntity<ApiResponse<BedDTO>> updateBedStatus(
+            @PathVariable Long id, @RequestParam BedStatus status, @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(ApiResponse.success(wardService.updateBedStatus(id, status, version)));
+    }
+
     @GetMapping("/beds/available")
     public ResponseEntity<ApiResponse<List<BedDTO>>> getAvailableBeds() {
         return ResponseEntity.ok(ApiResponse.success(wardService.getAvailableBeds()));
@@ -70,6 +114,13 @@ public class WardController {
         return ResponseEntity.ok(ApiResponse.success(wardService.getAdmissionsByStatus(status, pageable)));
     }
 
+    @GetMapping("/admissions/status/{status}/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<AdmissionDTO>>> scrollAdmissions(
+            @PathVariable AdmissionStatus status,
+            @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(wardService.scrollAdmissionsByStatus(status, cursor, size)));
+    }
+
     @PutMapping("/admissions/{id}/discharge")
     public ResponseEntity<ApiResponse<AdmissionDTO>> discharge(
             @PathVariable Long id, @RequestBody Map<String, String> body) {
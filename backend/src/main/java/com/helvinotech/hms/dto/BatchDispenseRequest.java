@@ -0,0 +1,12 @@
+package com.helvinotech.hms.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/** Either a visit (all its prescriptions) or explicit prescription ids, optionally restricted to a visit. */
+@Data
+public class BatchDispenseRequest {
+    private Long visitId;
+    private List<Long> prescriptionIds;
+}
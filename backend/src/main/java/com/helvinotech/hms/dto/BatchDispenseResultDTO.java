@@ -0,0 +1,27 @@
+package com.helvinotech.hms.dto;
+
+import com.helvinotech.hms.enums.DispenseOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchDispenseResultDTO {
+    private int dispensed;
+    private int notDispensed;
+    private List<Line> lines;
+
+    @Data
+    @AllArgsConstructor
+    public static class Line {
+        private Long prescriptionId;
+        private Long drugId;
+        private String drugName;
+        private Integer quantity;
+        private DispenseOutcome outcome;
+        private String message;
+        private String dispensedBatches;
+    }
+}
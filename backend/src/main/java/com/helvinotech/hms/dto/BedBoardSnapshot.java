@@ -0,0 +1,15 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/** Sent when a bed board stream opens: a ward's beds, or every available bed for the all-wards stream. */
+@Data
+@AllArgsConstructor
+public class BedBoardSnapshot {
+    private long version;
+    private List<WardOccupancyDTO> wards;
+    private List<BedDTO> beds;
+}
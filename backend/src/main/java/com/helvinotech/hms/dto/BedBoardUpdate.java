@@ -0,0 +1,13 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** One bed's new state and its ward's occupancy; clients drop updates older than the bed version they hold. */
+@Data
+@AllArgsConstructor
+public class BedBoardUpdate {
+    private long version;
+    private BedDTO bed;
+    private WardOccupancyDTO ward;
+}
@@ -11,7 +11,10 @@ public class BedDTO {
     private String bedNumber;
     private Long roomId;
     private String roomNumber;
+    private Long wardId;
     private String wardName;
     private BedStatus status;
+    private Long version;
     private BigDecimal dailyCharge;
+    private BedOccupantDTO occupant;   // ward hierarchy only; null elsewhere and for unoccupied beds
 }
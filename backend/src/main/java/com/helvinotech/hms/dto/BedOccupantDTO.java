@@ -0,0 +1,22 @@
+package com.helvinotech.hms.dto;
+
+import com.helvinotech.hms.enums.Gender;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** The current admission on an occupied bed, for ward screens. */
+@Data
+public class BedOccupantDTO {
+    private Long admissionId;
+    private LocalDateTime admittedAt;
+    private String admissionReason;
+    private String admittingDoctorName;
+    private Long patientId;
+    private String patientNo;
+    private String patientName;
+    private Gender gender;
+    private LocalDate dateOfBirth;
+    private String allergies;
+}
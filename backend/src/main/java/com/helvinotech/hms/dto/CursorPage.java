@@ -0,0 +1,33 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public static int fetchSize(int requested) {
+        return Math.max(1, Math.min(requested, MAX_SIZE)) + 1;
+    }
+
+    /** Builds a page from a query that fetched one row more than requested to detect the next page. */
+    public static <E, T> CursorPage<T> of(List<E> rows, int requested, Function<E, PageCursor> cursorOf, Function<E, T> mapper) {
+        int size = fetchSize(requested) - 1;
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? cursorOf.apply(page.get(page.size() - 1)).encode() : null;
+        return new CursorPage<>(page.stream().map(mapper).collect(Collectors.toList()), page.size(), hasNext, next);
+    }
+}
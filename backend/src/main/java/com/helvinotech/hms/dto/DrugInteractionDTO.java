@@ -0,0 +1,19 @@
+package com.helvinotech.hms.dto;
+
+import com.helvinotech.hms.enums.InteractionSeverity;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class DrugInteractionDTO {
+    private Long id;
+    @NotNull
+    private Long drugId;
+    private String drugName;
+    @NotNull
+    private Long interactingDrugId;
+    private String interactingDrugName;
+    @NotNull
+    private InteractionSeverity severity;
+    private String description;
+}
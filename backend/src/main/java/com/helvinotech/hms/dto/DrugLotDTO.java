@@ -0,0 +1,24 @@
+package com.helvinotech.hms.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class DrugLotDTO {
+    private Long id;
+    private Long drugId;
+    private String drugName;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    @NotNull @Positive
+    private Integer quantityReceived;
+    private Integer quantityRemaining;
+    private BigDecimal costPrice;
+    private String supplier;
+    private LocalDateTime receivedAt;
+}
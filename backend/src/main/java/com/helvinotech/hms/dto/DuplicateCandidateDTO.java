@@ -0,0 +1,16 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateCandidateDTO {
+    private PatientDTO patient;
+    private double score;
+    private List<String> reasons;
+}
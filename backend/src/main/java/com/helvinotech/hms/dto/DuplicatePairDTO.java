@@ -0,0 +1,19 @@
+package com.helvinotech.hms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class DuplicatePairDTO {
+    private Long id;
+    private Long patientAId;
+    private String patientANo;
+    private String patientAName;
+    private Long patientBId;
+    private String patientBNo;
+    private String patientBName;
+    private double score;
+    private String reasons;
+    private LocalDateTime detectedAt;
+}
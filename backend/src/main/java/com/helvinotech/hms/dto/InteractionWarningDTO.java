@@ -0,0 +1,17 @@
+package com.helvinotech.hms.dto;
+
+import com.helvinotech.hms.enums.InteractionSeverity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class InteractionWarningDTO {
+    private boolean allergy;
+    private InteractionSeverity severity;
+    private Long conflictingPrescriptionId;   // null for allergy warnings
+    private Long conflictingDrugId;
+    private String conflictingDrugName;
+    private String message;
+    private boolean blocking;                 // allergy or contraindicated; needs overrideWarnings to prescribe
+}
@@ -19,5 +19,8 @@ public class PrescriptionDTO {
     private boolean dispensed;
     private String dispensedByName;
     private LocalDateTime dispensedAt;
+    private String dispensedBatches;
+    private String interactionWarnings;
+    private boolean overrideWarnings;   // request only: prescribe despite allergy or contraindication warnings
     private LocalDateTime createdAt;
 }
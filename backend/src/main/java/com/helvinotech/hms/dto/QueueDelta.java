@@ -0,0 +1,16 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class QueueDelta {
+    public static final String UPSERT = "UPSERT";
+    public static final String REMOVE = "REMOVE";
+
+    private long version;
+    private String type;
+    private Long visitId;
+    private VisitDTO visit;
+}
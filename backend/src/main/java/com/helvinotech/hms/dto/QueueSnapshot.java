@@ -0,0 +1,13 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class QueueSnapshot {
+    private long version;
+    private List<VisitDTO> visits;
+}
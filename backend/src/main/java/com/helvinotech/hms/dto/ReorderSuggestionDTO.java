@@ -0,0 +1,19 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ReorderSuggestionDTO {
+    private Long drugId;
+    private String genericName;
+    private String brandName;
+    private int quantityInStock;
+    private Integer reorderLevel;
+    private double dailyConsumption;   // exponentially weighted units per day
+    private Double daysOfCover;        // null when there is no recent consumption
+    private int reorderPoint;
+    private int suggestedQuantity;
+    private boolean reorderNow;
+}
@@ -0,0 +1,16 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class StockBalanceDTO {
+    private Long drugId;
+    private LocalDateTime asOf;
+    private long quantity;
+    private LocalDateTime snapshotAsOf;   // null when no snapshot precedes asOf
+    private long movementsApplied;        // movements replayed on top of the snapshot
+}
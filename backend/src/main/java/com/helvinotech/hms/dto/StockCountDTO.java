@@ -0,0 +1,20 @@
+package com.helvinotech.hms.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/** A physical count. The batch and expiry describe the lot a surplus is booked into. */
+@Data
+public class StockCountDTO {
+    /** The stock figure the count was taken against; the count is refused if stock has moved since. */
+    @NotNull @PositiveOrZero
+    private Integer expectedQuantity;
+    @NotNull @PositiveOrZero
+    private Integer countedQuantity;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    private String reason;
+}
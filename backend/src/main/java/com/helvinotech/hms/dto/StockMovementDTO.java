@@ -0,0 +1,17 @@
+package com.helvinotech.hms.dto;
+
+import com.helvinotech.hms.enums.StockMovementType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class StockMovementDTO {
+    private Long id;
+    private Long drugId;
+    private Long lotId;
+    private StockMovementType type;
+    private Integer quantity;
+    private LocalDateTime occurredAt;
+    private String reference;
+}
@@ -0,0 +1,14 @@
+package com.helvinotech.hms.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class WardHierarchyDTO {
+    private Long id;
+    private String name;
+    private String type;
+    private boolean active;
+    private List<RoomDTO> rooms;
+}
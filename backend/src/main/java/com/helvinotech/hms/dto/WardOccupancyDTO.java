@@ -0,0 +1,19 @@
+package com.helvinotech.hms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class WardOccupancyDTO {
+    private Long wardId;
+    private String wardName;
+    private String wardType;
+    private int totalBeds;
+    private int available;
+    private int occupied;
+    private int reserved;
+    private int cleaning;
+    private int maintenance;
+    private double occupancyRate;   // occupied / total, as a percentage
+}
@@ -8,7 +8,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "admissions")
+@Table(name = "admissions", indexes = {
+        @Index(name = "idx_admissions_created", columnList = "created_at, id"),
+        @Index(name = "idx_admissions_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_admissions_bed_status", columnList = "bed_id, status")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
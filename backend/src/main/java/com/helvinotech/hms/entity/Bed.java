@@ -30,4 +30,10 @@ public class Bed {
 
     @Column(precision = 10, scale = 2)
     private BigDecimal dailyCharge;
+
+    // Bumped by every status change; status moves only by compare-and-set on it (BedRepository.compareAndSetStatus)
+    @Version
+    @Column(columnDefinition = "bigint not null default 0")
+    @Builder.Default
+    private long version = 0;
 }
@@ -12,7 +12,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "billings")
+@Table(name = "billings", indexes = {
+        @Index(name = "idx_billings_created", columnList = "created_at, id"),
+        @Index(name = "idx_billings_status_created", columnList = "status, created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
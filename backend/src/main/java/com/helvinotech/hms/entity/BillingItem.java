@@ -6,7 +6,9 @@ import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "billing_items")
+@Table(name = "billing_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_billing_items_accrual_key", columnNames = "accrual_key")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
@@ -34,4 +36,8 @@ public class BillingItem {
 
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal totalPrice;
+
+    // Set on items raised by accrual jobs (BED-<admission>-<date>) so a day is never charged twice
+    @Column(name = "accrual_key", length = 64)
+    private String accrualKey;
 }
@@ -0,0 +1,38 @@
+package com.helvinotech.hms.entity;
+
+import com.helvinotech.hms.enums.FinancialMetric;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_financial_facts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_financial_facts", columnNames = {"fact_date", "metric", "dimension"})
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class DailyFinancialFact {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "fact_date", nullable = false)
+    private LocalDate factDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private FinancialMetric metric;
+
+    @Column(nullable = false, length = 64)
+    private String dimension;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+}
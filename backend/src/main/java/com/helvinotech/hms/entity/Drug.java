@@ -3,6 +3,7 @@ package com.helvinotech.hms.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -11,6 +12,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "drugs")
+@DynamicUpdate // stock columns are only changed by conditional UPDATEs and must never be written back from a stale entity
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
@@ -36,6 +38,7 @@ public class Drug {
 
     private Integer reorderLevel;
 
+    // Summary of the next lot to expire; see DrugLot
     private String batchNumber;
 
     private LocalDate expiryDate;
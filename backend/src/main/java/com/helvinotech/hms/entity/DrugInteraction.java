@@ -0,0 +1,39 @@
+package com.helvinotech.hms.entity;
+
+import com.helvinotech.hms.enums.InteractionSeverity;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/** One interacting pair, stored once with the lower drug id first. */
+@Entity
+@Table(name = "drug_interactions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_drug_interactions_pair", columnNames = {"drug_id", "interacting_drug_id"})
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class DrugInteraction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "drug_id", nullable = false)
+    private Long drugId;
+
+    @Column(name = "interacting_drug_id", nullable = false)
+    private Long interactingDrugId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InteractionSeverity severity;
+
+    @Column(length = 500)
+    private String description; // e.g. "Increased bleeding risk"
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package com.helvinotech.hms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "drug_lots", indexes = {
+        @Index(name = "idx_drug_lots_drug_expiry", columnList = "drug_id, expiry_date, id")
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class DrugLot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "drug_id", nullable = false)
+    private Drug drug;
+
+    private String batchNumber;
+
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
+    @Column(nullable = false)
+    private Integer quantityReceived;
+
+    @Column(nullable = false)
+    private Integer quantityRemaining;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal costPrice;
+
+    private String supplier;
+
+    @CreationTimestamp
+    private LocalDateTime receivedAt;
+}
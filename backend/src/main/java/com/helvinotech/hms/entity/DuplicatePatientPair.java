@@ -0,0 +1,37 @@
+package com.helvinotech.hms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "duplicate_patient_pairs", indexes = {
+        @Index(name = "idx_duplicate_patient_pairs_score", columnList = "score")
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class DuplicatePatientPair {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_a_id", nullable = false)
+    private Patient patientA;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_b_id", nullable = false)
+    private Patient patientB;
+
+    @Column(nullable = false)
+    private double score;
+
+    private String reasons;
+
+    @CreationTimestamp
+    private LocalDateTime detectedAt;
+}
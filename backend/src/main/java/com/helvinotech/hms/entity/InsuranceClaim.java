@@ -10,7 +10,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "insurance_claims")
+@Table(name = "insurance_claims", indexes = {
+        @Index(name = "idx_insurance_claims_created", columnList = "created_at, id"),
+        @Index(name = "idx_insurance_claims_status_created", columnList = "status, created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
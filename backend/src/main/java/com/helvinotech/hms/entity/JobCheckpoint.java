@@ -0,0 +1,35 @@
+package com.helvinotech.hms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a restartable batch job run: the last key it has fully processed. Jobs with one row per run
+ * name it after the run, such as {@code bed-charge-accrual:2026-01-31}.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class JobCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -8,7 +8,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "lab_orders")
+@Table(name = "lab_orders", indexes = {
+        @Index(name = "idx_lab_orders_created", columnList = "created_at, id"),
+        @Index(name = "idx_lab_orders_status_created", columnList = "status, created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
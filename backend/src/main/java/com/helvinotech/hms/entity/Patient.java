@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+        @Index(name = "idx_patients_created", columnList = "created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
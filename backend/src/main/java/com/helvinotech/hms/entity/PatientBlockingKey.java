@@ -0,0 +1,26 @@
+package com.helvinotech.hms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "patient_blocking_keys", indexes = {
+        @Index(name = "idx_patient_blocking_keys_key", columnList = "block_key")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_patient_blocking_keys", columnNames = {"patient_id", "block_key"})
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class PatientBlockingKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "block_key", nullable = false, length = 64)
+    private String blockKey;
+}
@@ -48,6 +48,12 @@ public class Prescription {
 
     private LocalDateTime dispensedAt;
 
+    @Column(length = 1000)
+    private String dispensedBatches; // lots picked by FEFO allocation, e.g. "B1234 x10 (exp 2026-03-31)"
+
+    @Column(length = 1000)
+    private String interactionWarnings; // from the check at prescribing time, refreshed when the table is reloaded
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 }
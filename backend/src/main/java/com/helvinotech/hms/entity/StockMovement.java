@@ -0,0 +1,41 @@
+package com.helvinotech.hms.entity;
+
+import com.helvinotech.hms.enums.StockMovementType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** Append-only: rows are inserted by StockLedgerService and never updated or deleted. */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_drug_time", columnList = "drug_id, occurred_at"),
+        @Index(name = "idx_stock_movements_lot", columnList = "lot_id")
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "drug_id", nullable = false)
+    private Long drugId;
+
+    @Column(name = "lot_id")
+    private Long lotId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StockMovementType type;
+
+    @Column(nullable = false)
+    private Integer quantity; // signed: positive into stock, negative out of it
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    private String reference;
+}
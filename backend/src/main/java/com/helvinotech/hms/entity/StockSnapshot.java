@@ -0,0 +1,30 @@
+package com.helvinotech.hms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_snapshots", columnNames = {"drug_id", "as_of"})
+})
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+@Builder
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "drug_id", nullable = false)
+    private Long drugId;
+
+    // Balance of all movements that occurred before this instant
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+
+    @Column(nullable = false)
+    private Integer balance;
+}
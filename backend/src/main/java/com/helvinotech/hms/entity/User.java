@@ -49,6 +49,11 @@ public class User implements UserDetails {
     @Builder.Default
     private boolean active = true;
 
+    // Carried in issued tokens; bumping it revokes every token issued before
+    @Column(columnDefinition = "integer not null default 0")
+    @Builder.Default
+    private int tokenVersion = 0;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
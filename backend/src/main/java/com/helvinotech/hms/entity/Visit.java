@@ -10,7 +10,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "visits")
+@Table(name = "visits", indexes = {
+        @Index(name = "idx_visits_created", columnList = "created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
 @Builder
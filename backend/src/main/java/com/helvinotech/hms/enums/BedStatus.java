@@ -1,8 +1,27 @@
 package com.helvinotech.hms.enums;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum BedStatus {
     AVAILABLE,
     OCCUPIED,
     RESERVED,
-    MAINTENANCE
+    MAINTENANCE,
+    CLEANING;    // Vacated by a discharge; turned over before the next admission
+
+    /** Allowed transitions: AVAILABLE -> OCCUPIED -> CLEANING -> AVAILABLE, with RESERVED and MAINTENANCE on the side. */
+    public Set<BedStatus> next() {
+        return switch (this) {
+            case AVAILABLE -> EnumSet.of(OCCUPIED, RESERVED, MAINTENANCE);
+            case RESERVED -> EnumSet.of(OCCUPIED, AVAILABLE, MAINTENANCE);
+            case OCCUPIED -> EnumSet.of(CLEANING);
+            case CLEANING -> EnumSet.of(AVAILABLE, MAINTENANCE);
+            case MAINTENANCE -> EnumSet.of(AVAILABLE);
+        };
+    }
+
+    public boolean canMoveTo(BedStatus to) {
+        return next().contains(to);
+    }
 }
@@ -0,0 +1,8 @@
+package com.helvinotech.hms.enums;
+
+public enum DispenseOutcome {
+    DISPENSED,           // Claimed and allocated from lots in this request
+    ALREADY_DISPENSED,   // Dispensed earlier or by a concurrent request
+    INSUFFICIENT_STOCK,  // Left pending; unexpired stock did not cover the quantity
+    NOT_FOUND            // No such prescription, or it is not part of the requested visit
+}
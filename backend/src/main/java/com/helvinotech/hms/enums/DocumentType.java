@@ -0,0 +1,17 @@
+package com.helvinotech.hms.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum DocumentType {
+    PATIENT("PT", "patients", "patient_no"),
+    INVOICE("INV", "billings", "invoice_number"),
+    RECEIPT("RCP", "payments", "receipt_number"),
+    CLAIM("CLM", "insurance_claims", "claim_number");
+
+    private final String prefix;
+    private final String table;
+    private final String column;
+}
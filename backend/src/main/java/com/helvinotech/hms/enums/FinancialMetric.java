@@ -0,0 +1,8 @@
+package com.helvinotech.hms.enums;
+
+public enum FinancialMetric {
+    REVENUE,   // Billing.paidAmount, by day the bill was raised
+    BILLED,    // Billing item totals by service type, by day the bill was raised
+    PAYMENTS,  // Payment amounts by payment method, by day received
+    EXPENSES   // Expense amounts by category, by expense date
+}
@@ -0,0 +1,8 @@
+package com.helvinotech.hms.enums;
+
+public enum InteractionSeverity {
+    MINOR,            // Monitor; usually no change needed
+    MODERATE,         // May need a dose change or closer monitoring
+    MAJOR,            // Avoid the combination unless the benefit outweighs the risk
+    CONTRAINDICATED   // Must not be given together; prescribing requires an explicit override
+}
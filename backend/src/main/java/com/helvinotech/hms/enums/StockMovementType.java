@@ -0,0 +1,8 @@
+package com.helvinotech.hms.enums;
+
+public enum StockMovementType {
+    RECEIPT,     // Stock received from a supplier as a new lot
+    DISPENSE,    // Issued against a prescription
+    ADJUSTMENT,  // Count corrections, write-offs and opening balances
+    RETURN       // Dispensed stock returned to its lot
+}
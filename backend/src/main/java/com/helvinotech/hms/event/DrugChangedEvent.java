@@ -0,0 +1,7 @@
+package com.helvinotech.hms.event;
+
+import com.helvinotech.hms.dto.DrugDTO;
+
+/** Published after a drug is created, edited or receives stock, carrying its state as committed. */
+public record DrugChangedEvent(DrugDTO drug) {
+}
@@ -0,0 +1,8 @@
+package com.helvinotech.hms.event;
+
+/**
+ * Published when stock of a drug is issued to a patient. {@code quantity} is negative when
+ * dispensed stock is returned.
+ */
+public record DrugDispensedEvent(Long drugId, int quantity) {
+}
@@ -0,0 +1,8 @@
+package com.helvinotech.hms.event;
+
+/**
+ * Published when a user is created or their role, status or credentials change, so anything holding an
+ * authenticated view of that user can drop it. {@code tokenVersion} is the user's version after the change.
+ */
+public record UserChangedEvent(Long userId, String email, int tokenVersion) {
+}
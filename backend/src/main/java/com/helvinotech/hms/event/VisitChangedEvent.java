@@ -0,0 +1,10 @@
+package com.helvinotech.hms.event;
+
+import com.helvinotech.hms.dto.VisitDTO;
+
+/**
+ * Published after a visit is created or modified. {@code previousDoctorId} is set when the
+ * visit was reassigned so listeners can drop it from the old doctor's view.
+ */
+public record VisitChangedEvent(VisitDTO visit, Long previousDoctorId) {
+}
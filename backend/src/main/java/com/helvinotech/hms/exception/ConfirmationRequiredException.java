@@ -0,0 +1,17 @@
+package com.helvinotech.hms.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/** A write the user must review and confirm; the details are returned with the 409 so the UI can show them. */
+@Getter
+public class ConfirmationRequiredException extends RuntimeException {
+
+    private final List<?> details;
+
+    public ConfirmationRequiredException(String message, List<?> details) {
+        super(message);
+        this.details = details;
+    }
+}
@@ -0,0 +1,58 @@
+package com.helvinotech.hms.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/** RFC 4180 CSV with a UTF-8 BOM so spreadsheet applications detect the encoding. */
+public class CsvRowWriter implements RowWriter {
+
+    private final Writer writer;
+
+    public CsvRowWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writeCell(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCell(Object value) throws IOException {
+        if (value == null) return;
+        if (value instanceof BigDecimal decimal) {
+            writer.write(decimal.toPlainString());
+            return;
+        }
+        if (value instanceof Number) {
+            writer.write(value.toString());
+            return;
+        }
+        String text = ExportValues.format(value);
+        // Text that a spreadsheet would evaluate as a formula is neutralised
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
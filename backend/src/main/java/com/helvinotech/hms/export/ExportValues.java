@@ -0,0 +1,20 @@
+package com.helvinotech.hms.export;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+
+final class ExportValues {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private ExportValues() {
+    }
+
+    static String format(Object value) {
+        if (value == null) return "";
+        if (value instanceof Timestamp ts) return ts.toLocalDateTime().format(TIMESTAMP);
+        if (value instanceof Date date) return date.toLocalDate().toString();
+        return value.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.helvinotech.hms.export;
+
+import com.helvinotech.hms.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Writes tabular rows straight to an output stream without buffering the data set. */
+public interface RowWriter {
+
+    void writeRow(Object[] values) throws IOException;
+
+    /** Completes the document and flushes; the underlying stream is left open. */
+    void finish() throws IOException;
+
+    static RowWriter create(ExportFormat format, OutputStream out, String sheetName) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvRowWriter(out);
+            case XLSX -> new XlsxRowWriter(out, sheetName);
+        };
+    }
+}
@@ -4,14 +4,39 @@ import com.helvinotech.hms.entity.Admission;
 import com.helvinotech.hms.enums.AdmissionStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface AdmissionRepository extends JpaRepository<Admission, Long> {
+    /** Ends an admission that is still ADMITTED; returns 0 if it was already ended. */
+    @Modifying
+    @Query("UPDATE Admission a SET a.status = :to, a.dischargeSummary = :summary, a.dischargedAt = :at " +
+           "WHERE a.id = :id AND a.status = com.helvinotech.hms.enums.AdmissionStatus.ADMITTED")
+    int markEnded(@Param("id") Long id, @Param("to") AdmissionStatus to,
+                  @Param("summary") String summary, @Param("at") LocalDateTime at);
+
+    @EntityGraph(attributePaths = {"patient", "bed.room.ward", "admittingDoctor"})
     Page<Admission> findByStatus(AdmissionStatus status, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient", "bed.room.ward", "admittingDoctor"})
     List<Admission> findByPatientId(Long patientId);
+
     long countByStatus(AdmissionStatus status);
+
+    @Query("SELECT DISTINCT a.bed.room.ward.id FROM Admission a WHERE a.patient.id = :patientId AND a.status = :status")
+    List<Long> findWardIdsByPatientIdAndStatus(@Param("patientId") Long patientId, @Param("status") AdmissionStatus status);
+
+    @EntityGraph(attributePaths = {"patient", "bed.room.ward", "admittingDoctor"})
+    @Query("SELECT a FROM Admission a WHERE a.status = :status AND (a.createdAt, a.id) < (:createdAt, :id) " +
+           "ORDER BY a.createdAt DESC, a.id DESC")
+    List<Admission> findPageByStatusBefore(@Param("status") AdmissionStatus status, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
 }
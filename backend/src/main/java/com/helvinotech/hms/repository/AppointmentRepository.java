@@ -4,6 +4,7 @@ import com.helvinotech.hms.entity.Appointment;
 import com.helvinotech.hms.enums.AppointmentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,9 +13,20 @@ import java.util.List;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByDoctorIdAndAppointmentDate(Long doctorId, LocalDate date);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     Page<Appointment> findByPatientIdOrderByAppointmentDateDesc(Long patientId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByAppointmentDateAndStatus(LocalDate date, AppointmentStatus status);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     Page<Appointment> findByAppointmentDate(LocalDate date, Pageable pageable);
+
     long countByAppointmentDateAndStatus(LocalDate date, AppointmentStatus status);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    Page<Appointment> findAll(Pageable pageable);
 }
@@ -2,14 +2,39 @@ package com.helvinotech.hms.repository;
 
 import com.helvinotech.hms.entity.Bed;
 import com.helvinotech.hms.enums.BedStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BedRepository extends JpaRepository<Bed, Long> {
-    List<Bed> findByStatus(BedStatus status);
+
+    /** Read straight from the table (not the persistence context), so a re-read after a lost CAS is current. */
+    interface BedState {
+        BedStatus getStatus();
+        long getVersion();
+    }
+
+    @Query("SELECT b.status AS status, b.version AS version FROM Bed b WHERE b.id = :id")
+    Optional<BedState> findStateById(@Param("id") Long id);
+
+    /** Moves the bed only if nobody has changed it since {@code version} was read; returns 0 otherwise. */
+    @Modifying
+    @Query("UPDATE Bed b SET b.status = :to, b.version = b.version + 1 WHERE b.id = :id AND b.version = :version")
+    int compareAndSetStatus(@Param("id") Long id, @Param("version") long version, @Param("to") BedStatus to);
+
+    @EntityGraph(attributePaths = {"room.ward"})
+    @Query("SELECT b FROM Bed b")
+    List<Bed> findAllWithWard();
+
+    @EntityGraph(attributePaths = {"room.ward"})
     List<Bed> findByRoomId(Long roomId);
+
     long countByStatus(BedStatus status);
 }
@@ -4,6 +4,7 @@ import com.helvinotech.hms.entity.Billing;
 import com.helvinotech.hms.enums.PaymentStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,12 +12,30 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface BillingRepository extends JpaRepository<Billing, Long> {
+    @EntityGraph(attributePaths = {"patient"})
     Page<Billing> findByPatientIdOrderByCreatedAtDesc(Long patientId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient"})
     Page<Billing> findByStatus(PaymentStatus status, Pageable pageable);
 
     @Query("SELECT COALESCE(SUM(b.paidAmount), 0) FROM Billing b WHERE b.createdAt BETWEEN :start AND :end")
     BigDecimal sumRevenueByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @EntityGraph(attributePaths = {"patient"})
+    @Query("SELECT b FROM Billing b WHERE (b.createdAt, b.id) < (:createdAt, :id) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Billing> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient"})
+    @Query("SELECT b FROM Billing b WHERE b.status = :status AND (b.createdAt, b.id) < (:createdAt, :id) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Billing> findPageByStatusBefore(@Param("status") PaymentStatus status, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient"})
+    Page<Billing> findAll(Pageable pageable);
 }
@@ -0,0 +1,24 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.DailyFinancialFact;
+import com.helvinotech.hms.enums.FinancialMetric;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyFinancialFactRepository extends JpaRepository<DailyFinancialFact, Long> {
+
+    @Query("SELECT COALESCE(SUM(f.amount), 0) FROM DailyFinancialFact f " +
+           "WHERE f.metric = :metric AND f.factDate BETWEEN :start AND :end")
+    BigDecimal sumByMetric(@Param("metric") FinancialMetric metric, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @Query("SELECT f.dimension, SUM(f.amount) FROM DailyFinancialFact f " +
+           "WHERE f.metric = :metric AND f.factDate BETWEEN :start AND :end GROUP BY f.dimension ORDER BY f.dimension")
+    List<Object[]> sumByDimension(@Param("metric") FinancialMetric metric, @Param("start") LocalDate start, @Param("end") LocalDate end);
+}
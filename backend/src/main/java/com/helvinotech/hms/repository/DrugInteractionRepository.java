@@ -0,0 +1,14 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.DrugInteraction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DrugInteractionRepository extends JpaRepository<DrugInteraction, Long> {
+    boolean existsByDrugIdAndInteractingDrugId(Long drugId, Long interactingDrugId);
+
+    List<DrugInteraction> findByDrugIdOrInteractingDrugId(Long drugId, Long interactingDrugId);
+}
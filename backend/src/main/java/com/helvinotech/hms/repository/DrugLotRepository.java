@@ -0,0 +1,57 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.DrugLot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DrugLotRepository extends JpaRepository<DrugLot, Long> {
+
+    /** Read straight from the table (not the persistence context), so a re-read after a decrement is current. */
+    interface AvailableLot {
+        Long getId();
+        String getBatchNumber();
+        LocalDate getExpiryDate();
+        int getQuantityRemaining();
+    }
+
+    /**
+     * Lots in first-expiry-first-out order, walked along idx_drug_lots_drug_expiry one page at a time.
+     * Expired lots are skipped unless {@code includeExpired} (write-offs).
+     */
+    @Query("SELECT l.id AS id, l.batchNumber AS batchNumber, l.expiryDate AS expiryDate, l.quantityRemaining AS quantityRemaining " +
+           "FROM DrugLot l WHERE l.drug.id = :drugId AND l.quantityRemaining > 0 " +
+           "AND (:includeExpired = true OR l.expiryDate IS NULL OR l.expiryDate >= :today) " +
+           "ORDER BY l.expiryDate ASC NULLS LAST, l.id ASC")
+    List<AvailableLot> findAllocatable(@Param("drugId") Long drugId, @Param("today") LocalDate today,
+                                       @Param("includeExpired") boolean includeExpired, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(l.quantityRemaining), 0) FROM DrugLot l WHERE l.drug.id = :drugId " +
+           "AND l.quantityRemaining > 0 AND (l.expiryDate IS NULL OR l.expiryDate >= :today)")
+    long sumAllocatable(@Param("drugId") Long drugId, @Param("today") LocalDate today);
+
+    @Query("SELECT l FROM DrugLot l WHERE l.drug.id = :drugId AND l.quantityRemaining > 0 " +
+           "ORDER BY l.expiryDate ASC NULLS LAST, l.id ASC")
+    List<DrugLot> findInStockByDrugId(@Param("drugId") Long drugId);
+
+    @EntityGraph(attributePaths = {"drug"})
+    @Query("SELECT l FROM DrugLot l WHERE l.quantityRemaining > 0 AND l.expiryDate < :before ORDER BY l.expiryDate ASC, l.id ASC")
+    List<DrugLot> findInStockExpiringBefore(@Param("before") LocalDate before);
+
+    @Modifying
+    @Query("UPDATE DrugLot l SET l.quantityRemaining = l.quantityRemaining - :qty WHERE l.id = :id AND l.quantityRemaining >= :qty")
+    int decrementRemaining(@Param("id") Long lotId, @Param("qty") int quantity);
+
+    @Modifying
+    @Query("UPDATE DrugLot l SET l.quantityRemaining = l.quantityRemaining + :qty " +
+           "WHERE l.id = :id AND l.quantityRemaining + :qty <= l.quantityReceived")
+    int incrementRemaining(@Param("id") Long lotId, @Param("qty") int quantity);
+}
@@ -4,6 +4,7 @@ import com.helvinotech.hms.entity.Drug;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,11 +15,32 @@ import java.util.List;
 @Repository
 public interface DrugRepository extends JpaRepository<Drug, Long> {
     Page<Drug> findByGenericNameContainingIgnoreCase(String name, Pageable pageable);
-    List<Drug> findByQuantityInStockLessThanEqual(Integer threshold);
     List<Drug> findByExpiryDateBefore(LocalDate date);
     Page<Drug> findByActiveTrue(Pageable pageable);
+    List<Drug> findByActiveTrue();
 
-    @Query("SELECT d FROM Drug d WHERE LOWER(d.genericName) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(d.brandName) LIKE LOWER(CONCAT('%', :q, '%'))")
-    Page<Drug> searchDrugs(@Param("q") String query, Pageable pageable);
+    /** Single-statement decrement; returns 0 when the drug is missing or has less than {@code qty} in stock. */
+    @Modifying
+    @Query("UPDATE Drug d SET d.quantityInStock = d.quantityInStock - :qty, d.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE d.id = :id AND d.quantityInStock >= :qty")
+    int decrementStock(@Param("id") Long drugId, @Param("qty") int quantity);
+
+    @Modifying
+    @Query("UPDATE Drug d SET d.quantityInStock = d.quantityInStock + :qty, d.updatedAt = CURRENT_TIMESTAMP WHERE d.id = :id")
+    int incrementStock(@Param("id") Long drugId, @Param("qty") int quantity);
+
+    /** Locks the drug row if its stock is still {@code expected}; returns 0 when it is missing or the stock has moved. */
+    @Modifying
+    @Query("UPDATE Drug d SET d.updatedAt = CURRENT_TIMESTAMP WHERE d.id = :id AND d.quantityInStock = :expected")
+    int lockIfStockIs(@Param("id") Long drugId, @Param("expected") int expected);
+
+    /**
+     * Points the drug's batch and expiry summary at its next lot to expire that still has stock. Runs last
+     * in every stock change and clears the persistence context, so entities re-read afterwards are current.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE drugs SET (batch_number, expiry_date) = (SELECT l.batch_number, l.expiry_date FROM drug_lots l " +
+                   "WHERE l.drug_id = drugs.id AND l.quantity_remaining > 0 ORDER BY l.expiry_date ASC NULLS LAST, l.id ASC LIMIT 1) " +
+                   "WHERE id = :id", nativeQuery = true)
+    int refreshNextLot(@Param("id") Long drugId);
 }
@@ -0,0 +1,15 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.DuplicatePatientPair;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DuplicatePatientPairRepository extends JpaRepository<DuplicatePatientPair, Long> {
+
+    @EntityGraph(attributePaths = {"patientA", "patientB"})
+    Page<DuplicatePatientPair> findAllByOrderByScoreDesc(Pageable pageable);
+}
@@ -4,6 +4,7 @@ import com.helvinotech.hms.entity.ImagingOrder;
 import com.helvinotech.hms.enums.LabOrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,6 +12,12 @@ import java.util.List;
 
 @Repository
 public interface ImagingOrderRepository extends JpaRepository<ImagingOrder, Long> {
+    @EntityGraph(attributePaths = {"radiologist"})
     List<ImagingOrder> findByVisitId(Long visitId);
+
+    @EntityGraph(attributePaths = {"radiologist"})
     Page<ImagingOrder> findByStatus(LabOrderStatus status, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"radiologist"})
+    Page<ImagingOrder> findAll(Pageable pageable);
 }
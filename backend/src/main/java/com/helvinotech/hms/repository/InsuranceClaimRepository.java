@@ -4,11 +4,34 @@ import com.helvinotech.hms.entity.InsuranceClaim;
 import com.helvinotech.hms.enums.ClaimStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface InsuranceClaimRepository extends JpaRepository<InsuranceClaim, Long> {
+    @EntityGraph(attributePaths = {"billing", "insuranceCompany", "patient"})
     Page<InsuranceClaim> findByStatus(ClaimStatus status, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"billing", "insuranceCompany", "patient"})
     Page<InsuranceClaim> findByPatientId(Long patientId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"billing", "insuranceCompany", "patient"})
+    @Query("SELECT c FROM InsuranceClaim c WHERE (c.createdAt, c.id) < (:createdAt, :id) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<InsuranceClaim> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"billing", "insuranceCompany", "patient"})
+    @Query("SELECT c FROM InsuranceClaim c WHERE c.status = :status AND (c.createdAt, c.id) < (:createdAt, :id) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<InsuranceClaim> findPageByStatusBefore(@Param("status") ClaimStatus status, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"billing", "insuranceCompany", "patient"})
+    Page<InsuranceClaim> findAll(Pageable pageable);
 }
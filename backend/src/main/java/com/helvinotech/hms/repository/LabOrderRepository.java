@@ -4,14 +4,28 @@ import com.helvinotech.hms.entity.LabOrder;
 import com.helvinotech.hms.enums.LabOrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface LabOrderRepository extends JpaRepository<LabOrder, Long> {
+    @EntityGraph(attributePaths = {"test", "orderedBy", "processedBy", "verifiedBy"})
     List<LabOrder> findByVisitId(Long visitId);
+
+    @EntityGraph(attributePaths = {"test", "orderedBy", "processedBy", "verifiedBy"})
     Page<LabOrder> findByStatus(LabOrderStatus status, Pageable pageable);
+
     long countByStatus(LabOrderStatus status);
+
+    @EntityGraph(attributePaths = {"test", "orderedBy", "processedBy", "verifiedBy"})
+    @Query("SELECT o FROM LabOrder o WHERE o.status = :status AND (o.createdAt, o.id) < (:createdAt, :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<LabOrder> findPageByStatusBefore(@Param("status") LabOrderStatus status, @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id, Pageable pageable);
 }
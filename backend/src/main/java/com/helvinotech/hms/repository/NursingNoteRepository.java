@@ -1,6 +1,7 @@
 package com.helvinotech.hms.repository;
 
 import com.helvinotech.hms.entity.NursingNote;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +9,6 @@ import java.util.List;
 
 @Repository
 public interface NursingNoteRepository extends JpaRepository<NursingNote, Long> {
+    @EntityGraph(attributePaths = {"nurse"})
     List<NursingNote> findByAdmissionIdOrderByCreatedAtDesc(Long admissionId);
 }
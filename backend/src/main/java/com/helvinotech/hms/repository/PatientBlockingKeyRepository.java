@@ -0,0 +1,25 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.PatientBlockingKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PatientBlockingKeyRepository extends JpaRepository<PatientBlockingKey, Long> {
+
+    /** Patients sharing the most keys with the probe first, ties by id, so a capped page is stable. */
+    @Query("SELECT k.patientId FROM PatientBlockingKey k WHERE k.blockKey IN :keys " +
+           "GROUP BY k.patientId ORDER BY COUNT(k) DESC, k.patientId")
+    List<Long> findPatientIdsByBlockKeys(@Param("keys") Collection<String> keys, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM PatientBlockingKey k WHERE k.patientId = :patientId")
+    void deleteByPatientId(@Param("patientId") Long patientId);
+}
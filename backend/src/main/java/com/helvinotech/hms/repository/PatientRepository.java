@@ -3,23 +3,56 @@ package com.helvinotech.hms.repository;
 import com.helvinotech.hms.entity.Patient;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
+
+    // Matches are served by the trigram GIN or, for short queries, the prefix indexes created in SearchIndexInitializer
+    String SEARCH_MATCH = "(LOWER(p.full_name) LIKE :contains OR LOWER(p.full_name) LIKE :wordPrefix " +
+            "OR LOWER(p.patient_no) LIKE :contains OR LOWER(p.phone) LIKE :contains " +
+            "OR LOWER(p.id_number) LIKE :contains)";
+
+    String SEARCH_RANK = "CASE WHEN LOWER(p.patient_no) = :exact OR LOWER(p.phone) = :exact OR LOWER(p.id_number) = :exact THEN 0 " +
+            "WHEN LOWER(p.full_name) LIKE :prefix OR LOWER(p.full_name) LIKE :wordPrefix OR LOWER(p.patient_no) LIKE :prefix " +
+            "OR LOWER(p.phone) LIKE :prefix OR LOWER(p.id_number) LIKE :prefix THEN 1 ELSE 2 END";
+
     Optional<Patient> findByPatientNo(String patientNo);
 
-    @Query("SELECT p FROM Patient p WHERE LOWER(p.fullName) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(p.patientNo) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(p.phone) LIKE LOWER(CONCAT('%', :q, '%')) " +
-           "OR LOWER(p.idNumber) LIKE LOWER(CONCAT('%', :q, '%'))")
-    Page<Patient> searchPatients(@Param("q") String query, Pageable pageable);
+    @Query(value = "SELECT p.* FROM patients p WHERE " + SEARCH_MATCH +
+                   " ORDER BY " + SEARCH_RANK + ", p.full_name, p.id",
+           countQuery = "SELECT COUNT(*) FROM patients p WHERE " + SEARCH_MATCH,
+           nativeQuery = true)
+    Page<Patient> searchPatients(@Param("exact") String exact,
+                                 @Param("prefix") String prefix,
+                                 @Param("wordPrefix") String wordPrefix,
+                                 @Param("contains") String contains,
+                                 Pageable pageable);
+
+    @Query(value = "SELECT p.* FROM patients p WHERE " + SEARCH_MATCH +
+                   " ORDER BY " + SEARCH_RANK + ", p.full_name, p.id LIMIT :limit",
+           nativeQuery = true)
+    List<Patient> typeaheadPatients(@Param("exact") String exact,
+                                    @Param("prefix") String prefix,
+                                    @Param("wordPrefix") String wordPrefix,
+                                    @Param("contains") String contains,
+                                    @Param("limit") int limit);
 
     long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+
+    @EntityGraph(attributePaths = {"insuranceCompany"})
+    @Query("SELECT p FROM Patient p WHERE (p.createdAt, p.id) < (:createdAt, :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Patient> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"insuranceCompany"})
+    Page<Patient> findAll(Pageable pageable);
 }
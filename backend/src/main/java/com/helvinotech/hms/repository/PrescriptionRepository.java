@@ -1,13 +1,53 @@
 package com.helvinotech.hms.repository;
 
 import com.helvinotech.hms.entity.Prescription;
+import com.helvinotech.hms.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
+
+    interface ActiveMedication {
+        Long getId();
+        Long getDrugId();
+        String getDrugName();
+    }
+
+    @EntityGraph(attributePaths = {"drug", "dispensedBy"})
     List<Prescription> findByVisitId(Long visitId);
+
+    @EntityGraph(attributePaths = {"drug", "dispensedBy"})
     List<Prescription> findByDispensedFalse();
+
+    @EntityGraph(attributePaths = {"drug"})
+    Optional<Prescription> findWithDrugById(Long id);
+
+    @EntityGraph(attributePaths = {"drug"})
+    List<Prescription> findWithDrugByIdIn(Collection<Long> ids);
+
+    /** Claims the prescription for dispensing; returns 0 if it was already dispensed. */
+    @Modifying
+    @Query("UPDATE Prescription p SET p.dispensed = true, p.quantityDispensed = :qty, p.dispensedBy = :pharmacist, " +
+           "p.dispensedAt = :at WHERE p.id = :id AND p.dispensed = false")
+    int markDispensed(@Param("id") Long id, @Param("qty") int quantity,
+                      @Param("pharmacist") User pharmacist, @Param("at") LocalDateTime at);
+
+    /** The patient's undispensed prescriptions and anything prescribed since {@code since}. */
+    @Query("SELECT p.id AS id, p.drug.id AS drugId, p.drug.genericName AS drugName FROM Prescription p " +
+           "WHERE p.visit.patient.id = :patientId AND (p.dispensed = false OR p.createdAt >= :since)")
+    List<ActiveMedication> findActiveMedications(@Param("patientId") Long patientId, @Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("UPDATE Prescription p SET p.dispensedBatches = :batches WHERE p.id = :id")
+    int recordDispensedBatches(@Param("id") Long id, @Param("batches") String batches);
 }
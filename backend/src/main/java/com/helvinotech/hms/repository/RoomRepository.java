@@ -4,9 +4,6 @@ import com.helvinotech.hms.entity.Room;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
 public interface RoomRepository extends JpaRepository<Room, Long> {
-    List<Room> findByWardId(Long wardId);
 }
@@ -0,0 +1,26 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    Page<StockMovement> findByDrugIdAndOccurredAtBetweenOrderByOccurredAtDescIdDesc(
+            Long drugId, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM StockMovement m " +
+           "WHERE m.drugId = :drugId AND m.occurredAt >= :from AND m.occurredAt < :to")
+    long sumQuantity(@Param("drugId") Long drugId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT COUNT(m) FROM StockMovement m " +
+           "WHERE m.drugId = :drugId AND m.occurredAt >= :from AND m.occurredAt < :to")
+    long countBetween(@Param("drugId") Long drugId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
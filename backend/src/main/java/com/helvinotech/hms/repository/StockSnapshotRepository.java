@@ -0,0 +1,13 @@
+package com.helvinotech.hms.repository;
+
+import com.helvinotech.hms.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+    Optional<StockSnapshot> findFirstByDrugIdAndAsOfLessThanEqualOrderByAsOfDesc(Long drugId, LocalDateTime asOf);
+}
@@ -3,17 +3,40 @@ package com.helvinotech.hms.repository;
 import com.helvinotech.hms.entity.Visit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface VisitRepository extends JpaRepository<Visit, Long> {
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     Page<Visit> findByPatientIdOrderByCreatedAtDesc(Long patientId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Visit> findByDoctorIdAndCompletedFalseOrderByCreatedAtAsc(Long doctorId);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    List<Visit> findByDoctorIdInAndCompletedFalse(Collection<Long> doctorIds);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     Page<Visit> findByDoctorIdOrderByCreatedAtDesc(Long doctorId, Pageable pageable);
+
     long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Visit> findByCompletedFalseOrderByCreatedAtAsc();
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    @Query("SELECT v FROM Visit v WHERE (v.createdAt, v.id) < (:createdAt, :id) " +
+           "ORDER BY v.createdAt DESC, v.id DESC")
+    List<Visit> findPageBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    Page<Visit> findAll(Pageable pageable);
 }
@@ -0,0 +1,81 @@
+package com.helvinotech.hms.security;
+
+import com.helvinotech.hms.event.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Principals of already-verified tokens, keyed by the SHA-256 of the token so raw tokens are never held,
+ * saving the signature check on repeat requests. Entries live until the token expires and the cache is
+ * bounded. Revocation is not decided here: callers still check the token version on every hit.
+ */
+@Component
+public class AuthenticatedPrincipalCache {
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(AuthenticatedUser principal, long expiresAt) {}
+
+    public AuthenticatedPrincipalCache(@Value("${app.security.principal-cache-size:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public AuthenticatedUser get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.principal();
+    }
+
+    public void put(String key, AuthenticatedUser principal, long expiresAt) {
+        if (entries.size() >= maxEntries) {
+            evictExpired();
+            // Still full: drop an arbitrary slice rather than growing; evicted users just re-verify once
+            Iterator<String> it = entries.keySet().iterator();
+            for (int i = 0; entries.size() >= maxEntries && it.hasNext() && i < maxEntries / 10 + 1; i++) {
+                it.next();
+                it.remove();
+            }
+        }
+        entries.put(key, new Entry(principal, expiresAt));
+    }
+
+    public void evictUser(Long userId) {
+        entries.values().removeIf(e -> e.principal().id().equals(userId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evictUser(event.userId());
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+    }
+}
@@ -0,0 +1,19 @@
+package com.helvinotech.hms.security;
+
+import com.helvinotech.hms.enums.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/** Principal built from verified token claims, without loading the user. */
+public record AuthenticatedUser(Long id, String email, UserRole role, int tokenVersion) {
+
+    public List<GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    public String getName() {
+        return email;
+    }
+}
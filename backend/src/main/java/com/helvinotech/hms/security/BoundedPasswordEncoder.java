@@ -0,0 +1,119 @@
+package com.helvinotech.hms.security;
+
+import com.helvinotech.hms.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt hashing and verification on a small dedicated pool sized to the cores instead of on the
+ * request thread. The pool has a bounded queue; when it is full, or a queued hash does not finish within
+ * the wait limit, the caller gets a 503 with Retry-After straight away, so a login storm is shed at the
+ * edge rather than tying up every request thread and starving the rest of the API.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry,
+                                  int threads, int queueCapacity, long maxWaitMillis, long retryAfterSeconds) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("hms.password.hash").tag("operation", "encode")
+                .description("Time spent hashing a password").register(meterRegistry);
+        this.matchesTimer = Timer.builder("hms.password.hash").tag("operation", "matches")
+                .description("Time spent verifying a password").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("hms.password.queue.wait")
+                .description("Time a hashing task waited for a free thread").register(meterRegistry);
+        this.queueFullRejections = Counter.builder("hms.password.rejected").tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.timeoutRejections = Counter.builder("hms.password.rejected").tag("reason", "timeout")
+                .register(meterRegistry);
+        Gauge.builder("hms.password.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("hms.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        log.info("Password hashing pool: {} threads, queue of {}", poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Supplier<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return timer.record(work);
+            });
+        } catch (RejectedExecutionException e) {
+            queueFullRejections.increment();
+            throw busy();
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutRejections.increment();
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ServiceUnavailableException busy() {
+        return new ServiceUnavailableException("Too many sign-in requests, please try again shortly", retryAfterSeconds);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,10 +1,11 @@
 package com.helvinotech.hms.security;
 
+import com.helvinotech.hms.entity.User;
+import com.helvinotech.hms.enums.UserRole;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
@@ -14,7 +15,12 @@ import java.util.Date;
 @Component
 public class JwtTokenProvider {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_VERSION = "ver";
+
     private final SecretKey key;
+    private final JwtParser parser;
     private final long jwtExpiration;
     private final long refreshExpiration;
 
@@ -23,48 +29,65 @@ public class JwtTokenProvider {
             @Value("${jwt.expiration}") long jwtExpiration,
             @Value("${jwt.refresh-expiration}") long refreshExpiration) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
         this.jwtExpiration = jwtExpiration;
         this.refreshExpiration = refreshExpiration;
     }
 
     public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return buildToken(userDetails.getUsername(), jwtExpiration);
+        return buildToken((User) authentication.getPrincipal(), jwtExpiration);
     }
 
-    public String generateToken(String username) {
-        return buildToken(username, jwtExpiration);
+    public String generateToken(User user) {
+        return buildToken(user, jwtExpiration);
     }
 
-    public String generateRefreshToken(String username) {
-        return buildToken(username, refreshExpiration);
+    public String generateRefreshToken(User user) {
+        return buildToken(user, refreshExpiration);
     }
 
-    private String buildToken(String subject, long expiration) {
+    private String buildToken(User user, long expiration) {
         Date now = new Date();
         return Jwts.builder()
-                .subject(subject)
+                .subject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_VERSION, user.getTokenVersion())
                 .issuedAt(now)
                 .expiration(new Date(now.getTime() + expiration))
                 .signWith(key)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+    /** Verifies signature and expiry once and returns the claims, or null if the token is not valid. */
+    public Claims parseClaims(String token) {
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
-    public boolean validateToken(String token) {
+    /** The principal carried by the claims, or null for tokens issued before claims were added. */
+    public AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Number version = claims.get(CLAIM_VERSION, Number.class);
+        if (userId == null || role == null || version == null) {
+            return null;
+        }
         try {
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return new AuthenticatedUser(userId.longValue(), claims.getSubject(), UserRole.valueOf(role), version.intValue());
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
+
+    public String getUsernameFromToken(String token) {
+        return parser.parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    public boolean validateToken(String token) {
+        return parseClaims(token) != null;
+    }
 }
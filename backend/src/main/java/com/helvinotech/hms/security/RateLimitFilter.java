@@ -0,0 +1,315 @@
+package com.helvinotech.hms.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token-bucket throttling per endpoint group, keyed by the authenticated user id or, for anonymous
+ * requests, by client IP. Runs after the JWT filter so the user is known. Auth requests are keyed by the
+ * account they target (the submitted email, or the subject of the refresh token) together with the client
+ * IP, so staff behind one NAT do not share a budget and someone guessing a password elsewhere cannot lock
+ * the owner out; logins and refreshes have separate buckets. A looser per-IP limit sits in front to bound
+ * spraying across accounts. The client IP is the remote address as resolved from the proxy's forwarded
+ * headers (server.forward-headers-strategy).
+ * Buckets are lock-free (compare-and-set on an immutable state) and are dropped once idle long enough
+ * to have refilled completely, so eviction never grants more than a fresh bucket would.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public enum Group {
+        AUTH("auth", 10, 0.2),
+        AUTH_ORIGIN("auth-ip", 60, 2),
+        SEARCH("search", 20, 5),
+        REPORTS("reports", 5, 0.5),
+        WRITES("writes", 30, 10),
+        DEFAULT("default", 60, 20);
+
+        private final String key;
+        private final int defaultCapacity;
+        private final double defaultRefillPerSecond;
+
+        Group(String key, int defaultCapacity, double defaultRefillPerSecond) {
+            this.key = key;
+            this.defaultCapacity = defaultCapacity;
+            this.defaultRefillPerSecond = defaultRefillPerSecond;
+        }
+    }
+
+    private record Limit(int capacity, double tokensPerNano) {
+        long nanosToFill() {
+            return (long) (capacity / tokensPerNano);
+        }
+    }
+
+    // Login and refresh bodies are tiny; anything larger is throttled by address only
+    private static final int MAX_AUTH_BODY_BYTES = 8192;
+
+    private record BucketState(double tokens, long refilledAt) {}
+
+    private static final class Bucket {
+        private final AtomicReference<BucketState> state;
+
+        Bucket(Limit limit, long now) {
+            this.state = new AtomicReference<>(new BucketState(limit.capacity(), now));
+        }
+
+        /** Takes one token; returns 0 when granted, otherwise the nanos until one is available. */
+        long tryConsume(Limit limit, long now) {
+            while (true) {
+                BucketState current = state.get();
+                double tokens = Math.min(limit.capacity(),
+                        current.tokens() + (now - current.refilledAt()) * limit.tokensPerNano());
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / limit.tokensPerNano());
+                }
+                if (state.compareAndSet(current, new BucketState(tokens - 1, now))) {
+                    return 0;
+                }
+            }
+        }
+
+        long refilledAt() {
+            return state.get().refilledAt();
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<Group, Limit> limits = new EnumMap<>(Group.class);
+    private final Map<Group, Counter> rejections = new EnumMap<>(Group.class);
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final JwtTokenProvider tokenProvider;
+
+    public RateLimitFilter(Environment environment, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                           JwtTokenProvider tokenProvider) {
+        this.objectMapper = objectMapper;
+        this.tokenProvider = tokenProvider;
+        this.enabled = environment.getProperty("app.rate-limit.enabled", Boolean.class, true);
+        for (Group group : Group.values()) {
+            String prefix = "app.rate-limit." + group.key + ".";
+            int capacity = environment.getProperty(prefix + "capacity", Integer.class, group.defaultCapacity);
+            double perSecond = environment.getProperty(prefix + "refill-per-second", Double.class, group.defaultRefillPerSecond);
+            limits.put(group, new Limit(Math.max(1, capacity), perSecond / TimeUnit.SECONDS.toNanos(1)));
+            rejections.put(group, Counter.builder("hms.ratelimit.rejected").tag("group", group.key)
+                    .description("Requests rejected by the rate limiter").register(meterRegistry));
+        }
+        Gauge.builder("hms.ratelimit.buckets", buckets, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || HttpMethod.OPTIONS.matches(request.getMethod())
+                || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Group group = classify(request);
+        if (group == Group.AUTH) {
+            if (!admit(Group.AUTH_ORIGIN, "ip" + request.getRemoteAddr(), response)) return;
+            BufferedBodyRequest buffered = BufferedBodyRequest.wrap(request);
+            if (buffered != null) request = buffered;
+            if (!admit(group, authKey(request, buffered), response)) return;
+        } else if (!admit(group, clientKey(request), response)) {
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /** Takes a token from the client's bucket for {@code group}, or writes the 429 and returns false. */
+    private boolean admit(Group group, String clientKey, HttpServletResponse response) throws IOException {
+        Limit limit = limits.get(group);
+        long now = System.nanoTime();
+        long waitNanos = buckets.computeIfAbsent(group.key + ":" + clientKey, k -> new Bucket(limit, now))
+                .tryConsume(limit, now);
+        if (waitNanos > 0) {
+            rejections.get(group).increment();
+            reject(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+            return false;
+        }
+        return true;
+    }
+
+    /** Drops buckets that have been idle long enough to be full again. */
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.entrySet().removeIf(entry -> {
+            Limit limit = limits.get(groupOf(entry.getKey()));
+            return now - entry.getValue().refilledAt() > limit.nanosToFill();
+        });
+        int evicted = before - buckets.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate-limit buckets, {} remain", evicted, buckets.size());
+        }
+    }
+
+    private Group classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/")) return Group.AUTH;
+        if (path.startsWith("/api/reports/")) return Group.REPORTS;
+        if (!HttpMethod.GET.matches(request.getMethod())) return Group.WRITES;
+        if (path.contains("/search")) return Group.SEARCH;
+        return Group.DEFAULT;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return "u" + user.id();
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+
+    /** The account an auth request targets and the client IP, or the client IP alone when the body names none. */
+    private String authKey(HttpServletRequest request, BufferedBodyRequest buffered) {
+        if (buffered != null) {
+            try {
+                JsonNode body = objectMapper.readTree(buffered.body);
+                String path = request.getRequestURI();
+                String account = switch (path) {
+                    case "/api/auth/login" -> body.path("email").asText(null);
+                    case "/api/auth/refresh" -> refreshSubject(body.path("refreshToken").asText(null));
+                    default -> null;
+                };
+                if (account != null && !account.isBlank()) {
+                    String kind = path.endsWith("/refresh") ? "refresh" : "login";
+                    return kind + "/acct" + account.trim().toLowerCase(Locale.ROOT) + "/ip" + request.getRemoteAddr();
+                }
+            } catch (IOException e) {
+                // Malformed body: the controller rejects it, throttled by address meanwhile
+            }
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+
+    private String refreshSubject(String refreshToken) {
+        Claims claims = refreshToken != null ? tokenProvider.parseClaims(refreshToken) : null;
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    private Group groupOf(String bucketKey) {
+        String groupKey = bucketKey.substring(0, bucketKey.indexOf(':'));
+        for (Group group : Group.values()) {
+            if (group.key.equals(groupKey)) return group;
+        }
+        return Group.DEFAULT;
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now().toString());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("message", "Too many requests, please slow down");
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /** Holds a small request body in memory so it can be read here and again by the controller. */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        static BufferedBodyRequest wrap(HttpServletRequest request) throws IOException {
+            long length = request.getContentLengthLong();
+            if (!HttpMethod.POST.matches(request.getMethod()) || length < 0 || length > MAX_AUTH_BODY_BYTES) {
+                return null;
+            }
+            return new BufferedBodyRequest(request, request.getInputStream().readNBytes((int) length));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is already in memory, so it is available at once and then exhausted
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
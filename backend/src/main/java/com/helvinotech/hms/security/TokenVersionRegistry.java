@@ -0,0 +1,80 @@
+package com.helvinotech.hms.security;
+
+import com.helvinotech.hms.event.UserChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current token version per user, used to revoke issued tokens without a database lookup per request.
+ * Seeded from the users table, updated immediately from local user changes and refreshed incrementally
+ * (rows touched since the last refresh) to pick up changes made by other instances. Versions only move
+ * forward, so a late refresh can never resurrect a revoked token.
+ */
+@Component
+@Slf4j
+public class TokenVersionRegistry {
+
+    // Re-read a margin behind the watermark so rows stamped by a node with a slightly slow clock are not missed
+    private static final long OVERLAP_MS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+    private volatile Timestamp watermark;
+
+    public TokenVersionRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A token newer than the version known here was issued by another instance after a change this one has
+     * not refreshed yet, so it is accepted; only tokens older than the known version are revoked. Users
+     * created on another instance since the last refresh are unknown here and still at version 0.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        if (watermark == null) {
+            refresh();
+        }
+        return tokenVersion >= versions.getOrDefault(userId, 0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        versions.merge(event.userId(), event.tokenVersion(), Math::max);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.token-version-refresh-ms:15000}")
+    public synchronized void refresh() {
+        Timestamp since = watermark;
+        Timestamp[] latest = {since};
+        String sql = "SELECT id, token_version, updated_at FROM users" + (since != null ? " WHERE updated_at >= ?" : "");
+        Object[] args = since != null ? new Object[]{new Timestamp(since.getTime() - OVERLAP_MS)} : new Object[0];
+        int[] rows = {0};
+        jdbcTemplate.query(sql, rs -> {
+            versions.merge(rs.getLong("id"), rs.getInt("token_version"), Math::max);
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            if (updatedAt != null && (latest[0] == null || updatedAt.after(latest[0]))) {
+                latest[0] = updatedAt;
+            }
+            rows[0]++;
+        }, args);
+        watermark = latest[0] != null ? latest[0] : new Timestamp(0);
+        if (since == null) {
+            log.info("Token versions seeded for {} users", rows[0]);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
@@ -27,6 +28,7 @@ public class AppointmentService {
     private final AppointmentRepository appointmentRepository;
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
+    private final OperationalCounters operationalCounters;
 
     @Transactional(readOnly = false)
     public AppointmentDTO createAppointment(AppointmentDTO dto) {
@@ -46,6 +48,7 @@ public class AppointmentService {
                 .walkIn(dto.isWalkIn())
                 .build();
         apt = appointmentRepository.save(apt);
+        operationalCounters.appointmentStatusChanged(apt.getAppointmentDate(), null, apt.getStatus());
         return mapToDto(apt);
     }
 
@@ -71,12 +74,14 @@ public class AppointmentService {
     public AppointmentDTO updateStatus(Long id, AppointmentStatus status) {
         Appointment apt = appointmentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment", id));
+        operationalCounters.appointmentStatusChanged(apt.getAppointmentDate(), apt.getStatus(), status);
         apt.setStatus(status);
         return mapToDto(appointmentRepository.save(apt));
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countTodayAppointments() {
-        return appointmentRepository.countByAppointmentDateAndStatus(LocalDate.now(), AppointmentStatus.SCHEDULED);
+        return operationalCounters.get(OperationalCounters.Counter.APPOINTMENTS_TODAY);
     }
 
     public Page<AppointmentDTO> getAllAppointments(Pageable pageable) {
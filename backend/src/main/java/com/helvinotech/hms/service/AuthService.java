@@ -4,12 +4,16 @@ import com.helvinotech.hms.dto.AuthRequest;
 import com.helvinotech.hms.dto.AuthResponse;
 import com.helvinotech.hms.entity.User;
 import com.helvinotech.hms.repository.UserRepository;
+import com.helvinotech.hms.security.AuthenticatedUser;
 import com.helvinotech.hms.security.JwtTokenProvider;
+import com.helvinotech.hms.security.TokenVersionRegistry;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -20,16 +24,19 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
     private final UserRepository userRepository;
+    private final TokenVersionRegistry tokenVersions;
 
+    // No surrounding transaction: the user lookup commits on its own, so no pooled connection is held
+    // while the password is verified on the hashing pool
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthResponse login(AuthRequest request) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
         );
 
-        String token = tokenProvider.generateToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(request.getEmail());
-
-        User user = userRepository.findByEmail(request.getEmail()).orElseThrow();
+        User user = (User) authentication.getPrincipal();
+        String token = tokenProvider.generateToken(user);
+        String refreshToken = tokenProvider.generateRefreshToken(user);
 
         return AuthResponse.builder()
                 .token(token)
@@ -42,14 +49,16 @@ public class AuthService {
     }
 
     public AuthResponse refreshToken(String refreshToken) {
-        if (!tokenProvider.validateToken(refreshToken)) {
+        Claims claims = refreshToken != null ? tokenProvider.parseClaims(refreshToken) : null;
+        AuthenticatedUser principal = claims != null ? tokenProvider.toAuthenticatedUser(claims) : null;
+        if (principal == null || !tokenVersions.isCurrent(principal.id(), principal.tokenVersion())) {
             throw new RuntimeException("Invalid refresh token");
         }
-        String username = tokenProvider.getUsernameFromToken(refreshToken);
-        String newToken = tokenProvider.generateToken(username);
-        String newRefreshToken = tokenProvider.generateRefreshToken(username);
-
-        User user = userRepository.findByEmail(username).orElseThrow();
+        User user = userRepository.findById(principal.id())
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        String newToken = tokenProvider.generateToken(user);
+        String newRefreshToken = tokenProvider.generateRefreshToken(user);
 
         return AuthResponse.builder()
                 .token(newToken)
@@ -0,0 +1,318 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.BedBoardSnapshot;
+import com.helvinotech.hms.dto.BedBoardUpdate;
+import com.helvinotech.hms.dto.BedDTO;
+import com.helvinotech.hms.dto.WardDTO;
+import com.helvinotech.hms.dto.WardOccupancyDTO;
+import com.helvinotech.hms.enums.BedStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.BeanUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory ward -> room -> bed board for lock-free reads. Each bed holds its (status, version) in an
+ * AtomicReference; transitions committed by WardService are applied after commit and a state only ever
+ * replaces one with a lower version, so late or reordered notifications and reloads cannot move a bed
+ * backwards. Each ward also keeps the ids of its beds per status, so occupancy summaries are set sizes and
+ * a filtered bed list costs only the beds it returns. Writers to one bed are serialised on that bed;
+ * readers take no locks, and a summary read mid-transition may be off by one for that instant.
+ * <p>
+ * Changes are pushed over SSE to the ward's channel and to the all-wards channel (the admissions desk).
+ * A stream opens with a snapshot; clients apply an update only if its bed version is newer than theirs.
+ * Sends are queued in event-version order and written by a background sender, so a slow ward screen
+ * never holds up the admission or discharge that committed the change.
+ * The database compare-and-set stays the authority for allocation, and WardService reloads the board at
+ * startup and periodically to pick up direct SQL changes.
+ * <p>
+ * Each ward also has a revision, bumped by any change to its beds, rooms, admissions or to an occupant's
+ * details shown on the ward, from which the ward hierarchy ETag is built without touching the database.
+ * Every reload starts a new generation, so changes the service paths do not see (direct SQL) reach cached
+ * clients within one reload interval.
+ */
+@Component
+public class BedBoard {
+
+    private static final Long ALL_WARDS = 0L;
+
+    public record State(BedStatus status, long version) {}
+
+    private static final class Slot {
+        volatile BedDTO bed;   // descriptive fields; status and version are taken from state
+        final AtomicReference<State> state;
+
+        Slot(BedDTO bed) {
+            this.bed = bed;
+            this.state = new AtomicReference<>(new State(bed.getStatus(), bed.getVersion()));
+        }
+    }
+
+    private static final class WardNode {
+        volatile WardDTO ward;
+        final Map<BedStatus, Set<Long>> bedsByStatus = new EnumMap<>(BedStatus.class);
+        final AtomicLong revision = new AtomicLong();
+
+        WardNode(WardDTO ward) {
+            this.ward = ward;
+            for (BedStatus status : BedStatus.values()) {
+                bedsByStatus.put(status, ConcurrentHashMap.newKeySet());
+            }
+        }
+
+        int count(BedStatus status) {
+            return bedsByStatus.get(status).size();
+        }
+    }
+
+    // Versions restart with the process; the epoch keeps event ids from an earlier run apart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    private final Map<Long, WardNode> wards = new ConcurrentHashMap<>();
+    private final SseChannels<Long> channels = new SseChannels<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final SseOutbox outbox = new SseOutbox(sender);
+
+    // Reads
+
+    /** Beds of active wards, optionally narrowed to one ward and/or one status, in ward, room, bed order. */
+    public List<BedDTO> getBeds(Long wardId, BedStatus status) {
+        List<BedDTO> beds = new ArrayList<>();
+        for (WardNode node : wardId != null ? nodes(wardId) : wards.values()) {
+            if (!node.ward.isActive()) continue;
+            for (BedStatus s : status != null ? EnumSet.of(status) : EnumSet.allOf(BedStatus.class)) {
+                for (Long bedId : node.bedsByStatus.get(s)) {
+                    Slot slot = slots.get(bedId);
+                    if (slot != null) beds.add(copy(slot.bed, slot.state.get()));
+                }
+            }
+        }
+        beds.sort(Comparator.comparing(BedDTO::getWardName, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(BedDTO::getRoomNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(BedDTO::getBedNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+        return beds;
+    }
+
+    public List<WardOccupancyDTO> getOccupancy() {
+        return wards.values().stream().filter(node -> node.ward.isActive()).map(BedBoard::occupancy)
+                .sorted(Comparator.comparing(WardOccupancyDTO::getWardName, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    public WardOccupancyDTO getOccupancy(Long wardId) {
+        WardNode node = wards.get(wardId);
+        return node != null ? occupancy(node) : null;
+    }
+
+    /** Weak ETag for the ward's hierarchy; read it before the data so a racing change only costs a refetch. */
+    public String etag(Long wardId) {
+        WardNode node = wards.get(wardId);
+        if (node == null) return null;
+        return "W/\"" + epoch + "-" + generation.get() + "-" + node.revision.get() + "\"";
+    }
+
+    // Writes
+
+    /** Records a committed transition; a no-op if the board already holds this version or a later one. */
+    public void transitioned(Long bedId, BedStatus to, long version) {
+        afterCommit(() -> {
+            Slot slot = slots.get(bedId);
+            if (slot != null && advance(slot, slot.bed, new State(to, version))) {
+                publish(slot);
+            }
+        });
+    }
+
+    public void added(BedDTO bed) {
+        afterCommit(() -> {
+            Slot slot = new Slot(bed);
+            if (slots.putIfAbsent(bed.getId(), slot) == null) {
+                index(slot);
+                publish(slot);
+            }
+        });
+    }
+
+    public void wardChanged(WardDTO ward) {
+        afterCommit(() -> {
+            WardNode node = wards.computeIfAbsent(ward.getId(), id -> new WardNode(ward));
+            node.ward = ward;
+            node.revision.incrementAndGet();
+        });
+    }
+
+    /**
+     * For changes that do not move a bed, such as a new room, an admission ended on a bed not OCCUPIED or
+     * an edit to an admitted patient.
+     */
+    public void wardTouched(Long wardId) {
+        afterCommit(() -> {
+            WardNode node = wards.get(wardId);
+            if (node != null) node.revision.incrementAndGet();
+        });
+    }
+
+    /** Merges a full read from the database; bed states only advance. */
+    public void reload(Collection<WardDTO> allWards, Collection<BedDTO> beds) {
+        generation.incrementAndGet();
+        for (WardDTO ward : allWards) {
+            wards.computeIfAbsent(ward.getId(), id -> new WardNode(ward)).ward = ward;
+        }
+        for (BedDTO bed : beds) {
+            Slot created = new Slot(bed);
+            Slot slot = slots.computeIfAbsent(bed.getId(), id -> created);
+            if (slot == created) {
+                index(slot);
+            } else if (advance(slot, bed, new State(bed.getStatus(), bed.getVersion()))) {
+                publish(slot);
+            }
+        }
+    }
+
+    // Streams
+
+    /** {@code wardId} null subscribes to every ward, with available beds only in the opening snapshot. */
+    public SseEmitter subscribe(Long wardId) {
+        Long key = wardId != null ? wardId : ALL_WARDS;
+        SseEmitter emitter;
+        // Queued under the same lock as updates, so the snapshot goes out before any update after it
+        synchronized (outbox) {
+            emitter = channels.subscribe(key);
+            long current = version.get();
+            BedBoardSnapshot snapshot = wardId != null
+                    ? new BedBoardSnapshot(current, nodes(wardId).stream().map(BedBoard::occupancy).toList(), getBeds(wardId, null))
+                    : new BedBoardSnapshot(current, getOccupancy(), getBeds(null, BedStatus.AVAILABLE));
+            outbox.add(() -> channels.send(key, emitter, SseEmitter.event().id(eventId(current)).name("snapshot").data(snapshot)));
+        }
+        outbox.flush();
+        return emitter;
+    }
+
+    @Scheduled(fixedDelay = 20000)
+    public void heartbeat() {
+        channels.heartbeat();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void publish(Slot slot) {
+        synchronized (outbox) {
+            BedDTO bed = copy(slot.bed, slot.state.get());
+            WardNode node = wards.get(bed.getWardId());
+            BedBoardUpdate update = new BedBoardUpdate(version.incrementAndGet(), bed, node != null ? occupancy(node) : null);
+            outbox.add(() -> {
+                channels.broadcast(bed.getWardId(), () -> updateEvent(update));
+                channels.broadcast(ALL_WARDS, () -> updateEvent(update));
+            });
+        }
+        outbox.flush();
+    }
+
+    /**
+     * Moves the bed to {@code next} if that is a later version, keeping the ward status sets in step.
+     * Returns whether anything changed.
+     */
+    private boolean advance(Slot slot, BedDTO bed, State next) {
+        synchronized (slot) {
+            State current = slot.state.get();
+            Long oldWardId = slot.bed.getWardId();
+            boolean moved = !Objects.equals(oldWardId, bed.getWardId());
+            boolean newer = next.version() > current.version();
+            if (!newer && !moved) {
+                slot.bed = bed;
+                return false;
+            }
+            State target = newer ? next : current;
+            WardNode oldNode = wards.get(oldWardId);
+            if (oldNode != null) {
+                oldNode.bedsByStatus.get(current.status()).remove(bed.getId());
+                oldNode.revision.incrementAndGet();
+            }
+            slot.bed = bed;
+            slot.state.set(target);
+            WardNode newNode = node(bed);
+            newNode.bedsByStatus.get(target.status()).add(bed.getId());
+            newNode.revision.incrementAndGet();
+            return true;
+        }
+    }
+
+    /** Adds a newly created slot to its ward's status set, under its lock in case a transition got there first. */
+    private void index(Slot slot) {
+        synchronized (slot) {
+            WardNode node = node(slot.bed);
+            node.bedsByStatus.get(slot.state.get().status()).add(slot.bed.getId());
+            node.revision.incrementAndGet();
+        }
+    }
+
+    private WardNode node(BedDTO bed) {
+        return wards.computeIfAbsent(bed.getWardId(), id -> {
+            WardDTO ward = new WardDTO();
+            ward.setId(id);
+            ward.setName(bed.getWardName());
+            ward.setActive(true);
+            return new WardNode(ward);
+        });
+    }
+
+    private List<WardNode> nodes(Long wardId) {
+        WardNode node = wards.get(wardId);
+        return node != null ? List.of(node) : List.of();
+    }
+
+    private static WardOccupancyDTO occupancy(WardNode node) {
+        int available = node.count(BedStatus.AVAILABLE);
+        int occupied = node.count(BedStatus.OCCUPIED);
+        int reserved = node.count(BedStatus.RESERVED);
+        int cleaning = node.count(BedStatus.CLEANING);
+        int maintenance = node.count(BedStatus.MAINTENANCE);
+        int total = available + occupied + reserved + cleaning + maintenance;
+        return new WardOccupancyDTO(node.ward.getId(), node.ward.getName(), node.ward.getType(), total,
+                available, occupied, reserved, cleaning, maintenance, total > 0 ? (double) occupied / total * 100 : 0);
+    }
+
+    private static BedDTO copy(BedDTO bed, State state) {
+        BedDTO dto = new BedDTO();
+        BeanUtils.copyProperties(bed, dto);
+        dto.setStatus(state.status());
+        dto.setVersion(state.version());
+        return dto;
+    }
+
+    private SseEmitter.SseEventBuilder updateEvent(BedBoardUpdate update) {
+        return SseEmitter.event().id(eventId(update.getVersion())).name("bed").data(update);
+    }
+
+    private String eventId(long version) {
+        return epoch + ":" + version;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
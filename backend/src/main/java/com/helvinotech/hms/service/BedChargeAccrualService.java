@@ -0,0 +1,268 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.enums.DocumentType;
+import com.helvinotech.hms.enums.FinancialMetric;
+import com.helvinotech.hms.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Turns inpatient stays into billing items: one "Bed" item per ADMITTED admission per day, at the bed's
+ * daily charge, on the open (PENDING or PARTIAL) invoice for the admission's visit, or a new one. A day is
+ * charged if the patient is still admitted when the job runs for it, so the nightly run charges the day
+ * that just ended, and each run also fills in the preceding catch-up days for nights that were missed.
+ * <p>
+ * Admissions are walked in id order, a page per transaction. Each charge date has its own checkpoint row;
+ * a page continues after the last admission id recorded there and advances it in the same commit as the
+ * items, so a run stopped part way resumes where it left off. Pages of all runs are serialised on a
+ * transaction-level advisory lock, so a manual run for one date and the nightly run for another take
+ * turns page by page without touching each other's progress, and neither raises a second invoice for a
+ * visit the other has just invoiced. Every item carries a unique accrual key (admission and day) and is
+ * inserted with ON CONFLICT DO NOTHING, so re-running a day, even from scratch, never charges it twice.
+ */
+@Service
+@Slf4j
+public class BedChargeAccrualService {
+
+    static final String JOB_NAME = "bed-charge-accrual";
+    // Completed checkpoints are kept this long, for looking back at recent runs
+    private static final int CHECKPOINT_RETENTION_DAYS = 60;
+    static final String SERVICE_TYPE = "Bed";
+
+    private static final String PAGE_SQL =
+            "SELECT a.id, a.patient_id, a.visit_id, CAST(COALESCE(a.admitted_at, a.created_at) AS date) AS admitted_on, " +
+            "b.daily_charge, b.bed_number, r.room_number, w.name AS ward_name " +
+            "FROM admissions a JOIN beds b ON b.id = a.bed_id JOIN rooms r ON r.id = b.room_id JOIN wards w ON w.id = r.ward_id " +
+            "WHERE a.status = 'ADMITTED' AND a.id > :after ORDER BY a.id LIMIT :limit";
+
+    // Latest open invoice of each admission's visit; admissions without a visit use the patient's visitless invoices
+    private static final String OPEN_BILLINGS_SQL =
+            "SELECT DISTINCT ON (a.id) a.id AS admission_id, bl.id, bl.created_at FROM admissions a " +
+            "JOIN billings bl ON bl.patient_id = a.patient_id AND bl.visit_id IS NOT DISTINCT FROM a.visit_id " +
+            "AND bl.status IN ('PENDING', 'PARTIAL') WHERE a.id IN (:ids) ORDER BY a.id, bl.created_at DESC, bl.id DESC";
+
+    private static final String INSERT_ITEM =
+            "INSERT INTO billing_items (billing_id, service_type, description, quantity, unit_price, total_price, accrual_key) " +
+            "VALUES (?, ?, ?, 1, ?, ?, ?) ON CONFLICT (accrual_key) DO NOTHING";
+
+    private record Stay(long admissionId, long patientId, Long visitId, LocalDate admittedOn,
+                        BigDecimal dailyCharge, String bed) {}
+
+    private record Charge(Stay stay, LocalDate day, String key) {}
+
+    private record Invoice(long id, LocalDate createdOn) {}
+
+    private record PageResult(boolean done, int admissions, int itemsAdded, BigDecimal amount) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate newTransaction;
+    private final DocumentNumberService documentNumberService;
+    private final FinancialFactService financialFactService;
+    private final int pageSize;
+    private final int catchUpDays;
+
+    public BedChargeAccrualService(NamedParameterJdbcTemplate jdbc,
+                                   PlatformTransactionManager transactionManager,
+                                   DocumentNumberService documentNumberService,
+                                   FinancialFactService financialFactService,
+                                   @Value("${app.billing.bed-charges.page-size:200}") int pageSize,
+                                   @Value("${app.billing.bed-charges.catch-up-days:7}") int catchUpDays) {
+        this.jdbc = jdbc;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.documentNumberService = documentNumberService;
+        this.financialFactService = financialFactService;
+        this.pageSize = Math.max(1, pageSize);
+        this.catchUpDays = Math.max(1, catchUpDays);
+    }
+
+    /**
+     * Charges the day that just ended; at startup this also resumes that day's run if a crash cut it
+     * short. Days before it left unfinished are filled in by the catch-up window of later runs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.billing.bed-charges.cron:0 15 0 * * *}")
+    public void accrueYesterday() {
+        accrue(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Runs the accrual for a day requested by hand. Only days that have ended can be charged: a run for
+     * today would complete the day's checkpoint early and leave admissions later in the day uncharged.
+     */
+    public Map<String, Object> accrueEndedDay(LocalDate chargeDate) {
+        if (!chargeDate.isBefore(LocalDate.now())) {
+            throw new BadRequestException("Bed charges can only be accrued for days that have ended");
+        }
+        return accrue(chargeDate);
+    }
+
+    /**
+     * Runs the accrual for {@code chargeDate}, resuming from that date's checkpoint if a run for it was
+     * interrupted. A run already completed for that date returns straight away.
+     */
+    public Map<String, Object> accrue(LocalDate chargeDate) {
+        if (chargeDate.isAfter(LocalDate.now())) {
+            throw new BadRequestException("Cannot accrue bed charges for a future date");
+        }
+        long started = System.currentTimeMillis();
+        String checkpoint = checkpointName(chargeDate);
+        jdbc.getJdbcTemplate().update(
+                "INSERT INTO job_checkpoints (job_name, run_date, last_id, updated_at) VALUES (?, ?, 0, now()) " +
+                "ON CONFLICT (job_name) DO NOTHING", checkpoint, Date.valueOf(chargeDate));
+        jdbc.getJdbcTemplate().update(
+                "DELETE FROM job_checkpoints WHERE job_name LIKE ? AND completed_at < ?",
+                JOB_NAME + ":%", Timestamp.valueOf(LocalDateTime.now().minusDays(CHECKPOINT_RETENTION_DAYS)));
+
+        int pages = 0, admissions = 0, items = 0;
+        BigDecimal amount = BigDecimal.ZERO;
+        PageResult page;
+        do {
+            page = newTransaction.execute(status -> accruePage(checkpoint, chargeDate));
+            if (page.admissions() > 0) pages++;
+            admissions += page.admissions();
+            items += page.itemsAdded();
+            amount = amount.add(page.amount());
+        } while (!page.done());
+
+        long elapsed = System.currentTimeMillis() - started;
+        if (items > 0 || admissions > 0) {
+            log.info("Bed charges for {}: {} admissions in {} pages, {} items totalling {} in {} ms",
+                    chargeDate, admissions, pages, items, amount, elapsed);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("chargeDate", chargeDate);
+        summary.put("admissionsScanned", admissions);
+        summary.put("itemsAdded", items);
+        summary.put("amountAdded", amount);
+        summary.put("elapsedMs", elapsed);
+        return summary;
+    }
+
+    /** Checkpoint row of the run for one charge date. */
+    static String checkpointName(LocalDate chargeDate) {
+        return JOB_NAME + ":" + chargeDate;
+    }
+
+    private PageResult accruePage(String checkpointName, LocalDate chargeDate) {
+        // Held to commit; one page of any run at a time
+        jdbc.getJdbcTemplate().queryForObject("SELECT pg_advisory_xact_lock(hashtext(?))", Object.class, JOB_NAME);
+        Map<String, Object> checkpoint = jdbc.getJdbcTemplate().queryForMap(
+                "SELECT last_id, completed_at FROM job_checkpoints WHERE job_name = ?", checkpointName);
+        if (checkpoint.get("completed_at") != null) return new PageResult(true, 0, 0, BigDecimal.ZERO);
+        long after = ((Number) checkpoint.get("last_id")).longValue();
+
+        List<Stay> stays = jdbc.query(PAGE_SQL, new MapSqlParameterSource("after", after).addValue("limit", pageSize),
+                (rs, i) -> new Stay(rs.getLong("id"), rs.getLong("patient_id"), (Long) rs.getObject("visit_id"),
+                        rs.getDate("admitted_on").toLocalDate(), rs.getBigDecimal("daily_charge"),
+                        rs.getString("ward_name") + " / Room " + rs.getString("room_number") + " / Bed " + rs.getString("bed_number")));
+        if (stays.isEmpty()) {
+            saveCheckpoint(checkpointName, after, true);
+            return new PageResult(true, 0, 0, BigDecimal.ZERO);
+        }
+
+        List<Charge> charges = pendingCharges(stays, chargeDate);
+        int added = 0;
+        BigDecimal amount = BigDecimal.ZERO;
+        if (!charges.isEmpty()) {
+            Map<Long, Invoice> invoices = openInvoices(charges);
+            List<Object[]> rows = new ArrayList<>(charges.size());
+            for (Charge c : charges) {
+                BigDecimal price = c.stay().dailyCharge();
+                rows.add(new Object[]{invoices.get(c.stay().admissionId()).id(), SERVICE_TYPE,
+                        "Bed charge " + c.day() + " - " + c.stay().bed(), price, price, c.key()});
+            }
+            int[] counts = jdbc.getJdbcTemplate().batchUpdate(INSERT_ITEM, rows);
+
+            Map<Invoice, BigDecimal> billed = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                Charge c = charges.get(i);
+                billed.merge(invoices.get(c.stay().admissionId()), c.stay().dailyCharge(), BigDecimal::add);
+                added++;
+                amount = amount.add(c.stay().dailyCharge());
+            }
+            if (!billed.isEmpty()) {
+                jdbc.getJdbcTemplate().batchUpdate(
+                        "UPDATE billings b SET total_amount = (SELECT COALESCE(SUM(i.total_price), 0) FROM billing_items i " +
+                        "WHERE i.billing_id = b.id), updated_at = now() WHERE b.id = ?",
+                        billed.keySet().stream().map(inv -> new Object[]{inv.id()}).toList());
+                billed.forEach((inv, total) ->
+                        financialFactService.record(FinancialMetric.BILLED, inv.createdOn(), SERVICE_TYPE, total));
+            }
+        }
+        saveCheckpoint(checkpointName, stays.get(stays.size() - 1).admissionId(), false);
+        return new PageResult(false, stays.size(), added, amount);
+    }
+
+    /** Days from the catch-up window (not before admission) that have no bed charge yet. */
+    private List<Charge> pendingCharges(List<Stay> stays, LocalDate chargeDate) {
+        LocalDate windowStart = chargeDate.minusDays(catchUpDays - 1L);
+        List<Charge> candidates = new ArrayList<>();
+        for (Stay stay : stays) {
+            if (stay.dailyCharge() == null || stay.dailyCharge().signum() <= 0) continue;
+            LocalDate from = stay.admittedOn().isAfter(windowStart) ? stay.admittedOn() : windowStart;
+            for (LocalDate day = from; !day.isAfter(chargeDate); day = day.plusDays(1)) {
+                candidates.add(new Charge(stay, day, "BED-" + stay.admissionId() + "-" + day));
+            }
+        }
+        if (candidates.isEmpty()) return candidates;
+        Set<String> existing = new HashSet<>(jdbc.queryForList(
+                "SELECT accrual_key FROM billing_items WHERE accrual_key IN (:keys)",
+                new MapSqlParameterSource("keys", candidates.stream().map(Charge::key).toList()), String.class));
+        return candidates.stream().filter(c -> !existing.contains(c.key())).toList();
+    }
+
+    /** The invoice each charged admission bills to, raising one where the visit has none open. */
+    private Map<Long, Invoice> openInvoices(List<Charge> charges) {
+        Map<Long, Stay> stays = new LinkedHashMap<>();
+        charges.forEach(c -> stays.putIfAbsent(c.stay().admissionId(), c.stay()));
+        Map<Long, Invoice> invoices = new HashMap<>();
+        jdbc.query(OPEN_BILLINGS_SQL, new MapSqlParameterSource("ids", stays.keySet()), rs -> {
+            invoices.put(rs.getLong("admission_id"),
+                    new Invoice(rs.getLong("id"), rs.getTimestamp("created_at").toLocalDateTime().toLocalDate()));
+        });
+
+        // Two admissions of one visit share the invoice raised for the first
+        Map<List<Long>, Invoice> raised = new HashMap<>();
+        for (Stay stay : stays.values()) {
+            if (invoices.containsKey(stay.admissionId())) continue;
+            List<Long> owner = Arrays.asList(stay.patientId(), stay.visitId());
+            invoices.put(stay.admissionId(), raised.computeIfAbsent(owner, o -> createInvoice(stay)));
+        }
+        return invoices;
+    }
+
+    private Invoice createInvoice(Stay stay) {
+        LocalDateTime now = LocalDateTime.now();
+        Long id = jdbc.getJdbcTemplate().queryForObject(
+                "INSERT INTO billings (invoice_number, patient_id, visit_id, total_amount, paid_amount, " +
+                "insurance_covered_amount, status, created_at, updated_at) VALUES (?, ?, ?, 0, 0, 0, 'PENDING', ?, ?) RETURNING id",
+                Long.class, documentNumberService.next(DocumentType.INVOICE), stay.patientId(), stay.visitId(),
+                Timestamp.valueOf(now), Timestamp.valueOf(now));
+        return new Invoice(id, now.toLocalDate());
+    }
+
+    private void saveCheckpoint(String checkpointName, long lastId, boolean completed) {
+        jdbc.getJdbcTemplate().update(
+                "UPDATE job_checkpoints SET last_id = ?, completed_at = " + (completed ? "now()" : "NULL") +
+                ", updated_at = now() WHERE job_name = ?",
+                lastId, checkpointName);
+    }
+}
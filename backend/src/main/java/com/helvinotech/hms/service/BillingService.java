@@ -2,20 +2,22 @@ package com.helvinotech.hms.service;
 
 import com.helvinotech.hms.dto.*;
 import com.helvinotech.hms.entity.*;
+import com.helvinotech.hms.enums.DocumentType;
+import com.helvinotech.hms.enums.FinancialMetric;
 import com.helvinotech.hms.enums.PaymentStatus;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.Year;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,14 +31,16 @@ public class BillingService {
     private final PatientRepository patientRepository;
     private final VisitRepository visitRepository;
     private final UserRepository userRepository;
-    private static final AtomicLong invoiceCounter = new AtomicLong(0);
+    private final DocumentNumberService documentNumberService;
+    private final OperationalCounters operationalCounters;
+    private final FinancialFactService financialFactService;
 
     @Transactional(readOnly = false)
     public BillingDTO createBilling(BillingDTO dto) {
         Patient patient = patientRepository.findById(dto.getPatientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Patient", dto.getPatientId()));
         Billing billing = Billing.builder()
-                .invoiceNumber(generateInvoiceNumber())
+                .invoiceNumber(documentNumberService.next(DocumentType.INVOICE))
                 .patient(patient)
                 .build();
         if (dto.getVisitId() != null) {
@@ -65,6 +69,19 @@ public class BillingService {
         return billingRepository.findAll(pageable).map(this::mapToDto);
     }
 
+    public CursorPage<BillingDTO> scrollBillings(String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Billing> rows = billingRepository.findPageBefore(after.createdAt(), after.id(), PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, b -> new PageCursor(b.getCreatedAt(), b.getId()), this::mapToDto);
+    }
+
+    public CursorPage<BillingDTO> scrollBillingsByStatus(PaymentStatus status, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Billing> rows = billingRepository.findPageByStatusBefore(status, after.createdAt(), after.id(),
+                PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, b -> new PageCursor(b.getCreatedAt(), b.getId()), this::mapToDto);
+    }
+
     @Transactional(readOnly = false)
     public BillingDTO addItem(Long billingId, BillingItemDTO itemDto) {
         Billing billing = billingRepository.findById(billingId)
@@ -80,6 +97,7 @@ public class BillingService {
         billing.getItems().add(item);
         recalculateTotal(billing);
         billing = billingRepository.save(billing);
+        financialFactService.record(FinancialMetric.BILLED, billing.getCreatedAt().toLocalDate(), item.getServiceType(), item.getTotalPrice());
         return mapToDto(billing);
     }
 
@@ -87,7 +105,7 @@ public class BillingService {
     public BillingDTO processPayment(PaymentDTO paymentDto) {
         Billing billing = billingRepository.findById(paymentDto.getBillingId())
                 .orElseThrow(() -> new ResourceNotFoundException("Billing", paymentDto.getBillingId()));
-        String receiptNo = "RCP-" + Year.now().getValue() + "-" + String.format("%06d", billingRepository.count());
+        String receiptNo = documentNumberService.next(DocumentType.RECEIPT);
         Payment payment = Payment.builder()
                 .billing(billing)
                 .amount(paymentDto.getAmount())
@@ -106,17 +124,20 @@ public class BillingService {
             billing.setStatus(PaymentStatus.PARTIAL);
         }
         billing = billingRepository.save(billing);
+        operationalCounters.paymentReceived(billing.getCreatedAt(), paymentDto.getAmount());
+        financialFactService.record(FinancialMetric.REVENUE, billing.getCreatedAt().toLocalDate(), FinancialFactService.ALL, paymentDto.getAmount());
+        financialFactService.record(FinancialMetric.PAYMENTS, LocalDate.now(), payment.getPaymentMethod().name(), paymentDto.getAmount());
         return mapToDto(billing);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BigDecimal getRevenueToday() {
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        return billingRepository.sumRevenueByDateRange(startOfDay, startOfDay.plusDays(1));
+        return operationalCounters.getAmount(OperationalCounters.Counter.REVENUE_TODAY_CENTS);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public BigDecimal getRevenueThisMonth() {
-        LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).toLocalDate().atStartOfDay();
-        return billingRepository.sumRevenueByDateRange(startOfMonth, LocalDateTime.now());
+        return operationalCounters.getAmount(OperationalCounters.Counter.REVENUE_MONTH_CENTS);
     }
 
     private void recalculateTotal(Billing billing) {
@@ -126,11 +147,6 @@ public class BillingService {
         billing.setTotalAmount(total);
     }
 
-    private String generateInvoiceNumber() {
-        long count = billingRepository.count() + 1 + invoiceCounter.incrementAndGet();
-        return "INV-" + Year.now().getValue() + "-" + String.format("%06d", count);
-    }
-
     private BillingDTO mapToDto(Billing b) {
         BillingDTO dto = new BillingDTO();
         dto.setId(b.getId());
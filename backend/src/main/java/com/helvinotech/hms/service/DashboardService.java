@@ -1,18 +1,23 @@
 package com.helvinotech.hms.service;
 
 import com.helvinotech.hms.dto.DashboardDTO;
-import com.helvinotech.hms.dto.DrugDTO;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Landing-page aggregate. The counts and revenue come from the in-memory operational counters without
+ * taking a connection; only the low-stock list still queries the database. The result is shared by all
+ * viewers for a short TTL, and a miss is computed once however many requests see it.
+ */
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class DashboardService {
 
     private final PatientService patientService;
@@ -22,14 +27,79 @@ public class DashboardService {
     private final LabService labService;
     private final WardService wardService;
     private final PharmacyService pharmacyService;
+    private final OperationalCounters operationalCounters;
+
+    private final long ttlNanos;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<DashboardDTO>> inFlight = new AtomicReference<>();
+
+    private record Snapshot(DashboardDTO dashboard, long computedAt) {}
+
+    public DashboardService(PatientService patientService,
+                            VisitService visitService,
+                            AppointmentService appointmentService,
+                            BillingService billingService,
+                            LabService labService,
+                            WardService wardService,
+                            PharmacyService pharmacyService,
+                            OperationalCounters operationalCounters,
+                            @Value("${app.dashboard.ttl-seconds:15}") long ttlSeconds) {
+        this.patientService = patientService;
+        this.visitService = visitService;
+        this.appointmentService = appointmentService;
+        this.billingService = billingService;
+        this.labService = labService;
+        this.wardService = wardService;
+        this.pharmacyService = pharmacyService;
+        this.operationalCounters = operationalCounters;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+    }
 
     public DashboardDTO getDashboard() {
-        long totalBeds = wardService.countTotalBeds();
-        long occupiedBeds = wardService.countOccupiedBeds();
-        long availableBeds = wardService.countAvailableBeds();
-        double occupancyRate = totalBeds > 0 ? (double) occupiedBeds / totalBeds * 100 : 0;
+        Snapshot current = snapshot.get();
+        if (current != null && System.nanoTime() - current.computedAt() < ttlNanos) {
+            return current.dashboard();
+        }
+        try {
+            return refresh().join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
 
-        List<DrugDTO> lowStockDrugs = pharmacyService.getLowStockDrugs();
+    /** Live counters straight from memory, for wallboards that refresh more often than the dashboard TTL. */
+    public Map<String, Object> getLiveCounters() {
+        return operationalCounters.snapshot();
+    }
+
+    /** Joins the refresh already in progress, or becomes the one caller that computes it. */
+    private CompletableFuture<DashboardDTO> refresh() {
+        while (true) {
+            CompletableFuture<DashboardDTO> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            CompletableFuture<DashboardDTO> mine = new CompletableFuture<>();
+            if (!inFlight.compareAndSet(null, mine)) {
+                continue;
+            }
+            try {
+                DashboardDTO dashboard = compute();
+                snapshot.set(new Snapshot(dashboard, System.nanoTime()));
+                mine.complete(dashboard);
+            } catch (Throwable t) {
+                mine.completeExceptionally(t);
+            } finally {
+                inFlight.set(null);
+            }
+            return mine;
+        }
+    }
+
+    private DashboardDTO compute() {
+        long total = wardService.countTotalBeds();
+        long occupied = wardService.countOccupiedBeds();
+        double occupancyRate = total > 0 ? (double) occupied / total * 100 : 0;
 
         return DashboardDTO.builder()
                 .patientsToday(patientService.countPatientsToday())
@@ -39,11 +109,19 @@ public class DashboardService {
                 .revenueToday(billingService.getRevenueToday())
                 .revenueThisMonth(billingService.getRevenueThisMonth())
                 .pendingLabOrders(labService.countPendingOrders())
-                .occupiedBeds(occupiedBeds)
-                .availableBeds(availableBeds)
-                .totalBeds(totalBeds)
+                .occupiedBeds(occupied)
+                .availableBeds(wardService.countAvailableBeds())
+                .totalBeds(total)
                 .bedOccupancyRate(BigDecimal.valueOf(occupancyRate).setScale(1, RoundingMode.HALF_UP).doubleValue())
-                .lowStockDrugs(lowStockDrugs)
+                .lowStockDrugs(pharmacyService.getLowStockDrugs())
                 .build();
     }
+
+    private RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException nested) {
+            return unwrap(nested);
+        }
+        return cause instanceof RuntimeException re ? re : e;
+    }
 }
@@ -0,0 +1,215 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.QueueDelta;
+import com.helvinotech.hms.dto.QueueSnapshot;
+import com.helvinotech.hms.dto.VisitDTO;
+import com.helvinotech.hms.event.VisitChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * In-memory consultation queue per doctor, maintained from committed visit changes. A doctor's queue is
+ * loaded from the database on first use and kept current afterwards, so queue screens only cost a read
+ * of this map. Every change bumps the queue version and is kept in a short delta log that reconnecting
+ * SSE clients replay from their Last-Event-ID; clients too far behind get a fresh snapshot instead.
+ * <p>
+ * Loaded queues are reconciled with the database periodically (see VisitService), which picks up visits
+ * written by another node or by direct SQL; differences go out as ordinary deltas. Sends are queued in
+ * version order under the queue lock and written to subscribers by one sender at a time on a background
+ * thread, so a slow client never holds up the request that committed the change.
+ */
+@Component
+public class DoctorQueueRegistry {
+
+    private static final int MAX_DELTAS = 256;
+    private static final Comparator<VisitDTO> QUEUE_ORDER =
+            Comparator.comparing(VisitDTO::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(VisitDTO::getId);
+
+    // Versions restart with the process; the epoch keeps event ids from an earlier run from being replayed
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, DoctorQueue> queues = new ConcurrentHashMap<>();
+    private final SseChannels<Long> channels = new SseChannels<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final class DoctorQueue {
+        private boolean loaded;
+        private long version;
+        private final Map<Long, VisitDTO> visits = new HashMap<>();
+        private final Deque<QueueDelta> deltas = new ArrayDeque<>();
+        // Version of the last event per visit since the previous reconcile, so it cannot undo newer changes
+        private final Map<Long, Long> touched = new HashMap<>();
+        private final SseOutbox outbox = new SseOutbox(sender);
+
+        private QueueSnapshot snapshot() {
+            List<VisitDTO> ordered = new ArrayList<>(visits.values());
+            ordered.sort(QUEUE_ORDER);
+            return new QueueSnapshot(version, ordered);
+        }
+    }
+
+    public QueueSnapshot snapshot(Long doctorId, Function<Long, List<VisitDTO>> loader) {
+        DoctorQueue queue = queues.computeIfAbsent(doctorId, id -> new DoctorQueue());
+        synchronized (queue) {
+            ensureLoaded(doctorId, queue, loader);
+            return queue.snapshot();
+        }
+    }
+
+    public SseEmitter subscribe(Long doctorId, String lastEventId, Function<Long, List<VisitDTO>> loader) {
+        DoctorQueue queue = queues.computeIfAbsent(doctorId, id -> new DoctorQueue());
+        SseEmitter emitter;
+        synchronized (queue) {
+            ensureLoaded(doctorId, queue, loader);
+            // Registered and queued under the lock, so the catch-up goes out before any later delta
+            emitter = channels.subscribe(doctorId);
+            List<QueueDelta> missed = deltasSince(queue, lastEventId);
+            if (missed != null) {
+                queue.outbox.add(() -> {
+                    for (QueueDelta delta : missed) {
+                        if (!channels.send(doctorId, emitter, deltaEvent(delta))) break;
+                    }
+                });
+            } else {
+                QueueSnapshot snapshot = queue.snapshot();
+                queue.outbox.add(() -> channels.send(doctorId, emitter, SseEmitter.event()
+                        .id(eventId(snapshot.getVersion())).name("snapshot").data(snapshot)));
+            }
+        }
+        queue.outbox.flush();
+        return emitter;
+    }
+
+    /**
+     * Re-reads every loaded queue through {@code loader} (doctor ids to their open visits) and applies the
+     * differences. Visits that changed while the read was in flight keep their newer in-memory state.
+     */
+    public void reconcile(Function<Set<Long>, Map<Long, List<VisitDTO>>> loader) {
+        Map<Long, Long> startedAt = new HashMap<>();
+        queues.forEach((doctorId, queue) -> {
+            synchronized (queue) {
+                if (queue.loaded) startedAt.put(doctorId, queue.version);
+            }
+        });
+        if (startedAt.isEmpty()) return;
+        Map<Long, List<VisitDTO>> current = loader.apply(startedAt.keySet());
+
+        startedAt.forEach((doctorId, started) -> {
+            DoctorQueue queue = queues.get(doctorId);
+            if (queue == null) return;
+            synchronized (queue) {
+                Map<Long, VisitDTO> open = new HashMap<>();
+                for (VisitDTO visit : current.getOrDefault(doctorId, List.of())) {
+                    open.put(visit.getId(), visit);
+                }
+                Set<Long> visitIds = new HashSet<>(queue.visits.keySet());
+                visitIds.addAll(open.keySet());
+                for (Long visitId : visitIds) {
+                    if (queue.touched.getOrDefault(visitId, 0L) > started) continue;
+                    VisitDTO visit = open.get(visitId);
+                    if (!Objects.equals(queue.visits.get(visitId), visit)) {
+                        change(doctorId, queue, visitId, visit);
+                    }
+                }
+                // Any later reconcile starts from at least this version
+                queue.touched.clear();
+            }
+            queue.outbox.flush();
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onVisitChanged(VisitChangedEvent event) {
+        VisitDTO visit = event.visit();
+        Long doctorId = visit.getDoctorId();
+        if (event.previousDoctorId() != null && !event.previousDoctorId().equals(doctorId)) {
+            apply(event.previousDoctorId(), visit.getId(), null);
+        }
+        if (doctorId != null) {
+            apply(doctorId, visit.getId(), visit.isCompleted() ? null : visit);
+        }
+    }
+
+    @Scheduled(fixedDelay = 20000)
+    public void heartbeat() {
+        channels.heartbeat();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void apply(Long doctorId, Long visitId, VisitDTO visit) {
+        DoctorQueue queue = queues.get(doctorId);
+        if (queue == null) return;
+        synchronized (queue) {
+            // Not loaded yet: the eventual load reads committed state and already includes this change
+            if (!queue.loaded) return;
+            // Recorded even when nothing changes here, so a reconcile read from before this commit is ignored
+            queue.touched.put(visitId, queue.version + 1);
+            if (visit == null && !queue.visits.containsKey(visitId)) return;
+            change(doctorId, queue, visitId, visit);
+        }
+        queue.outbox.flush();
+    }
+
+    /** Applies one change under the queue lock and queues its delta for sending. */
+    private void change(Long doctorId, DoctorQueue queue, Long visitId, VisitDTO visit) {
+        if (visit != null) {
+            queue.visits.put(visitId, visit);
+        } else {
+            queue.visits.remove(visitId);
+        }
+        QueueDelta delta = new QueueDelta(++queue.version,
+                visit != null ? QueueDelta.UPSERT : QueueDelta.REMOVE, visitId, visit);
+        queue.deltas.addLast(delta);
+        if (queue.deltas.size() > MAX_DELTAS) queue.deltas.removeFirst();
+        queue.outbox.add(() -> channels.broadcast(doctorId, () -> deltaEvent(delta)));
+    }
+
+    private void ensureLoaded(Long doctorId, DoctorQueue queue, Function<Long, List<VisitDTO>> loader) {
+        if (queue.loaded) return;
+        for (VisitDTO visit : loader.apply(doctorId)) {
+            queue.visits.put(visit.getId(), visit);
+        }
+        queue.loaded = true;
+    }
+
+    /** Deltas after the client's last seen version, or null when only a snapshot can bring it up to date. */
+    private List<QueueDelta> deltasSince(DoctorQueue queue, String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + ":")) return null;
+        long seen;
+        try {
+            seen = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (seen > queue.version) return null;
+        long oldest = queue.deltas.isEmpty() ? queue.version + 1 : queue.deltas.peekFirst().getVersion();
+        if (seen + 1 < oldest) return null;
+        List<QueueDelta> missed = new ArrayList<>();
+        for (QueueDelta delta : queue.deltas) {
+            if (delta.getVersion() > seen) missed.add(delta);
+        }
+        return missed;
+    }
+
+    private SseEmitter.SseEventBuilder deltaEvent(QueueDelta delta) {
+        return SseEmitter.event().id(eventId(delta.getVersion())).name("delta").data(delta);
+    }
+
+    private String eventId(long version) {
+        return epoch + ":" + version;
+    }
+}
@@ -0,0 +1,146 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.enums.DocumentType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Year;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out document numbers (PT-2026-000123, INV-..., RCP-..., CLM-...) from in-memory hi/lo segments.
+ * Each prefix/year pair is backed by a Postgres sequence whose increment is the block size, so one
+ * nextval reserves a whole block for this node. nextval is never rolled back, which keeps nodes from
+ * ever issuing the same number; the cost is gaps when a node restarts with part of a block unused.
+ * <p>
+ * Sequences for the current and the coming year are created at startup and daily, so issuing a number
+ * only ever draws from an existing sequence on the caller's connection. Creating one takes a second
+ * connection (its own transaction), which callers queued on a segment, each holding a connection of a
+ * small pool, could otherwise exhaust on the first invoice of a new year.
+ */
+@Service
+@Slf4j
+public class DocumentNumberService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+
+    public DocumentNumberService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.numbering.block-size:50}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public String next(DocumentType type) {
+        return next(type, Year.now().getValue());
+    }
+
+    String next(DocumentType type, int year) {
+        String sequence = sequenceName(type, year);
+        Segment segment = segments.computeIfAbsent(sequence, s -> new Segment());
+        if (segment.increment == 0) {
+            // Only if preparing it failed; never under the segment lock, where other callers wait holding connections
+            log.warn("Document sequence {} was not prepared ahead; creating it on demand", sequence);
+            segment.increment = ensureSequence(type, year, sequence);
+        }
+        long value;
+        synchronized (segment) {
+            if (segment.next > segment.limit) {
+                long hi = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+                segment.next = hi;
+                segment.limit = hi + segment.increment - 1;
+            }
+            value = segment.next++;
+        }
+        return String.format("%s-%d-%06d", type.getPrefix(), year, value);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.numbering.prepare-cron:0 0 3 * * *}")
+    public void prepareSequences() {
+        prepare(Year.now().getValue());
+    }
+
+    /** Creates (or looks up) the sequences of {@code year} and the year after for every document type. */
+    void prepare(int year) {
+        for (DocumentType type : DocumentType.values()) {
+            for (int y = year; y <= year + 1; y++) {
+                String sequence = sequenceName(type, y);
+                try {
+                    long increment = ensureSequence(type, y, sequence);
+                    segments.computeIfAbsent(sequence, s -> new Segment()).increment = increment;
+                } catch (RuntimeException e) {
+                    log.warn("Could not prepare document sequence {}: {}", sequence, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String sequenceName(DocumentType type, int year) {
+        return "doc_seq_" + type.getPrefix().toLowerCase(Locale.ROOT) + "_" + year;
+    }
+
+    private long ensureSequence(DocumentType type, int year, String sequence) {
+        Long increment = findIncrement(sequence);
+        if (increment != null) {
+            return increment;
+        }
+        // Created outside the caller's transaction so a rollback there cannot drop a sequence we already drew from
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                long start = highestIssued(type, year) + 1;
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence +
+                        " START WITH " + start + " INCREMENT BY " + blockSize);
+                log.info("Created document sequence {} starting at {}", sequence, start);
+            });
+        } catch (DataAccessException e) {
+            // Another node created it concurrently
+            log.debug("Sequence {} creation raced: {}", sequence, e.getMessage());
+        }
+        increment = findIncrement(sequence);
+        if (increment == null) {
+            throw new IllegalStateException("Document sequence " + sequence + " could not be created");
+        }
+        return increment;
+    }
+
+    private Long findIncrement(String sequence) {
+        List<Long> increments = jdbcTemplate.queryForList(
+                "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = ?",
+                Long.class, sequence);
+        return increments.isEmpty() ? null : increments.get(0);
+    }
+
+    // Numbers issued before the allocator existed must not be handed out again
+    private long highestIssued(DocumentType type, int year) {
+        String column = type.getColumn();
+        Long max = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(split_part(" + column + ", '-', 3) AS BIGINT)) FROM " + type.getTable() +
+                " WHERE " + column + " LIKE ? AND split_part(" + column + ", '-', 3) ~ '^[0-9]+$'",
+                Long.class, type.getPrefix() + "-" + year + "-%");
+        return max != null ? max : 0;
+    }
+
+    private static final class Segment {
+        private long next = 1;
+        private long limit = 0;
+        private volatile long increment;
+    }
+}
@@ -0,0 +1,201 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.DrugInteractionDTO;
+import com.helvinotech.hms.dto.InteractionWarningDTO;
+import com.helvinotech.hms.entity.Drug;
+import com.helvinotech.hms.entity.DrugInteraction;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.entity.Visit;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ResourceNotFoundException;
+import com.helvinotech.hms.repository.DrugInteractionRepository;
+import com.helvinotech.hms.repository.DrugRepository;
+import com.helvinotech.hms.repository.PrescriptionRepository;
+import com.helvinotech.hms.repository.VisitRepository;
+import com.helvinotech.hms.service.InteractionChecker.Medication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the drug interaction table and checks prescriptions against it and the patient's recorded
+ * allergies. A patient's active medications are their undispensed prescriptions plus anything prescribed
+ * within the active window. Whenever the table is reloaded every open prescription is re-checked in one
+ * sweep and its stored warnings rewritten where they changed.
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+public class DrugInteractionService {
+
+    private final DrugInteractionRepository interactionRepository;
+    private final DrugRepository drugRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final VisitRepository visitRepository;
+    private final InteractionChecker checker;
+    private final JdbcTemplate jdbcTemplate;
+    private final int activeDays;
+
+    public DrugInteractionService(DrugInteractionRepository interactionRepository, DrugRepository drugRepository,
+                                  PrescriptionRepository prescriptionRepository, VisitRepository visitRepository,
+                                  InteractionChecker checker, JdbcTemplate jdbcTemplate,
+                                  @Value("${app.pharmacy.interactions.active-days:30}") int activeDays) {
+        this.interactionRepository = interactionRepository;
+        this.drugRepository = drugRepository;
+        this.prescriptionRepository = prescriptionRepository;
+        this.visitRepository = visitRepository;
+        this.checker = checker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.activeDays = activeDays;
+    }
+
+    /** Checks a drug about to be prescribed on {@code visit}; the new prescription is not saved yet. */
+    public List<InteractionWarningDTO> checkNew(Visit visit, Drug drug) {
+        Patient patient = visit.getPatient();
+        List<Medication> active = prescriptionRepository
+                .findActiveMedications(patient.getId(), LocalDateTime.now().minusDays(activeDays)).stream()
+                .map(m -> new Medication(m.getId(), m.getDrugId(), m.getDrugName())).toList();
+        return checker.check(checker.current(), drug.getId(), drug.getGenericName(), drug.getBrandName(),
+                drug.getCategory(), active, patient.getAllergies());
+    }
+
+    public List<InteractionWarningDTO> check(Long visitId, Long drugId) {
+        Visit visit = visitRepository.findById(visitId)
+                .orElseThrow(() -> new ResourceNotFoundException("Visit", visitId));
+        Drug drug = drugRepository.findById(drugId)
+                .orElseThrow(() -> new ResourceNotFoundException("Drug", drugId));
+        return checkNew(visit, drug);
+    }
+
+    public List<DrugInteractionDTO> getInteractions(Long drugId) {
+        List<DrugInteraction> interactions = drugId != null
+                ? interactionRepository.findByDrugIdOrInteractingDrugId(drugId, drugId)
+                : interactionRepository.findAll();
+        Set<Long> drugIds = new HashSet<>();
+        interactions.forEach(i -> {
+            drugIds.add(i.getDrugId());
+            drugIds.add(i.getInteractingDrugId());
+        });
+        Map<Long, String> names = drugRepository.findAllById(drugIds).stream()
+                .collect(Collectors.toMap(Drug::getId, Drug::getGenericName));
+        return interactions.stream().map(i -> mapToDto(i, names)).collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = false)
+    public DrugInteractionDTO addInteraction(DrugInteractionDTO dto) {
+        long a = Math.min(dto.getDrugId(), dto.getInteractingDrugId());
+        long b = Math.max(dto.getDrugId(), dto.getInteractingDrugId());
+        if (a == b) throw new BadRequestException("A drug cannot interact with itself");
+        Map<Long, String> names = drugRepository.findAllById(List.of(a, b)).stream()
+                .collect(Collectors.toMap(Drug::getId, Drug::getGenericName));
+        if (!names.containsKey(a)) throw new ResourceNotFoundException("Drug", a);
+        if (!names.containsKey(b)) throw new ResourceNotFoundException("Drug", b);
+        if (interactionRepository.existsByDrugIdAndInteractingDrugId(a, b)) {
+            throw new BadRequestException("An interaction between these drugs is already recorded");
+        }
+        DrugInteraction saved = interactionRepository.save(DrugInteraction.builder()
+                .drugId(a)
+                .interactingDrugId(b)
+                .severity(dto.getSeverity())
+                .description(dto.getDescription())
+                .build());
+        reloadAndRecheck();
+        return mapToDto(saved, names);
+    }
+
+    @Transactional(readOnly = false)
+    public void deleteInteraction(Long id) {
+        if (!interactionRepository.existsById(id)) throw new ResourceNotFoundException("Drug interaction", id);
+        interactionRepository.deleteById(id);
+        reloadAndRecheck();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.pharmacy.interactions.reload-ms:600000}", initialDelayString = "${app.pharmacy.interactions.reload-ms:600000}")
+    @Transactional(readOnly = false)
+    public void reload() {
+        reloadAndRecheck();
+    }
+
+    /**
+     * Rebuilds the table from the database and re-checks every open prescription against it. The new
+     * table is used for the sweep straight away but only served to other checks once this commits.
+     *
+     * @return the number of prescriptions whose warnings changed
+     */
+    @Transactional(readOnly = false)
+    public int reloadAndRecheck() {
+        InteractionChecker.Table table = InteractionChecker.build(interactionRepository.findAll());
+        int changed = recheckOpenPrescriptions(table);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    checker.install(table);
+                }
+            });
+        } else {
+            checker.install(table);
+        }
+        log.debug("Interaction table loaded for {} drugs; warnings changed on {} open prescriptions", table.size(), changed);
+        return changed;
+    }
+
+    private record Row(long id, long drugId, String genericName, String brandName, String category,
+                       long patientId, String allergies, boolean dispensed, String warnings) {}
+
+    private int recheckOpenPrescriptions(InteractionChecker.Table table) {
+        // Every active medication of every patient with an open prescription, grouped by patient
+        List<Row> rows = jdbcTemplate.query(
+                "SELECT p.id, p.drug_id, d.generic_name, d.brand_name, d.category, v.patient_id, pt.allergies, " +
+                "p.dispensed, p.interaction_warnings FROM prescriptions p " +
+                "JOIN drugs d ON d.id = p.drug_id JOIN visits v ON v.id = p.visit_id JOIN patients pt ON pt.id = v.patient_id " +
+                "WHERE (p.dispensed = false OR p.created_at >= ?) AND v.patient_id IN (" +
+                "SELECT v2.patient_id FROM prescriptions p2 JOIN visits v2 ON v2.id = p2.visit_id WHERE p2.dispensed = false)",
+                (rs, i) -> new Row(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                        rs.getLong(6), rs.getString(7), rs.getBoolean(8), rs.getString(9)),
+                LocalDateTime.now().minusDays(activeDays));
+
+        List<Object[]> updates = new ArrayList<>();
+        Map<Long, List<Row>> byPatient = rows.stream().collect(Collectors.groupingBy(Row::patientId));
+        for (List<Row> medications : byPatient.values()) {
+            for (Row rx : medications) {
+                if (rx.dispensed()) continue;
+                List<Medication> others = medications.stream().filter(m -> m.id() != rx.id())
+                        .map(m -> new Medication(m.id(), m.drugId(), m.genericName())).toList();
+                String warnings = InteractionChecker.summarize(checker.check(table, rx.drugId(), rx.genericName(),
+                        rx.brandName(), rx.category(), others, rx.allergies()));
+                if (!Objects.equals(warnings, rx.warnings())) {
+                    updates.add(new Object[]{warnings, rx.id()});
+                }
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE prescriptions SET interaction_warnings = ? WHERE id = ?", updates);
+        }
+        return updates.size();
+    }
+
+    private DrugInteractionDTO mapToDto(DrugInteraction i, Map<Long, String> names) {
+        DrugInteractionDTO dto = new DrugInteractionDTO();
+        dto.setId(i.getId());
+        dto.setDrugId(i.getDrugId());
+        dto.setDrugName(names.get(i.getDrugId()));
+        dto.setInteractingDrugId(i.getInteractingDrugId());
+        dto.setInteractingDrugName(names.get(i.getInteractingDrugId()));
+        dto.setSeverity(i.getSeverity());
+        dto.setDescription(i.getDescription());
+        return dto;
+    }
+}
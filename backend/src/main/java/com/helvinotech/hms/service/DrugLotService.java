@@ -0,0 +1,223 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.DrugLotDTO;
+import com.helvinotech.hms.entity.Drug;
+import com.helvinotech.hms.entity.DrugLot;
+import com.helvinotech.hms.enums.StockMovementType;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ResourceNotFoundException;
+import com.helvinotech.hms.repository.DrugLotRepository;
+import com.helvinotech.hms.repository.DrugLotRepository.AvailableLot;
+import com.helvinotech.hms.repository.DrugRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Lot-level stock. Each receipt is a lot with its own batch, expiry and remaining quantity, and
+ * Drug.quantityInStock is kept equal to the sum of the lots by adjusting it in the same transaction
+ * as every lot change, so drug listings never aggregate lots. Allocation is first-expiry-first-out:
+ * lots are read in expiry order a page at a time from the (drug_id, expiry_date) index and taken with
+ * conditional decrements, stopping as soon as the quantity is covered.
+ * <p>
+ * Every change to existing stock updates the drug row before touching its lots. That row lock
+ * serialises stock changes per drug and gives all writers the same lock order, and it lets a shortage
+ * be detected and backed out before any lot has been changed.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Slf4j
+public class DrugLotService {
+
+    private static final int LOT_PAGE_SIZE = 8;
+    private static final int MAX_CONTENDED_PASSES = 5;
+
+    private final DrugLotRepository lotRepository;
+    private final DrugRepository drugRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StockLedgerService stockLedger;
+
+    public record Allocation(Long lotId, String batchNumber, LocalDate expiryDate, int quantity) {
+        @Override
+        public String toString() {
+            return (batchNumber != null ? batchNumber : "lot " + lotId) + " x" + quantity
+                    + (expiryDate != null ? " (exp " + expiryDate + ")" : "");
+        }
+    }
+
+    /** {@code type} is RECEIPT for deliveries and ADJUSTMENT for count corrections. */
+    @Transactional(readOnly = false)
+    public DrugLot receive(Drug drug, String batchNumber, LocalDate expiryDate, int quantity,
+                           BigDecimal costPrice, String supplier, StockMovementType type) {
+        if (quantity <= 0) throw new BadRequestException("Received quantity must be positive");
+        DrugLot lot = lotRepository.save(DrugLot.builder()
+                .drug(drug)
+                .batchNumber(batchNumber)
+                .expiryDate(expiryDate)
+                .quantityReceived(quantity)
+                .quantityRemaining(quantity)
+                .costPrice(costPrice)
+                .supplier(supplier)
+                .build());
+        stockLedger.record(drug.getId(), lot.getId(), type, quantity, batchNumber);
+        drugRepository.incrementStock(drug.getId(), quantity);
+        drugRepository.refreshNextLot(drug.getId());
+        return lot;
+    }
+
+    @Transactional(readOnly = false)
+    public DrugLotDTO receive(Long drugId, DrugLotDTO dto) {
+        Drug drug = drugRepository.findById(drugId)
+                .orElseThrow(() -> new ResourceNotFoundException("Drug", drugId));
+        return mapToDto(receive(drug, dto.getBatchNumber(), dto.getExpiryDate(), dto.getQuantityReceived(),
+                dto.getCostPrice() != null ? dto.getCostPrice() : drug.getCostPrice(),
+                dto.getSupplier() != null ? dto.getSupplier() : drug.getSupplier(), StockMovementType.RECEIPT));
+    }
+
+    /** Puts dispensed stock back into the lot it came from. */
+    @Transactional(readOnly = false)
+    public DrugLotDTO returnToLot(Long lotId, int quantity, String reference) {
+        if (quantity <= 0) throw new BadRequestException("Returned quantity must be positive");
+        DrugLot lot = lotRepository.findById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Drug lot", lotId));
+        Long drugId = lot.getDrug().getId();
+        drugRepository.incrementStock(drugId, quantity);
+        if (lotRepository.incrementRemaining(lotId, quantity) == 0) {
+            throw new BadRequestException("Cannot return more than was received into this lot");
+        }
+        stockLedger.record(drugId, lotId, StockMovementType.RETURN, quantity, reference);
+        drugRepository.refreshNextLot(drugId);
+        return mapToDto(lotRepository.findById(lotId).orElseThrow());
+    }
+
+    /** Takes {@code quantity} from unexpired lots, soonest expiry first. */
+    @Transactional(readOnly = false)
+    public List<Allocation> allocate(Drug drug, int quantity, String reference) {
+        List<Allocation> allocations = take(drug, quantity, false, StockMovementType.DISPENSE, reference);
+        if (allocations == null) {
+            throw new BadRequestException("Insufficient unexpired stock for " + drug.getGenericName());
+        }
+        return allocations;
+    }
+
+    /**
+     * As {@link #allocate}, but a shortage returns null instead of throwing and leaves no changes behind,
+     * so a caller dispensing several lines in one transaction can skip the line and carry on.
+     */
+    @Transactional(readOnly = false)
+    public List<Allocation> tryAllocate(Drug drug, int quantity, String reference) {
+        return take(drug, quantity, false, StockMovementType.DISPENSE, reference);
+    }
+
+    /** Removes stock that is not being dispensed (count corrections, damage); expired lots go first. */
+    @Transactional(readOnly = false)
+    public List<Allocation> writeOff(Drug drug, int quantity, String reference) {
+        List<Allocation> allocations = take(drug, quantity, true, StockMovementType.ADJUSTMENT, reference);
+        if (allocations == null) {
+            throw new BadRequestException("Insufficient stock for " + drug.getGenericName());
+        }
+        return allocations;
+    }
+
+    /** Returns null, with nothing changed, when the stock cannot cover {@code quantity}. */
+    private List<Allocation> take(Drug drug, int quantity, boolean includeExpired, StockMovementType type, String reference) {
+        // Locks the drug row; from here on no other transaction can change this drug's lots
+        if (drugRepository.decrementStock(drug.getId(), quantity) == 0) {
+            return null;
+        }
+        if (!includeExpired && lotRepository.sumAllocatable(drug.getId(), LocalDate.now()) < quantity) {
+            drugRepository.incrementStock(drug.getId(), quantity);
+            return null;
+        }
+
+        List<Allocation> allocations = new ArrayList<>();
+        int needed = quantity;
+        int contendedPasses = 0;
+        while (needed > 0) {
+            List<AvailableLot> lots = lotRepository.findAllocatable(drug.getId(), LocalDate.now(), includeExpired,
+                    PageRequest.of(0, LOT_PAGE_SIZE));
+            if (lots.isEmpty()) {
+                // Only reachable if the aggregate drifted from the lots; the rollback restores the lots taken so far
+                throw new IllegalStateException("Lots of drug " + drug.getId() + " do not add up to its stock");
+            }
+            boolean contended = false;
+            for (AvailableLot lot : lots) {
+                int portion = Math.min(needed, lot.getQuantityRemaining());
+                // Another dispense drew on this lot since it was read; the next pass re-reads it
+                if (lotRepository.decrementRemaining(lot.getId(), portion) == 0) {
+                    contended = true;
+                    continue;
+                }
+                allocations.add(new Allocation(lot.getId(), lot.getBatchNumber(), lot.getExpiryDate(), portion));
+                stockLedger.record(drug.getId(), lot.getId(), type, -portion, reference);
+                needed -= portion;
+                if (needed == 0) break;
+            }
+            if (contended && ++contendedPasses >= MAX_CONTENDED_PASSES) {
+                throw new BadRequestException("Stock for " + drug.getGenericName() + " is changing, please retry");
+            }
+        }
+        drugRepository.refreshNextLot(drug.getId());
+        return allocations;
+    }
+
+    public List<DrugLotDTO> getLots(Long drugId) {
+        return lotRepository.findInStockByDrugId(drugId)
+                .stream().map(this::mapToDto).collect(Collectors.toList());
+    }
+
+    public List<DrugLotDTO> getExpiringLots(int days) {
+        return lotRepository.findInStockExpiringBefore(LocalDate.now().plusDays(days))
+                .stream().map(this::mapToDto).collect(Collectors.toList());
+    }
+
+    /** Gives every stocked drug without lots an opening lot from its legacy batch, expiry and quantity. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = false)
+    public void backfillOpeningLots() {
+        int created = jdbcTemplate.update(
+                "INSERT INTO drug_lots (drug_id, batch_number, expiry_date, quantity_received, quantity_remaining, " +
+                "cost_price, supplier, received_at) " +
+                "SELECT d.id, d.batch_number, d.expiry_date, d.quantity_in_stock, d.quantity_in_stock, d.cost_price, " +
+                "d.supplier, COALESCE(d.created_at, now()) FROM drugs d " +
+                "WHERE d.quantity_in_stock > 0 AND NOT EXISTS (SELECT 1 FROM drug_lots l WHERE l.drug_id = d.id)");
+        if (created > 0) {
+            log.info("Created opening lots for {} drugs", created);
+        }
+        // Lots that predate the ledger start it with their current remaining quantity
+        int opened = jdbcTemplate.update(
+                "INSERT INTO stock_movements (drug_id, lot_id, type, quantity, occurred_at, reference) " +
+                "SELECT l.drug_id, l.id, 'ADJUSTMENT', l.quantity_remaining, now(), 'Opening balance' FROM drug_lots l " +
+                "WHERE l.quantity_remaining > 0 AND NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.lot_id = l.id)");
+        if (opened > 0) {
+            log.info("Recorded opening balances for {} lots", opened);
+        }
+    }
+
+    private DrugLotDTO mapToDto(DrugLot lot) {
+        DrugLotDTO dto = new DrugLotDTO();
+        dto.setId(lot.getId());
+        dto.setDrugId(lot.getDrug().getId());
+        dto.setDrugName(lot.getDrug().getGenericName());
+        dto.setBatchNumber(lot.getBatchNumber());
+        dto.setExpiryDate(lot.getExpiryDate());
+        dto.setQuantityReceived(lot.getQuantityReceived());
+        dto.setQuantityRemaining(lot.getQuantityRemaining());
+        dto.setCostPrice(lot.getCostPrice());
+        dto.setSupplier(lot.getSupplier());
+        dto.setReceivedAt(lot.getReceivedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,290 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.DuplicatePairDTO;
+import com.helvinotech.hms.entity.DuplicatePatientPair;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.entity.PatientBlockingKey;
+import com.helvinotech.hms.repository.DuplicatePatientPairRepository;
+import com.helvinotech.hms.repository.PatientBlockingKeyRepository;
+import com.helvinotech.hms.repository.PatientRepository;
+import com.helvinotech.hms.service.PatientMatcher.Candidate;
+import com.helvinotech.hms.service.PatientMatcher.Match;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Slf4j
+public class DuplicatePatientService {
+
+    private static final int MAX_CANDIDATES = 200;
+    // Blocks larger than this are common-name/common-year buckets that carry no signal
+    private static final int MAX_BLOCK_SIZE = 500;
+    private static final int BLOCKS_PER_TASK = 64;
+    private static final int BATCH_SIZE = 1000;
+
+    // Both only touch a patient whose row is unchanged since the scan read it, so a concurrent edit's keys win
+    private static final String DELETE_STALE_KEYS =
+            "DELETE FROM patient_blocking_keys k USING patients p WHERE k.patient_id = p.id " +
+            "AND p.id = ? AND p.updated_at IS NOT DISTINCT FROM ? AND k.block_key <> ALL (?)";
+    private static final String INSERT_KEY =
+            "INSERT INTO patient_blocking_keys (patient_id, block_key) SELECT p.id, ? FROM patients p " +
+            "WHERE p.id = ? AND p.updated_at IS NOT DISTINCT FROM ? ON CONFLICT (patient_id, block_key) DO NOTHING";
+
+    private final PatientRepository patientRepository;
+    private final PatientBlockingKeyRepository blockingKeyRepository;
+    private final DuplicatePatientPairRepository pairRepository;
+    private final PatientMatcher matcher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService scanExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("duplicate-scan").daemon().factory());
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private volatile Map<String, Object> lastScan = Map.of("status", "NOT_RUN");
+
+    public record ScoredCandidate(Patient patient, Match match) {}
+
+    public List<ScoredCandidate> findCandidates(Candidate probe) {
+        Set<String> keys = matcher.blockingKeys(probe);
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = blockingKeyRepository.findPatientIdsByBlockKeys(keys, PageRequest.of(0, MAX_CANDIDATES));
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        for (Patient p : patientRepository.findAllById(ids)) {
+            if (p.getId().equals(probe.id())) continue;
+            Match match = matcher.score(probe, toCandidate(p));
+            if (match.score() >= PatientMatcher.CANDIDATE_THRESHOLD) {
+                candidates.add(new ScoredCandidate(p, match));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble((ScoredCandidate c) -> c.match().score()).reversed());
+        return candidates;
+    }
+
+    @Transactional(readOnly = false)
+    public void indexPatient(Patient patient) {
+        blockingKeyRepository.deleteByPatientId(patient.getId());
+        List<PatientBlockingKey> keys = matcher.blockingKeys(toCandidate(patient)).stream()
+                .map(key -> PatientBlockingKey.builder().patientId(patient.getId()).blockKey(key).build())
+                .collect(Collectors.toList());
+        blockingKeyRepository.saveAll(keys);
+    }
+
+    /** Starts a registry scan in the background unless one is already running, and returns the scan status. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> startScan() {
+        if (scanning.compareAndSet(false, true)) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("status", "RUNNING");
+            status.put("startedAt", LocalDateTime.now());
+            lastScan = status;
+            scanExecutor.execute(() -> {
+                try {
+                    lastScan = scanRegistry();
+                } catch (RuntimeException e) {
+                    log.error("Duplicate scan failed", e);
+                    Map<String, Object> failed = new LinkedHashMap<>(status);
+                    failed.put("status", "FAILED");
+                    failed.put("error", e.getMessage());
+                    lastScan = failed;
+                } finally {
+                    scanning.set(false);
+                }
+            });
+        }
+        return lastScan;
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getScanStatus() {
+        return lastScan;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanExecutor.shutdownNow();
+    }
+
+    private record RegistryRow(Candidate candidate, Timestamp updatedAt) {}
+
+    /**
+     * Brings the blocking index up to date from the full registry and writes a fresh scored duplicate-pairs
+     * report. Keys are synced per patient in short transactions rather than rebuilt wholesale, so patients
+     * registered or edited while the scan runs keep the keys their own transaction wrote. Blocks are compared
+     * in parallel on a fork/join pool; only pairs sharing a block are ever scored.
+     */
+    private Map<String, Object> scanRegistry() {
+        long started = System.currentTimeMillis();
+        List<RegistryRow> registry = jdbcTemplate.query(
+                "SELECT id, full_name, date_of_birth, phone, id_number, updated_at FROM patients",
+                (rs, i) -> {
+                    Date dob = rs.getDate("date_of_birth");
+                    return new RegistryRow(new Candidate(rs.getLong("id"), rs.getString("full_name"),
+                            dob != null ? dob.toLocalDate() : null, rs.getString("phone"), rs.getString("id_number")),
+                            rs.getTimestamp("updated_at"));
+                });
+
+        Map<String, List<Candidate>> blocks = new HashMap<>();
+        List<Set<String>> keysByRow = new ArrayList<>(registry.size());
+        for (RegistryRow row : registry) {
+            Set<String> keys = matcher.blockingKeys(row.candidate());
+            keysByRow.add(keys);
+            for (String key : keys) {
+                blocks.computeIfAbsent(key, k -> new ArrayList<>()).add(row.candidate());
+            }
+        }
+        for (int from = 0; from < registry.size(); from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, registry.size());
+            List<RegistryRow> rows = registry.subList(from, to);
+            List<Set<String>> keys = keysByRow.subList(from, to);
+            transactionTemplate.executeWithoutResult(status -> syncBlockingKeys(rows, keys));
+        }
+        jdbcTemplate.update("DELETE FROM patient_blocking_keys k WHERE NOT EXISTS (SELECT 1 FROM patients p WHERE p.id = k.patient_id)");
+
+        List<List<Candidate>> comparable = blocks.values().stream()
+                .filter(b -> b.size() > 1 && b.size() <= MAX_BLOCK_SIZE)
+                .collect(Collectors.toList());
+        Map<PairKey, ScoredPair> pairs = ForkJoinPool.commonPool().invoke(new BlockComparisonTask(comparable, 0, comparable.size()));
+
+        // Readers keep seeing the previous report until the new one is complete
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM duplicate_patient_pairs");
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO duplicate_patient_pairs (patient_a_id, patient_b_id, score, reasons, detected_at) VALUES (?, ?, ?, ?, now())",
+                    new ArrayList<>(pairs.values()), BATCH_SIZE, (ps, pair) -> {
+                        ps.setLong(1, pair.key().a());
+                        ps.setLong(2, pair.key().b());
+                        ps.setDouble(3, pair.match().score());
+                        ps.setString(4, String.join("; ", pair.match().reasons()));
+                    });
+        });
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Duplicate scan: {} patients, {} blocks compared, {} pairs in {} ms",
+                registry.size(), comparable.size(), pairs.size(), elapsed);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("status", "COMPLETED");
+        summary.put("completedAt", LocalDateTime.now());
+        summary.put("patientsScanned", registry.size());
+        summary.put("blocksCompared", comparable.size());
+        summary.put("duplicatePairs", pairs.size());
+        summary.put("elapsedMs", elapsed);
+        return summary;
+    }
+
+    private void syncBlockingKeys(List<RegistryRow> rows, List<Set<String>> keys) {
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            for (String key : keys.get(i)) {
+                inserts.add(new Object[]{key, rows.get(i).candidate().id(), rows.get(i).updatedAt()});
+            }
+        }
+        List<Integer> indexes = IntStream.range(0, rows.size()).boxed().toList();
+        jdbcTemplate.batchUpdate(DELETE_STALE_KEYS, indexes, BATCH_SIZE, (ps, i) -> {
+            ps.setLong(1, rows.get(i).candidate().id());
+            ps.setTimestamp(2, rows.get(i).updatedAt());
+            ps.setArray(3, ps.getConnection().createArrayOf("varchar", keys.get(i).toArray()));
+        });
+        jdbcTemplate.batchUpdate(INSERT_KEY, inserts);
+    }
+
+    public Page<DuplicatePairDTO> getDuplicatePairs(Pageable pageable) {
+        return pairRepository.findAllByOrderByScoreDesc(pageable).map(this::mapPairToDto);
+    }
+
+    public Candidate toCandidate(Patient p) {
+        return new Candidate(p.getId(), p.getFullName(), p.getDateOfBirth(), p.getPhone(), p.getIdNumber());
+    }
+
+    private record PairKey(long a, long b) {
+        static PairKey of(long x, long y) {
+            return x < y ? new PairKey(x, y) : new PairKey(y, x);
+        }
+    }
+
+    private record ScoredPair(PairKey key, Match match) {}
+
+    private class BlockComparisonTask extends RecursiveTask<Map<PairKey, ScoredPair>> {
+        private final List<List<Candidate>> blocks;
+        private final int from;
+        private final int to;
+
+        BlockComparisonTask(List<List<Candidate>> blocks, int from, int to) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<PairKey, ScoredPair> compute() {
+            if (to - from <= BLOCKS_PER_TASK) {
+                Map<PairKey, ScoredPair> found = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    compareBlock(blocks.get(i), found);
+                }
+                return found;
+            }
+            int mid = (from + to) >>> 1;
+            BlockComparisonTask left = new BlockComparisonTask(blocks, from, mid);
+            left.fork();
+            Map<PairKey, ScoredPair> right = new BlockComparisonTask(blocks, mid, to).compute();
+            Map<PairKey, ScoredPair> merged = left.join();
+            right.forEach((k, v) -> merged.putIfAbsent(k, v));
+            return merged;
+        }
+
+        private void compareBlock(List<Candidate> block, Map<PairKey, ScoredPair> found) {
+            for (int i = 0; i < block.size(); i++) {
+                for (int j = i + 1; j < block.size(); j++) {
+                    Candidate a = block.get(i);
+                    Candidate b = block.get(j);
+                    PairKey key = PairKey.of(a.id(), b.id());
+                    if (key.a() == key.b() || found.containsKey(key)) continue;
+                    Match match = matcher.score(a, b);
+                    if (match.score() >= PatientMatcher.CANDIDATE_THRESHOLD) {
+                        found.put(key, new ScoredPair(key, match));
+                    }
+                }
+            }
+        }
+    }
+
+    private DuplicatePairDTO mapPairToDto(DuplicatePatientPair pair) {
+        DuplicatePairDTO dto = new DuplicatePairDTO();
+        dto.setId(pair.getId());
+        dto.setPatientAId(pair.getPatientA().getId());
+        dto.setPatientANo(pair.getPatientA().getPatientNo());
+        dto.setPatientAName(pair.getPatientA().getFullName());
+        dto.setPatientBId(pair.getPatientB().getId());
+        dto.setPatientBNo(pair.getPatientB().getPatientNo());
+        dto.setPatientBName(pair.getPatientB().getFullName());
+        dto.setScore(pair.getScore());
+        dto.setReasons(pair.getReasons());
+        dto.setDetectedAt(pair.getDetectedAt());
+        return dto;
+    }
+}
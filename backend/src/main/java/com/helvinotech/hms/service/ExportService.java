@@ -0,0 +1,163 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.enums.ExportFormat;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ServiceUnavailableException;
+import com.helvinotech.hms.export.RowWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Line-level report exports. Rows are read through a forward-only cursor (the read-only transaction keeps
+ * autocommit off, so the PostgreSQL driver honours the fetch size) and written straight to the response,
+ * so memory use does not depend on the size of the export.
+ * <p>
+ * An export holds a pooled connection for as long as the client takes to download it, so only a few may
+ * run at once; the rest are turned away with a 503 before a connection is taken. The response is only
+ * opened once a slot is held, so a rejected request can still be answered as JSON.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final long RETRY_AFTER_SECONDS = 30;
+
+    private final JdbcTemplate cursorJdbc;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore exportPermits;
+
+    /** Opens the response stream, after any headers describing the download have been set. */
+    @FunctionalInterface
+    public interface ExportTarget {
+        OutputStream open() throws IOException;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Dataset {
+        PAYMENTS("payments", true,
+                List.of("Receipt No", "Received At", "Invoice No", "Patient No", "Patient Name", "Method", "Reference", "Amount", "Received By"),
+                "SELECT p.receipt_number, p.created_at, b.invoice_number, pt.patient_no, pt.full_name, p.payment_method, " +
+                "p.reference_number, p.amount, u.full_name FROM payments p " +
+                "JOIN billings b ON b.id = p.billing_id JOIN patients pt ON pt.id = b.patient_id " +
+                "LEFT JOIN users u ON u.id = p.received_by " +
+                "WHERE p.created_at >= ? AND p.created_at < ? ORDER BY p.created_at, p.id"),
+        INVOICES("invoices", true,
+                List.of("Invoice No", "Created At", "Patient No", "Patient Name", "Status", "Total", "Paid", "Insurance Covered"),
+                "SELECT b.invoice_number, b.created_at, pt.patient_no, pt.full_name, b.status, b.total_amount, " +
+                "b.paid_amount, b.insurance_covered_amount FROM billings b JOIN patients pt ON pt.id = b.patient_id " +
+                "WHERE b.created_at >= ? AND b.created_at < ? ORDER BY b.created_at, b.id"),
+        EXPENSES("expenses", false,
+                List.of("Date", "Category", "Description", "Vendor", "Reference", "Amount", "Recorded By"),
+                "SELECT e.expense_date, e.category, e.description, e.vendor, e.reference_number, e.amount, u.full_name " +
+                "FROM expenses e LEFT JOIN users u ON u.id = e.recorded_by " +
+                "WHERE e.expense_date BETWEEN ? AND ? ORDER BY e.expense_date, e.id"),
+        PATIENTS("patients", true,
+                List.of("Patient No", "Full Name", "Gender", "Date of Birth", "Phone", "Email", "ID Number", "Insurance", "Member No", "Registered At"),
+                "SELECT p.patient_no, p.full_name, p.gender, p.date_of_birth, p.phone, p.email, p.id_number, ic.name, " +
+                "p.insurance_member_number, p.created_at FROM patients p " +
+                "LEFT JOIN insurance_companies ic ON ic.id = p.insurance_company_id " +
+                "WHERE p.created_at >= ? AND p.created_at < ? ORDER BY p.created_at, p.id");
+
+        private final String fileName;
+        private final boolean timestampRange;
+        private final List<String> headers;
+        private final String sql;
+    }
+
+    public ExportService(DataSource dataSource,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.reports.max-concurrent-exports:2}") int maxConcurrentExports) {
+        this.cursorJdbc = new JdbcTemplate(dataSource);
+        this.cursorJdbc.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportPermits = new Semaphore(Math.max(1, maxConcurrentExports));
+    }
+
+    public Dataset resolveDataset(String name) {
+        try {
+            return Dataset.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown export: " + name);
+        }
+    }
+
+    public ExportFormat resolveFormat(String name) {
+        try {
+            return ExportFormat.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + name);
+        }
+    }
+
+    public long export(Dataset dataset, LocalDate startDate, LocalDate endDate, ExportFormat format, ExportTarget target) throws IOException {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate must not be before startDate");
+        }
+        Object[] params = dataset.isTimestampRange()
+                ? new Object[]{Timestamp.valueOf(startDate.atStartOfDay()), Timestamp.valueOf(endDate.plusDays(1).atStartOfDay())}
+                : new Object[]{Date.valueOf(startDate), Date.valueOf(endDate)};
+
+        if (!exportPermits.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many exports are running, please try again shortly", RETRY_AFTER_SECONDS);
+        }
+        long started = System.currentTimeMillis();
+        long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> stream(dataset, params, format, target));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor is closed and the read-only transaction rolled back
+            throw e.getCause();
+        } finally {
+            exportPermits.release();
+        }
+        log.info("Exported {} {} rows for {}..{} as {} in {} ms", rows, dataset.getFileName(), startDate, endDate,
+                format, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private long stream(Dataset dataset, Object[] params, ExportFormat format, ExportTarget target) {
+        try {
+            RowWriter writer = RowWriter.create(format, target.open(), dataset.getFileName());
+            writer.writeRow(dataset.getHeaders().toArray());
+            long[] rows = {0};
+            cursorJdbc.query(dataset.getSql(), rs -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                Object[] values = new Object[meta.getColumnCount()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                try {
+                    writer.writeRow(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, params);
+            writer.finish();
+            return rows[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
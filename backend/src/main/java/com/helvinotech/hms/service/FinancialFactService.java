@@ -0,0 +1,159 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.enums.FinancialMetric;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.repository.DailyFinancialFactRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains daily_financial_facts: one row per day, metric and dimension (payment method, service type,
+ * expense category). Write paths add to the row for their day inside their own transaction, so reports
+ * aggregate at most one row per day and dimension instead of scanning billings and payments.
+ * {@link #rebuild} recomputes a date range from the source tables and is used for the initial backfill
+ * and a nightly pass over recent days.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Slf4j
+public class FinancialFactService {
+
+    public static final String ALL = "ALL";
+    private static final int NIGHTLY_REBUILD_DAYS = 7;
+    // Each rebuild holds its transaction and the rows it rewrites for the whole range
+    private static final int MAX_REBUILD_DAYS = 366;
+
+    private static final String UPSERT =
+            "INSERT INTO daily_financial_facts AS f (fact_date, metric, dimension, amount, entry_count) VALUES (?, ?, ?, ?, 1) " +
+            "ON CONFLICT (fact_date, metric, dimension) DO UPDATE " +
+            "SET amount = f.amount + EXCLUDED.amount, entry_count = f.entry_count + 1";
+    // A payment recorded between the rebuild's delete and insert may have recreated the row; the rebuilt value wins
+    private static final String REPLACE_ON_CONFLICT =
+            " ON CONFLICT (fact_date, metric, dimension) DO UPDATE SET amount = EXCLUDED.amount, entry_count = EXCLUDED.entry_count";
+
+    private final DailyFinancialFactRepository factRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Bumped whenever a day before today changes, so cached reports over closed days can be reused until then
+    private final AtomicLong closedDaysRevision = new AtomicLong();
+
+    @Transactional(readOnly = false)
+    public void record(FinancialMetric metric, LocalDate date, String dimension, BigDecimal amount) {
+        if (date == null || amount == null || amount.signum() == 0) return;
+        jdbcTemplate.update(UPSERT, Date.valueOf(date), metric.name(), dimension != null ? dimension : ALL, amount);
+        if (date.isBefore(LocalDate.now())) {
+            invalidateClosedDaysAfterCommit();
+        }
+    }
+
+    public long getClosedDaysRevision() {
+        return closedDaysRevision.get();
+    }
+
+    /** Recomputes every metric for the given days from the source tables, at most a year at a time. */
+    @Transactional(readOnly = false)
+    public Map<String, Object> rebuild(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate must not be before startDate");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_REBUILD_DAYS) {
+            throw new BadRequestException("Financial facts can be rebuilt for at most " + MAX_REBUILD_DAYS + " days at a time");
+        }
+        return rebuildRange(startDate, endDate);
+    }
+
+    private Map<String, Object> rebuildRange(LocalDate startDate, LocalDate endDate) {
+        long started = System.currentTimeMillis();
+        Date start = Date.valueOf(startDate);
+        Date end = Date.valueOf(endDate);
+        Timestamp from = Timestamp.valueOf(startDate.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(endDate.plusDays(1).atStartOfDay());
+
+        int deleted = jdbcTemplate.update("DELETE FROM daily_financial_facts WHERE fact_date BETWEEN ? AND ?", start, end);
+        int inserted = 0;
+        inserted += jdbcTemplate.update(
+                "INSERT INTO daily_financial_facts (fact_date, metric, dimension, amount, entry_count) " +
+                "SELECT CAST(b.created_at AS date), 'REVENUE', '" + ALL + "', SUM(b.paid_amount), COUNT(*) FROM billings b " +
+                "WHERE b.created_at >= ? AND b.created_at < ? AND b.paid_amount <> 0 GROUP BY CAST(b.created_at AS date)" + REPLACE_ON_CONFLICT, from, to);
+        inserted += jdbcTemplate.update(
+                "INSERT INTO daily_financial_facts (fact_date, metric, dimension, amount, entry_count) " +
+                "SELECT CAST(b.created_at AS date), 'BILLED', i.service_type, SUM(i.total_price), COUNT(*) " +
+                "FROM billing_items i JOIN billings b ON b.id = i.billing_id " +
+                "WHERE b.created_at >= ? AND b.created_at < ? GROUP BY CAST(b.created_at AS date), i.service_type" + REPLACE_ON_CONFLICT, from, to);
+        inserted += jdbcTemplate.update(
+                "INSERT INTO daily_financial_facts (fact_date, metric, dimension, amount, entry_count) " +
+                "SELECT CAST(p.created_at AS date), 'PAYMENTS', p.payment_method, SUM(p.amount), COUNT(*) FROM payments p " +
+                "WHERE p.created_at >= ? AND p.created_at < ? GROUP BY CAST(p.created_at AS date), p.payment_method" + REPLACE_ON_CONFLICT, from, to);
+        inserted += jdbcTemplate.update(
+                "INSERT INTO daily_financial_facts (fact_date, metric, dimension, amount, entry_count) " +
+                "SELECT e.expense_date, 'EXPENSES', e.category, SUM(e.amount), COUNT(*) FROM expenses e " +
+                "WHERE e.expense_date BETWEEN ? AND ? GROUP BY e.expense_date, e.category" + REPLACE_ON_CONFLICT, start, end);
+        invalidateClosedDaysAfterCommit();
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Rebuilt financial facts {}..{}: {} rows replaced by {} in {} ms", startDate, endDate, deleted, inserted, elapsed);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("startDate", startDate);
+        summary.put("endDate", endDate);
+        summary.put("rowsDeleted", deleted);
+        summary.put("rowsInserted", inserted);
+        summary.put("elapsedMs", elapsed);
+        return summary;
+    }
+
+    /** First start with the fact table in place: build it from all existing history. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = false)
+    public void backfillIfEmpty() {
+        if (factRepository.count() > 0) return;
+        LocalDate earliest = jdbcTemplate.queryForObject(
+                "SELECT LEAST((SELECT MIN(CAST(created_at AS date)) FROM billings), " +
+                "(SELECT MIN(CAST(created_at AS date)) FROM payments), (SELECT MIN(expense_date) FROM expenses))",
+                LocalDate.class);
+        if (earliest != null) {
+            rebuildRange(earliest, LocalDate.now());
+        }
+    }
+
+    /**
+     * Re-derives the last few days. Expenses have no write path in the application, and bills raised
+     * on earlier days keep collecting payments, so this also corrects anything written outside it.
+     */
+    @Scheduled(cron = "0 30 0 * * *")
+    @Transactional(readOnly = false)
+    public void rebuildRecentDays() {
+        LocalDate today = LocalDate.now();
+        rebuildRange(today.minusDays(NIGHTLY_REBUILD_DAYS), today);
+    }
+
+    private void invalidateClosedDaysAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    closedDaysRevision.incrementAndGet();
+                }
+            });
+        } else {
+            closedDaysRevision.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.DrugDTO;
+import com.helvinotech.hms.event.DrugChangedEvent;
+import com.helvinotech.hms.event.DrugDispensedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * In-memory index of the active formulary for prescription autocomplete. Generic name, brand name,
+ * strength and formulation are split into tokens held in one sorted array, with each token's drugs in a
+ * flat postings array (CSR layout), so a query token is resolved by binary search over the prefix range
+ * and searches never reach the database. The index is an immutable snapshot swapped atomically:
+ * name changes rebuild it from the current entries (no database access), while stock-only changes just
+ * replace the drug's DTO in place. PharmacyService reloads it from the database at startup and
+ * periodically to correct any drift.
+ */
+@Component
+@Slf4j
+public class FormularyIndex {
+
+    private static final class Entry {
+        final long id;
+        final String searchText;       // normalized "generic brand strength formulation"
+        final String genericName;      // normalized, for prefix ranking and ordering
+        final String brandName;
+        volatile DrugDTO drug;
+
+        Entry(DrugDTO drug) {
+            this.id = drug.getId();
+            this.genericName = normalize(drug.getGenericName());
+            this.brandName = normalize(drug.getBrandName());
+            this.searchText = String.join(" ", genericName, brandName, normalize(drug.getStrength()),
+                    normalize(drug.getFormulation())).trim();
+            this.drug = drug;
+        }
+    }
+
+    private record Snapshot(Entry[] entries, Map<Long, Entry> byId, String[] tokens, int[] postingStart, int[] postings) {
+        static final Snapshot EMPTY = new Snapshot(new Entry[0], Map.of(), new String[0], new int[]{0}, new int[0]);
+    }
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public Page<DrugDTO> search(String query, Pageable pageable) {
+        Snapshot current = snapshot;
+        String normalizedQuery = normalize(query);
+        String[] queryTokens = tokenize(normalizedQuery);
+        if (queryTokens.length == 0) {
+            return Page.empty(pageable);
+        }
+
+        BitSet matches = null;
+        for (String token : queryTokens) {
+            BitSet tokenMatches = prefixMatches(current, token);
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return Page.empty(pageable);
+            }
+        }
+
+        List<Entry> hits = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            hits.add(current.entries()[i]);
+        }
+        // Entries are ordered by generic name, and the sort is stable, so equal ranks stay alphabetical
+        hits.sort(Comparator.comparingInt((Entry e) -> rank(e, normalizedQuery, queryTokens)).reversed());
+
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        List<DrugDTO> content = hits.subList(from, to).stream().map(e -> e.drug).toList();
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    public int size() {
+        return snapshot.entries().length;
+    }
+
+    /** Replaces the whole index; inactive drugs are left out. */
+    public synchronized void replaceAll(Collection<DrugDTO> drugs) {
+        snapshot = build(drugs.stream().filter(DrugDTO::isActive).map(Entry::new).toList());
+        log.debug("Formulary index rebuilt with {} drugs, {} tokens", snapshot.entries().length, snapshot.tokens().length);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onDrugChanged(DrugChangedEvent event) {
+        DrugDTO drug = event.drug();
+        Entry existing = snapshot.byId().get(drug.getId());
+        if (drug.isActive() && existing != null) {
+            Entry updated = new Entry(drug);
+            if (updated.searchText.equals(existing.searchText)) {
+                existing.drug = drug;
+                return;
+            }
+        }
+        if (!drug.isActive() && existing == null) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(snapshot.byId().values());
+        entries.removeIf(e -> e.id == drug.getId());
+        if (drug.isActive()) {
+            entries.add(new Entry(drug));
+        }
+        snapshot = build(entries);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onDispensed(DrugDispensedEvent event) {
+        Entry entry = snapshot.byId().get(event.drugId());
+        if (entry == null) return;
+        // Copy rather than mutate: the previous DTO may be mid-serialization in a search response
+        DrugDTO updated = new DrugDTO();
+        BeanUtils.copyProperties(entry.drug, updated);
+        updated.setQuantityInStock(updated.getQuantityInStock() - event.quantity());
+        entry.drug = updated;
+    }
+
+    private static Snapshot build(List<Entry> unordered) {
+        Entry[] entries = unordered.toArray(new Entry[0]);
+        Arrays.sort(entries, Comparator.comparing((Entry e) -> e.genericName).thenComparing(e -> e.brandName)
+                .thenComparingLong(e -> e.id));
+
+        Map<Long, Entry> byId = new HashMap<>(entries.length * 2);
+        TreeMap<String, List<Integer>> tokenEntries = new TreeMap<>();
+        for (int ordinal = 0; ordinal < entries.length; ordinal++) {
+            byId.put(entries[ordinal].id, entries[ordinal]);
+            for (String token : new LinkedHashSet<>(Arrays.asList(tokenize(entries[ordinal].searchText)))) {
+                tokenEntries.computeIfAbsent(token, t -> new ArrayList<>()).add(ordinal);
+            }
+        }
+
+        String[] tokens = tokenEntries.keySet().toArray(new String[0]);
+        int[] postingStart = new int[tokens.length + 1];
+        int total = tokenEntries.values().stream().mapToInt(List::size).sum();
+        int[] postings = new int[total];
+        int offset = 0;
+        int t = 0;
+        for (List<Integer> ordinals : tokenEntries.values()) {
+            postingStart[t++] = offset;
+            for (int ordinal : ordinals) {
+                postings[offset++] = ordinal;
+            }
+        }
+        postingStart[t] = offset;
+        return new Snapshot(entries, Map.copyOf(byId), tokens, postingStart, postings);
+    }
+
+    private static BitSet prefixMatches(Snapshot snapshot, String prefix) {
+        BitSet result = new BitSet(snapshot.entries().length);
+        String[] tokens = snapshot.tokens();
+        int i = Arrays.binarySearch(tokens, prefix);
+        if (i < 0) i = -i - 1;
+        for (; i < tokens.length && tokens[i].startsWith(prefix); i++) {
+            for (int p = snapshot.postingStart()[i]; p < snapshot.postingStart()[i + 1]; p++) {
+                result.set(snapshot.postings()[p]);
+            }
+        }
+        return result;
+    }
+
+    /** Whole-query prefix of the generic name ranks first, then of the brand, then exact token hits. */
+    private static int rank(Entry entry, String query, String[] queryTokens) {
+        int score = 0;
+        if (entry.genericName.startsWith(query)) score += 100;
+        else if (entry.brandName.startsWith(query)) score += 80;
+        String padded = " " + entry.searchText + " ";
+        for (String token : queryTokens) {
+            if (padded.contains(" " + token + " ")) score += 10;
+        }
+        return score;
+    }
+
+    private static String[] tokenize(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static String normalize(String value) {
+        if (value == null) return "";
+        String folded = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return folded.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+}
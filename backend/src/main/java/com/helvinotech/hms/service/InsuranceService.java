@@ -1,20 +1,23 @@
 package com.helvinotech.hms.service;
 
+import com.helvinotech.hms.dto.CursorPage;
 import com.helvinotech.hms.dto.InsuranceClaimDTO;
 import com.helvinotech.hms.dto.InsuranceCompanyDTO;
+import com.helvinotech.hms.dto.PageCursor;
 import com.helvinotech.hms.entity.*;
 import com.helvinotech.hms.enums.ClaimStatus;
+import com.helvinotech.hms.enums.DocumentType;
 import com.helvinotech.hms.exception.BadRequestException;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.Year;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -27,6 +30,7 @@ public class InsuranceService {
     private final InsuranceClaimRepository claimRepository;
     private final BillingRepository billingRepository;
     private final PatientRepository patientRepository;
+    private final DocumentNumberService documentNumberService;
 
     // Companies
     @Transactional(readOnly = false)
@@ -63,7 +67,7 @@ public class InsuranceService {
                 .orElseThrow(() -> new ResourceNotFoundException("Patient", dto.getPatientId()));
 
         InsuranceClaim claim = InsuranceClaim.builder()
-                .claimNumber("CLM-" + Year.now().getValue() + "-" + String.format("%06d", claimRepository.count() + 1))
+                .claimNumber(documentNumberService.next(DocumentType.CLAIM))
                 .billing(billing)
                 .insuranceCompany(company)
                 .patient(patient)
@@ -92,6 +96,19 @@ public class InsuranceService {
         return claimRepository.findAll(pageable).map(this::mapClaimToDto);
     }
 
+    public CursorPage<InsuranceClaimDTO> scrollClaims(String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<InsuranceClaim> rows = claimRepository.findPageBefore(after.createdAt(), after.id(), PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, c -> new PageCursor(c.getCreatedAt(), c.getId()), this::mapClaimToDto);
+    }
+
+    public CursorPage<InsuranceClaimDTO> scrollClaimsByStatus(ClaimStatus status, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<InsuranceClaim> rows = claimRepository.findPageByStatusBefore(status, after.createdAt(), after.id(),
+                PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, c -> new PageCursor(c.getCreatedAt(), c.getId()), this::mapClaimToDto);
+    }
+
     private void mapCompanyDtoToEntity(InsuranceCompanyDTO dto, InsuranceCompany c) {
         c.setName(dto.getName());
         c.setContactPerson(dto.getContactPerson());
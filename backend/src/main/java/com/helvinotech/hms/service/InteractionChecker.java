@@ -0,0 +1,226 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.InteractionWarningDTO;
+import com.helvinotech.hms.entity.DrugInteraction;
+import com.helvinotech.hms.enums.InteractionSeverity;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * In-memory drug interaction table for prescription-time checks. Every drug that appears in a rule gets
+ * a dense ordinal, and each ordinal has a bitset of the ordinals it interacts with, so testing a new
+ * drug against a patient's active medications is one bit test per medication; only hits look up the
+ * rule itself, by binary search in the drug's sorted partner array. The table is an immutable value
+ * built by DrugInteractionService and swapped atomically; checks read whichever table is current.
+ */
+@Component
+public class InteractionChecker {
+
+    private static final Set<String> NO_ALLERGY = Set.of("none", "nil", "nkda", "nka", "na", "n a", "unknown",
+            "none known", "no known allergies", "no known drug allergies", "no allergies");
+    // Words in an allergy entry that name neither a drug nor a drug class
+    private static final Set<String> NOT_ALLERGENS = Set.of("allergy", "allergies", "allergic", "to", "the", "of", "and",
+            "drug", "drugs", "medication", "medications", "medicine", "class", "group", "containing", "based",
+            "intolerance", "reaction", "rash", "hives", "itching", "swelling", "anaphylaxis", "severe", "mild");
+
+    // Salt and counter-ion words in drug names; they are not what a patient is allergic to
+    private static final Set<String> SALT_WORDS = Set.of("sulfate", "sulphate", "phosphate", "hydrochloride", "hcl",
+            "hydrobromide", "citrate", "acetate", "maleate", "mesylate", "tartrate", "succinate", "fumarate", "besylate",
+            "bromide", "chloride", "sodium", "potassium", "trihydrate", "monohydrate", "dihydrate", "anhydrous");
+    private static final List<String> SULFONAMIDES = List.of("sulfamethoxazole", "sulfasalazine", "sulfadiazine", "sulfadoxine", "sulphamethoxazole", "cotrimoxazole");
+    private static final List<String> OPIOIDS = List.of("morphine", "codeine", "tramadol", "pethidine", "fentanyl", "oxycodone", "hydrocodone");
+    // Drug classes recorded as allergies, by the ingredient name prefixes they cover
+    private static final Map<String, List<String>> ALLERGEN_CLASSES = Map.ofEntries(
+            Map.entry("sulfa", SULFONAMIDES),
+            Map.entry("sulpha", SULFONAMIDES),
+            Map.entry("sulfonamide", SULFONAMIDES),
+            Map.entry("sulphonamide", SULFONAMIDES),
+            Map.entry("penicillin", List.of("penicillin", "benzylpenicillin", "phenoxymethylpenicillin", "amoxicillin", "ampicillin",
+                    "cloxacillin", "flucloxacillin", "piperacillin", "augmentin", "amoxil")),
+            Map.entry("cephalosporin", List.of("cef", "ceph")),
+            Map.entry("nsaid", List.of("ibuprofen", "diclofenac", "naproxen", "aspirin", "indomethacin", "meloxicam", "piroxicam",
+                    "ketoprofen", "celecoxib", "brufen")),
+            Map.entry("opioid", OPIOIDS),
+            Map.entry("opiate", OPIOIDS)
+    );
+    // Allergy words shorter than this ("co", "v") are only matched as part of the whole entry
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private record Allergen(String recorded, String phrase, List<String> words) {}
+
+    public record Medication(Long prescriptionId, Long drugId, String drugName) {}
+
+    private record Rule(InteractionSeverity severity, String description) {}
+
+    public static final class Table {
+        static final Table EMPTY = new Table(Map.of(), new BitSet[0], new int[0][], new Rule[0][]);
+
+        private final Map<Long, Integer> ordinals;
+        private final BitSet[] partners;
+        private final int[][] partnerOrdinals;   // sorted per drug, parallel to rules
+        private final Rule[][] rules;
+
+        private Table(Map<Long, Integer> ordinals, BitSet[] partners, int[][] partnerOrdinals, Rule[][] rules) {
+            this.ordinals = ordinals;
+            this.partners = partners;
+            this.partnerOrdinals = partnerOrdinals;
+            this.rules = rules;
+        }
+
+        public int size() {
+            return ordinals.size();
+        }
+
+        private Rule find(int a, int b) {
+            if (!partners[a].get(b)) return null;
+            return rules[a][Arrays.binarySearch(partnerOrdinals[a], b)];
+        }
+    }
+
+    private volatile Table table = Table.EMPTY;
+
+    public Table current() {
+        return table;
+    }
+
+    public void install(Table table) {
+        this.table = table;
+    }
+
+    public static Table build(List<DrugInteraction> interactions) {
+        Map<Long, Integer> ordinals = new HashMap<>();
+        for (DrugInteraction i : interactions) {
+            ordinals.putIfAbsent(i.getDrugId(), ordinals.size());
+            ordinals.putIfAbsent(i.getInteractingDrugId(), ordinals.size());
+        }
+        int n = ordinals.size();
+        List<TreeMap<Integer, Rule>> byDrug = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) byDrug.add(new TreeMap<>());
+        for (DrugInteraction i : interactions) {
+            int a = ordinals.get(i.getDrugId());
+            int b = ordinals.get(i.getInteractingDrugId());
+            Rule rule = new Rule(i.getSeverity(), i.getDescription());
+            byDrug.get(a).put(b, rule);
+            byDrug.get(b).put(a, rule);
+        }
+
+        BitSet[] partners = new BitSet[n];
+        int[][] partnerOrdinals = new int[n][];
+        Rule[][] rules = new Rule[n][];
+        for (int a = 0; a < n; a++) {
+            TreeMap<Integer, Rule> entries = byDrug.get(a);
+            partners[a] = new BitSet(n);
+            partnerOrdinals[a] = new int[entries.size()];
+            rules[a] = new Rule[entries.size()];
+            int k = 0;
+            for (Map.Entry<Integer, Rule> e : entries.entrySet()) {
+                partners[a].set(e.getKey());
+                partnerOrdinals[a][k] = e.getKey();
+                rules[a][k++] = e.getValue();
+            }
+        }
+        return new Table(Map.copyOf(ordinals), partners, partnerOrdinals, rules);
+    }
+
+    /** Warnings for giving the drug alongside {@code active}, most severe first. */
+    public List<InteractionWarningDTO> check(Table table, Long drugId, String genericName, String brandName,
+                                             String category, List<Medication> active, String allergies) {
+        List<InteractionWarningDTO> warnings = new ArrayList<>();
+        Integer a = table.ordinals.get(drugId);
+        if (a != null) {
+            for (Medication med : active) {
+                Integer b = table.ordinals.get(med.drugId());
+                Rule rule = b == null ? null : table.find(a, b);
+                if (rule == null) continue;
+                warnings.add(new InteractionWarningDTO(false, rule.severity(), med.prescriptionId(), med.drugId(),
+                        med.drugName(), rule.severity() + " interaction with " + med.drugName()
+                        + (rule.description() != null ? ": " + rule.description() : ""),
+                        rule.severity() == InteractionSeverity.CONTRAINDICATED));
+            }
+        }
+
+        List<String> drugTokens = activeTokens(genericName, brandName, category);
+        for (Allergen allergen : parseAllergies(allergies)) {
+            if (matchesAllergen(drugTokens, allergen)) {
+                warnings.add(new InteractionWarningDTO(true, InteractionSeverity.CONTRAINDICATED, null, null, null,
+                        "Patient is allergic to " + allergen.recorded(), true));
+            }
+        }
+        warnings.sort(Comparator.comparing(InteractionWarningDTO::isAllergy)
+                .thenComparing(InteractionWarningDTO::getSeverity).reversed());
+        return warnings;
+    }
+
+    /** Stored on the prescription; null when there is nothing to warn about. */
+    public static String summarize(List<InteractionWarningDTO> warnings) {
+        if (warnings.isEmpty()) return null;
+        String summary = String.join("; ", warnings.stream().map(InteractionWarningDTO::getMessage).toList());
+        return summary.length() <= 1000 ? summary : summary.substring(0, 997) + "...";
+    }
+
+    /**
+     * Splits the free-text allergy field into entries. A reaction noted after the allergen, in brackets or
+     * after a dash or colon ("Penicillin (rash)", "Sulfa - hives"), is dropped from what is matched.
+     */
+    private static List<Allergen> parseAllergies(String allergies) {
+        if (allergies == null || allergies.isBlank()) return List.of();
+        List<Allergen> allergens = new ArrayList<>();
+        for (String part : allergies.split("[,;/\\n]|\\band\\b")) {
+            String recorded = part.trim();
+            String withoutReaction = recorded.replaceAll("\\([^)]*\\)?|\\[[^]]*]?", " ").split("\\s[-\u2013\u2014]\\s|:", 2)[0];
+            String phrase = normalize(withoutReaction);
+            if (phrase.isEmpty() || NO_ALLERGY.contains(phrase) || NO_ALLERGY.contains(normalize(recorded))) continue;
+            List<String> words = Arrays.stream(phrase.split(" ")).filter(w -> !NOT_ALLERGENS.contains(w)).toList();
+            if (!words.isEmpty()) {
+                allergens.add(new Allergen(recorded, phrase, words));
+            }
+        }
+        return allergens;
+    }
+
+    /**
+     * The drug's names and category as words, without salt and counter-ion words ("morphine sulfate" is
+     * morphine); a name that is nothing but such words ("potassium chloride") is kept whole. Hyphenated
+     * names are also kept joined, so "co-trimoxazole" is one token.
+     */
+    private static List<String> activeTokens(String... names) {
+        List<String> tokens = new ArrayList<>();
+        for (String name : names) {
+            String text = normalize(name);
+            if (text.isEmpty()) continue;
+            List<String> words = Arrays.asList(text.split(" "));
+            List<String> active = words.stream().filter(w -> !SALT_WORDS.contains(w)).toList();
+            tokens.addAll(active.isEmpty() ? words : active);
+            if (words.size() > 1) tokens.add(String.join("", active.isEmpty() ? words : active));
+        }
+        return tokens;
+    }
+
+    /**
+     * The whole entry, or one of its words, equal to a drug token; plural entries match the singular
+     * ("penicillins"). A drug class ("sulfa", "NSAIDs") matches the ingredients listed for it. Words are
+     * never matched as prefixes of drug words, so "sulfa" does not hit every sulfate salt.
+     */
+    private static boolean matchesAllergen(List<String> drugTokens, Allergen allergen) {
+        String joined = allergen.phrase().replace(" ", "");
+        if (drugTokens.contains(joined)) return true;
+        for (String word : allergen.words()) {
+            if (word.length() < MIN_WORD_LENGTH || SALT_WORDS.contains(word)) continue;
+            String singular = word.length() > 4 && word.endsWith("s") ? word.substring(0, word.length() - 1) : word;
+            if (drugTokens.contains(word) || drugTokens.contains(singular)) return true;
+            List<String> ingredients = ALLERGEN_CLASSES.get(singular);
+            if (ingredients != null && drugTokens.stream().anyMatch(t -> ingredients.stream().anyMatch(t::startsWith))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) return "";
+        String folded = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return folded.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+}
@@ -1,15 +1,19 @@
 package com.helvinotech.hms.service;
 
+import com.helvinotech.hms.dto.CursorPage;
 import com.helvinotech.hms.dto.LabOrderDTO;
 import com.helvinotech.hms.dto.LabTestDTO;
+import com.helvinotech.hms.dto.PageCursor;
 import com.helvinotech.hms.entity.*;
 import com.helvinotech.hms.enums.LabOrderStatus;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -25,6 +29,7 @@ public class LabService {
     private final LabOrderRepository labOrderRepository;
     private final VisitRepository visitRepository;
     private final UserRepository userRepository;
+    private final OperationalCounters operationalCounters;
 
     // Lab Test CRUD
     @Transactional(readOnly = false)
@@ -59,6 +64,7 @@ public class LabService {
 
         LabOrder order = LabOrder.builder()
                 .visit(visit).test(test).orderedBy(orderedBy).build();
+        operationalCounters.labOrderStatusChanged(null, order.getStatus());
         return mapOrderToDto(labOrderRepository.save(order));
     }
 
@@ -70,10 +76,18 @@ public class LabService {
         return labOrderRepository.findByStatus(status, pageable).map(this::mapOrderToDto);
     }
 
+    public CursorPage<LabOrderDTO> scrollOrdersByStatus(LabOrderStatus status, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<LabOrder> rows = labOrderRepository.findPageByStatusBefore(status, after.createdAt(), after.id(),
+                PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, o -> new PageCursor(o.getCreatedAt(), o.getId()), this::mapOrderToDto);
+    }
+
     @Transactional(readOnly = false)
     public LabOrderDTO collectSample(Long orderId) {
         LabOrder order = labOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Lab Order", orderId));
+        operationalCounters.labOrderStatusChanged(order.getStatus(), LabOrderStatus.SAMPLE_COLLECTED);
         order.setStatus(LabOrderStatus.SAMPLE_COLLECTED);
         order.setSampleCollectedAt(LocalDateTime.now());
         return mapOrderToDto(labOrderRepository.save(order));
@@ -90,6 +104,7 @@ public class LabService {
         order.setRemarks(remarks);
         order.setProcessedBy(processedBy);
         order.setProcessedAt(LocalDateTime.now());
+        operationalCounters.labOrderStatusChanged(order.getStatus(), LabOrderStatus.COMPLETED);
         order.setStatus(LabOrderStatus.COMPLETED);
         return mapOrderToDto(labOrderRepository.save(order));
     }
@@ -102,6 +117,7 @@ public class LabService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", verifiedById));
         order.setVerifiedBy(verifiedBy);
         order.setVerifiedAt(LocalDateTime.now());
+        operationalCounters.labOrderStatusChanged(order.getStatus(), LabOrderStatus.VERIFIED);
         order.setStatus(LabOrderStatus.VERIFIED);
         return mapOrderToDto(labOrderRepository.save(order));
     }
@@ -111,14 +127,14 @@ public class LabService {
         LabOrder order = labOrderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Lab Order", orderId));
         order.setReleasedAt(LocalDateTime.now());
+        operationalCounters.labOrderStatusChanged(order.getStatus(), LabOrderStatus.RELEASED);
         order.setStatus(LabOrderStatus.RELEASED);
         return mapOrderToDto(labOrderRepository.save(order));
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countPendingOrders() {
-        return labOrderRepository.countByStatus(LabOrderStatus.ORDERED) +
-               labOrderRepository.countByStatus(LabOrderStatus.SAMPLE_COLLECTED) +
-               labOrderRepository.countByStatus(LabOrderStatus.PROCESSING);
+        return operationalCounters.get(OperationalCounters.Counter.PENDING_LAB_ORDERS);
     }
 
     private void mapTestDtoToEntity(LabTestDTO dto, LabTest t) {
@@ -0,0 +1,333 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.enums.AppointmentStatus;
+import com.helvinotech.hms.enums.BedStatus;
+import com.helvinotech.hms.enums.LabOrderStatus;
+import com.helvinotech.hms.repository.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Live operational figures kept in memory and adjusted by the write paths, so reads are O(1) instead of
+ * range COUNT/SUM queries over growing tables. Adjustments are applied after the surrounding transaction
+ * commits. The counters are re-seeded from the database at startup, at midnight (when the "today" figures
+ * roll over) and periodically, which also corrects any drift from direct SQL changes.
+ * <p>
+ * A counter's value is the last seed plus the adjustments applied since. While a reseed runs its counts,
+ * adjustments go both to the current window and to the next one. The counts run in one repeatable-read
+ * transaction whose snapshot is recorded, and each adjustment carries the id of the transaction that made
+ * it, so the new window keeps exactly the adjustments whose commit the counts did not see: one committed
+ * before the snapshot but applied after the window opened is already in the count and is dropped.
+ */
+@Component
+@Slf4j
+public class OperationalCounters {
+
+    public enum Counter {
+        PATIENTS_TODAY, VISITS_TODAY, APPOINTMENTS_TODAY, REVENUE_TODAY_CENTS, REVENUE_MONTH_CENTS,
+        PENDING_LAB_ORDERS, TOTAL_BEDS, OCCUPIED_BEDS, AVAILABLE_BEDS
+    }
+
+    private static final Set<LabOrderStatus> PENDING_LAB_STATUSES =
+            Set.of(LabOrderStatus.ORDERED, LabOrderStatus.SAMPLE_COLLECTED, LabOrderStatus.PROCESSING);
+
+    private final PatientRepository patientRepository;
+    private final VisitRepository visitRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final BillingRepository billingRepository;
+    private final LabOrderRepository labOrderRepository;
+    private final BedRepository bedRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate countTransaction;
+
+    private final Map<Counter, Tally> counters = initCounters();
+    private volatile LocalDate seededFor;
+
+    public OperationalCounters(PatientRepository patientRepository,
+                               VisitRepository visitRepository,
+                               AppointmentRepository appointmentRepository,
+                               BillingRepository billingRepository,
+                               LabOrderRepository labOrderRepository,
+                               BedRepository bedRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.patientRepository = patientRepository;
+        this.visitRepository = visitRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.billingRepository = billingRepository;
+        this.labOrderRepository = labOrderRepository;
+        this.bedRepository = bedRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // All counts see one snapshot, so one visibility test decides every carried adjustment
+        this.countTransaction = new TransactionTemplate(transactionManager);
+        this.countTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.countTransaction.setReadOnly(true);
+    }
+
+    private record Window(long seed, LongAdder applied) {
+        long value() {
+            return seed + applied.sum();
+        }
+    }
+
+    /** {@code transactionId} is null for an adjustment made outside a transaction. */
+    private record Adjustment(Long transactionId, long delta) {}
+
+    /** Adjustments and the switch to a new window are serialised per counter; reads take no lock. */
+    private static final class Tally {
+        volatile Window window = new Window(0, new LongAdder());
+        // Non-null while a reseed is counting: the adjustments the new window may start from
+        private List<Adjustment> next;
+
+        synchronized void add(Long transactionId, long delta) {
+            window.applied().add(delta);
+            if (next != null) next.add(new Adjustment(transactionId, delta));
+        }
+
+        synchronized void openNext() {
+            next = new ArrayList<>();
+        }
+
+        synchronized void discardNext() {
+            next = null;
+        }
+
+        /** Starts a window at {@code seed} with the adjustments made since {@link #openNext} that it does not include. */
+        synchronized Window switchTo(long seed, Snapshot snapshot) {
+            LongAdder applied = new LongAdder();
+            for (Adjustment adjustment : next) {
+                if (snapshot == null || !snapshot.sees(adjustment.transactionId())) {
+                    applied.add(adjustment.delta());
+                }
+            }
+            next = null;
+            window = new Window(seed, applied);
+            return window;
+        }
+    }
+
+    /** A {@code txid_current_snapshot()}: which transaction ids had committed when the counts were taken. */
+    private record Snapshot(long xmin, long xmax, Set<Long> inProgress) {
+        static Snapshot parse(String text) {
+            if (text == null) return null;
+            String[] parts = text.split(":", -1);
+            Set<Long> inProgress = parts[2].isEmpty() ? Set.of()
+                    : Arrays.stream(parts[2].split(",")).map(Long::valueOf).collect(Collectors.toSet());
+            return new Snapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        /** Only asked about committed transactions; an unknown id is treated as not yet visible. */
+        boolean sees(Long transactionId) {
+            return transactionId != null && (transactionId < xmin || transactionId < xmax && !inProgress.contains(transactionId));
+        }
+    }
+
+    private record Counts(Snapshot snapshot, Map<Counter, Long> values) {}
+
+    /** The adjustments of one transaction, applied together once it commits. */
+    private final class PendingAdjustments implements TransactionSynchronization {
+        private final Long transactionId;
+        private final Map<Counter, Long> deltas = new EnumMap<>(Counter.class);
+
+        PendingAdjustments(Long transactionId) {
+            this.transactionId = transactionId;
+        }
+
+        @Override
+        public void afterCommit() {
+            deltas.forEach((counter, delta) -> counters.get(counter).add(transactionId, delta));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OperationalCounters.this);
+        }
+    }
+
+    public long get(Counter counter) {
+        ensureCurrent();
+        return counters.get(counter).window.value();
+    }
+
+    public BigDecimal getAmount(Counter counter) {
+        return BigDecimal.valueOf(get(counter), 2);
+    }
+
+    public Map<String, Object> snapshot() {
+        ensureCurrent();
+        Map<String, Object> values = new LinkedHashMap<>();
+        counters.forEach((counter, tally) -> values.put(counter.name(), tally.window.value()));
+        values.put("day", seededFor);
+        return values;
+    }
+
+    // Write-path hooks
+
+    public void patientRegistered() {
+        add(Counter.PATIENTS_TODAY, 1);
+    }
+
+    public void visitOpened() {
+        add(Counter.VISITS_TODAY, 1);
+    }
+
+    /** {@code from} is null for a new appointment. */
+    public void appointmentStatusChanged(LocalDate appointmentDate, AppointmentStatus from, AppointmentStatus to) {
+        if (!LocalDate.now().equals(appointmentDate)) return;
+        add(Counter.APPOINTMENTS_TODAY, indicator(to == AppointmentStatus.SCHEDULED) - indicator(from == AppointmentStatus.SCHEDULED));
+    }
+
+    /** Revenue is attributed to the day the bill was raised, matching the revenue report queries. */
+    public void paymentReceived(LocalDateTime billingCreatedAt, BigDecimal amount) {
+        if (billingCreatedAt == null || amount == null) return;
+        long cents = amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        LocalDate billed = billingCreatedAt.toLocalDate();
+        if (billed.equals(LocalDate.now())) add(Counter.REVENUE_TODAY_CENTS, cents);
+        if (YearMonth.from(billed).equals(YearMonth.now())) add(Counter.REVENUE_MONTH_CENTS, cents);
+    }
+
+    /** {@code from} is null for a new order. */
+    public void labOrderStatusChanged(LabOrderStatus from, LabOrderStatus to) {
+        add(Counter.PENDING_LAB_ORDERS, indicator(PENDING_LAB_STATUSES.contains(to)) - indicator(from != null && PENDING_LAB_STATUSES.contains(from)));
+    }
+
+    /** {@code from} is null for a new bed. */
+    public void bedStatusChanged(BedStatus from, BedStatus to) {
+        if (from == null) add(Counter.TOTAL_BEDS, 1);
+        add(Counter.OCCUPIED_BEDS, indicator(to == BedStatus.OCCUPIED) - indicator(from == BedStatus.OCCUPIED));
+        add(Counter.AVAILABLE_BEDS, indicator(to == BedStatus.AVAILABLE) - indicator(from == BedStatus.AVAILABLE));
+    }
+
+    // Seeding
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        reseed();
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollOver() {
+        reseed();
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.reconcile-interval-ms:300000}", initialDelayString = "${app.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reseed();
+    }
+
+    public synchronized void reseed() {
+        LocalDate today = LocalDate.now();
+
+        // Opened before the snapshot, so every adjustment the counts do not see lands in it
+        counters.values().forEach(Tally::openNext);
+        Counts counts;
+        try {
+            counts = countTransaction.execute(status -> count(today));
+        } catch (RuntimeException e) {
+            counters.values().forEach(Tally::discardNext);
+            throw e;
+        }
+
+        boolean rolledOver = !today.equals(seededFor);
+        counts.values().forEach((counter, value) -> {
+            Tally tally = counters.get(counter);
+            Window previous = tally.window;
+            Window seeded = tally.switchTo(value, counts.snapshot());
+            long drift = seeded.value() - previous.value();
+            if (drift != 0 && !rolledOver) {
+                log.debug("Counter {} drifted by {}, reconciled to {}", counter, drift, seeded.value());
+            }
+        });
+        seededFor = today;
+    }
+
+    private Counts count(LocalDate today) {
+        LocalDateTime startOfDay = today.atStartOfDay();
+        LocalDateTime startOfMonth = today.withDayOfMonth(1).atStartOfDay();
+        // The first statement, so the repeatable-read snapshot is the one recorded
+        Snapshot snapshot = Snapshot.parse(jdbcTemplate.queryForObject("SELECT CAST(txid_current_snapshot() AS text)", String.class));
+        Map<Counter, Long> actual = new EnumMap<>(Counter.class);
+        actual.put(Counter.PATIENTS_TODAY, patientRepository.countByCreatedAtBetween(startOfDay, startOfDay.plusDays(1)));
+        actual.put(Counter.VISITS_TODAY, visitRepository.countByCreatedAtBetween(startOfDay, startOfDay.plusDays(1)));
+        actual.put(Counter.APPOINTMENTS_TODAY, appointmentRepository.countByAppointmentDateAndStatus(today, AppointmentStatus.SCHEDULED));
+        actual.put(Counter.REVENUE_TODAY_CENTS, cents(billingRepository.sumRevenueByDateRange(startOfDay, startOfDay.plusDays(1))));
+        actual.put(Counter.REVENUE_MONTH_CENTS, cents(billingRepository.sumRevenueByDateRange(startOfMonth, startOfMonth.plusMonths(1))));
+        actual.put(Counter.PENDING_LAB_ORDERS, PENDING_LAB_STATUSES.stream().mapToLong(labOrderRepository::countByStatus).sum());
+        actual.put(Counter.TOTAL_BEDS, bedRepository.count());
+        actual.put(Counter.OCCUPIED_BEDS, bedRepository.countByStatus(BedStatus.OCCUPIED));
+        actual.put(Counter.AVAILABLE_BEDS, bedRepository.countByStatus(BedStatus.AVAILABLE));
+        return new Counts(snapshot, actual);
+    }
+
+    private void ensureCurrent() {
+        if (!LocalDate.now().equals(seededFor)) {
+            reseed();
+        }
+    }
+
+    private void add(Counter counter, long delta) {
+        if (delta == 0) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counters.get(counter).add(null, delta);
+            return;
+        }
+        PendingAdjustments pending = (PendingAdjustments) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingAdjustments(currentTransactionId());
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.deltas.merge(counter, delta, Long::sum);
+    }
+
+    /** The writing transaction's id, assigning it now if nothing has been flushed yet. */
+    private Long currentTransactionId() {
+        try {
+            return jdbcTemplate.queryForObject("SELECT txid_current()", Long.class);
+        } catch (DataAccessException e) {
+            log.debug("No transaction id for counter adjustment: {}", e.getMostSpecificCause().getMessage());
+            return null;
+        }
+    }
+
+    private static long indicator(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static Map<Counter, Tally> initCounters() {
+        Map<Counter, Tally> map = new EnumMap<>(Counter.class);
+        for (Counter counter : Counter.values()) {
+            map.put(counter, new Tally());
+        }
+        return map;
+    }
+}
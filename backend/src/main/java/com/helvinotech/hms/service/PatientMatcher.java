@@ -0,0 +1,180 @@
+package com.helvinotech.hms.service;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Blocking keys and pairwise scoring for duplicate-patient detection.
+ * Keys are deliberately coarse (phonetic name token + birth year, phone suffix, ID number) so that
+ * misspellings land in a shared block; the score then separates real duplicates from namesakes.
+ */
+@Component
+public class PatientMatcher {
+
+    public static final double CANDIDATE_THRESHOLD = 0.75;
+    public static final double STRONG_THRESHOLD = 0.92;
+
+    private static final int PHONE_SUFFIX_LENGTH = 7;
+    private static final double NAME_WEIGHT = 0.5;
+    private static final double DOB_WEIGHT = 0.25;
+    private static final double PHONE_WEIGHT = 0.25;
+
+    private final DoubleMetaphone metaphone = new DoubleMetaphone();
+
+    public record Candidate(Long id, String fullName, LocalDate dateOfBirth, String phone, String idNumber) {}
+
+    public record Match(double score, List<String> reasons) {}
+
+    public Set<String> blockingKeys(Candidate c) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (c.dateOfBirth() != null) {
+            int year = c.dateOfBirth().getYear();
+            for (String token : nameTokens(c.fullName())) {
+                keys.add("N:" + metaphone.doubleMetaphone(token) + ":" + year);
+                keys.add("N:" + metaphone.doubleMetaphone(token, true) + ":" + year);
+            }
+        }
+        String phone = digits(c.phone());
+        if (phone.length() >= PHONE_SUFFIX_LENGTH) {
+            keys.add("P:" + phone.substring(phone.length() - PHONE_SUFFIX_LENGTH));
+        }
+        String id = normalizeId(c.idNumber());
+        if (!id.isEmpty()) {
+            keys.add("I:" + id);
+        }
+        return keys;
+    }
+
+    public Match score(Candidate a, Candidate b) {
+        List<String> reasons = new ArrayList<>();
+        double weighted = 0;
+        double weights = 0;
+
+        double name = nameSimilarity(a.fullName(), b.fullName());
+        weighted += NAME_WEIGHT * name;
+        weights += NAME_WEIGHT;
+        reasons.add(String.format(Locale.ROOT, "name similarity %.2f", name));
+
+        if (a.dateOfBirth() != null && b.dateOfBirth() != null) {
+            double dob = a.dateOfBirth().equals(b.dateOfBirth()) ? 1.0
+                    : a.dateOfBirth().getYear() == b.dateOfBirth().getYear() ? 0.5 : 0.0;
+            weighted += DOB_WEIGHT * dob;
+            weights += DOB_WEIGHT;
+            if (dob == 1.0) reasons.add("same date of birth");
+        }
+
+        String phoneA = digits(a.phone());
+        String phoneB = digits(b.phone());
+        if (phoneA.length() >= PHONE_SUFFIX_LENGTH && phoneB.length() >= PHONE_SUFFIX_LENGTH) {
+            boolean samePhone = suffix(phoneA).equals(suffix(phoneB));
+            weighted += PHONE_WEIGHT * (samePhone ? 1.0 : 0.0);
+            weights += PHONE_WEIGHT;
+            if (samePhone) reasons.add("same phone");
+        }
+
+        double score = weighted / weights;
+        String idA = normalizeId(a.idNumber());
+        String idB = normalizeId(b.idNumber());
+        if (!idA.isEmpty() && !idB.isEmpty()) {
+            if (idA.equals(idB)) {
+                score = Math.max(score, 0.97);
+                reasons.add("same ID number");
+            } else {
+                score *= 0.6;
+                reasons.add("different ID numbers");
+            }
+        }
+        return new Match(Math.round(score * 1000) / 1000.0, reasons);
+    }
+
+    /** Average best-match Jaro-Winkler over name tokens, order-insensitive, phonetic equality counts as a match. */
+    double nameSimilarity(String nameA, String nameB) {
+        List<String> a = nameTokens(nameA);
+        List<String> b = nameTokens(nameB);
+        if (a.isEmpty() || b.isEmpty()) return 0;
+        List<String> shorter = a.size() <= b.size() ? a : b;
+        List<String> longer = shorter == a ? b : a;
+        double total = 0;
+        for (String s : shorter) {
+            double best = 0;
+            for (String l : longer) {
+                double sim = metaphone.isDoubleMetaphoneEqual(s, l) ? Math.max(0.95, jaroWinkler(s, l)) : jaroWinkler(s, l);
+                best = Math.max(best, sim);
+            }
+            total += best;
+        }
+        // Penalise names that have extra unmatched tokens on one side
+        double coverage = (double) shorter.size() / longer.size();
+        return (total / shorter.size()) * (0.85 + 0.15 * coverage);
+    }
+
+    static double jaroWinkler(String s1, String s2) {
+        if (s1.equals(s2)) return 1.0;
+        int len1 = s1.length();
+        int len2 = s2.length();
+        if (len1 == 0 || len2 == 0) return 0.0;
+
+        int window = Math.max(0, Math.max(len1, len2) / 2 - 1);
+        boolean[] matched1 = new boolean[len1];
+        boolean[] matched2 = new boolean[len2];
+        int matches = 0;
+        for (int i = 0; i < len1; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(len2 - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matched2[j] && s1.charAt(i) == s2.charAt(j)) {
+                    matched1[i] = true;
+                    matched2[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) return 0.0;
+
+        int transpositions = 0;
+        int k = 0;
+        for (int i = 0; i < len1; i++) {
+            if (!matched1[i]) continue;
+            while (!matched2[k]) k++;
+            if (s1.charAt(i) != s2.charAt(k)) transpositions++;
+            k++;
+        }
+        double m = matches;
+        double jaro = (m / len1 + m / len2 + (m - transpositions / 2.0) / m) / 3.0;
+
+        int prefix = 0;
+        for (int i = 0; i < Math.min(4, Math.min(len1, len2)) && s1.charAt(i) == s2.charAt(i); i++) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+
+    private List<String> nameTokens(String name) {
+        List<String> tokens = new ArrayList<>();
+        if (name == null) return tokens;
+        for (String t : name.toLowerCase(Locale.ROOT).split("[^\\p{L}]+")) {
+            if (t.length() >= 2) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    private String digits(String value) {
+        return value == null ? "" : value.replaceAll("\\D", "");
+    }
+
+    private String suffix(String phoneDigits) {
+        return phoneDigits.substring(phoneDigits.length() - PHONE_SUFFIX_LENGTH);
+    }
+
+    private String normalizeId(String id) {
+        return id == null ? "" : id.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+    }
+}
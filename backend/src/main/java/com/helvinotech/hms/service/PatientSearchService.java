@@ -0,0 +1,64 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.repository.PatientRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class PatientSearchService {
+
+    // Trigrams cannot serve a match on fewer characters than this, so shorter queries only match from the
+    // start of each field and are served by the text_pattern_ops prefix indexes instead
+    private static final int MIN_TRIGRAM_LENGTH = 3;
+    private static final int MAX_TYPEAHEAD_RESULTS = 25;
+
+    private final PatientRepository patientRepository;
+
+    public Page<Patient> search(String query, Pageable pageable) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        String escaped = escapeLike(q);
+        String contains = q.length() < MIN_TRIGRAM_LENGTH ? escaped + "%" : "%" + escaped + "%";
+        // Ranking is fixed by the query, so any client-supplied sort is dropped
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return patientRepository.searchPatients(q, escaped + "%", wordPrefix(q, escaped), contains, page);
+    }
+
+    public List<Patient> typeahead(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+        String escaped = escapeLike(q);
+        int size = Math.max(1, Math.min(limit, MAX_TYPEAHEAD_RESULTS));
+        return patientRepository.typeaheadPatients(q, escaped + "%", wordPrefix(q, escaped), escaped + "%", size);
+    }
+
+    /** Matches a later word of the name; short queries fall back to the indexable whole-name prefix. */
+    private String wordPrefix(String q, String escaped) {
+        return q.length() < MIN_TRIGRAM_LENGTH ? escaped + "%" : "% " + escaped + "%";
+    }
+
+    private String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
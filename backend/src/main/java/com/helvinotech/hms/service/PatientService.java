@@ -1,20 +1,30 @@
 package com.helvinotech.hms.service;
 
+import com.helvinotech.hms.dto.CursorPage;
+import com.helvinotech.hms.dto.DuplicateCandidateDTO;
+import com.helvinotech.hms.dto.PageCursor;
 import com.helvinotech.hms.dto.PatientDTO;
 import com.helvinotech.hms.entity.InsuranceCompany;
 import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.enums.AdmissionStatus;
+import com.helvinotech.hms.enums.DocumentType;
+import com.helvinotech.hms.exception.ConfirmationRequiredException;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
+import com.helvinotech.hms.repository.AdmissionRepository;
 import com.helvinotech.hms.repository.InsuranceCompanyRepository;
 import com.helvinotech.hms.repository.PatientRepository;
+import com.helvinotech.hms.service.PatientMatcher.Candidate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.time.Year;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,17 +33,45 @@ public class PatientService {
 
     private final PatientRepository patientRepository;
     private final InsuranceCompanyRepository insuranceCompanyRepository;
-    private static final AtomicLong counter = new AtomicLong(0);
+    private final PatientSearchService patientSearchService;
+    private final DuplicatePatientService duplicatePatientService;
+    private final DocumentNumberService documentNumberService;
+    private final OperationalCounters operationalCounters;
+    private final AdmissionRepository admissionRepository;
+    private final BedBoard bedBoard;
 
+    /**
+     * Strong matches are returned with a 409 for the desk to compare against; twins and relatives sharing a
+     * date of birth and phone are registered once the clerk confirms with {@code allowDuplicate}.
+     */
     @Transactional(readOnly = false)
-    public PatientDTO createPatient(PatientDTO dto) {
+    public PatientDTO createPatient(PatientDTO dto, boolean allowDuplicate) {
+        if (!allowDuplicate) {
+            List<DuplicateCandidateDTO> strong = findDuplicates(dto).stream()
+                    .filter(c -> c.getScore() >= PatientMatcher.STRONG_THRESHOLD)
+                    .toList();
+            if (!strong.isEmpty()) {
+                DuplicateCandidateDTO best = strong.get(0);
+                throw new ConfirmationRequiredException("Possible duplicate of " + best.getPatient().getPatientNo() +
+                        " (" + best.getPatient().getFullName() + "); check the matches and confirm to register a new patient", strong);
+            }
+        }
         Patient patient = new Patient();
-        patient.setPatientNo(generatePatientNo());
+        patient.setPatientNo(documentNumberService.next(DocumentType.PATIENT));
         mapDtoToEntity(dto, patient);
         patient = patientRepository.save(patient);
+        duplicatePatientService.indexPatient(patient);
+        operationalCounters.patientRegistered();
         return mapEntityToDto(patient);
     }
 
+    public List<DuplicateCandidateDTO> findDuplicates(PatientDTO dto) {
+        Candidate probe = new Candidate(dto.getId(), dto.getFullName(), dto.getDateOfBirth(), dto.getPhone(), dto.getIdNumber());
+        return duplicatePatientService.findCandidates(probe).stream()
+                .map(c -> new DuplicateCandidateDTO(mapEntityToDto(c.patient()), c.match().score(), c.match().reasons()))
+                .collect(Collectors.toList());
+    }
+
     public PatientDTO getPatient(Long id) {
         Patient patient = patientRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Patient", id));
@@ -50,28 +88,44 @@ public class PatientService {
         return patientRepository.findAll(pageable).map(this::mapEntityToDto);
     }
 
+    public CursorPage<PatientDTO> scrollPatients(String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Patient> rows = patientRepository.findPageBefore(after.createdAt(), after.id(), PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, p -> new PageCursor(p.getCreatedAt(), p.getId()), this::mapEntityToDto);
+    }
+
     public Page<PatientDTO> searchPatients(String query, Pageable pageable) {
-        return patientRepository.searchPatients(query, pageable).map(this::mapEntityToDto);
+        return patientSearchService.search(query, pageable).map(this::mapEntityToDto);
+    }
+
+    public List<PatientDTO> typeaheadPatients(String query, int limit) {
+        return patientSearchService.typeahead(query, limit).stream()
+                .map(this::mapEntityToDto).collect(Collectors.toList());
     }
 
     @Transactional(readOnly = false)
     public PatientDTO updatePatient(Long id, PatientDTO dto) {
         Patient patient = patientRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Patient", id));
+        List<Object> shownOnWard = wardFields(patient);
         mapDtoToEntity(dto, patient);
         patient = patientRepository.save(patient);
+        duplicatePatientService.indexPatient(patient);
+        if (!shownOnWard.equals(wardFields(patient))) {
+            // The ward hierarchy shows admitted patients' details, so its ETag has to move with them
+            admissionRepository.findWardIdsByPatientIdAndStatus(id, AdmissionStatus.ADMITTED).forEach(bedBoard::wardTouched);
+        }
         return mapEntityToDto(patient);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countPatientsToday() {
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        return patientRepository.countByCreatedAtBetween(startOfDay, endOfDay);
+        return operationalCounters.get(OperationalCounters.Counter.PATIENTS_TODAY);
     }
 
-    private String generatePatientNo() {
-        long count = patientRepository.count() + 1 + counter.incrementAndGet();
-        return "PT-" + Year.now().getValue() + "-" + String.format("%06d", count);
+    /** The patient fields in the ward hierarchy's occupant entries. */
+    private static List<Object> wardFields(Patient patient) {
+        return Arrays.asList(patient.getFullName(), patient.getGender(), patient.getDateOfBirth(), patient.getAllergies());
     }
 
     private void mapDtoToEntity(PatientDTO dto, Patient patient) {
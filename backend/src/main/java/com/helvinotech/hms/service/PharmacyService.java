@@ -1,26 +1,54 @@
 package com.helvinotech.hms.service;
 
+import com.helvinotech.hms.dto.BatchDispenseRequest;
+import com.helvinotech.hms.dto.BatchDispenseResultDTO;
 import com.helvinotech.hms.dto.DrugDTO;
+import com.helvinotech.hms.dto.DrugLotDTO;
+import com.helvinotech.hms.dto.InteractionWarningDTO;
 import com.helvinotech.hms.dto.PrescriptionDTO;
+import com.helvinotech.hms.dto.ReorderSuggestionDTO;
+import com.helvinotech.hms.dto.StockBalanceDTO;
+import com.helvinotech.hms.dto.StockCountDTO;
+import com.helvinotech.hms.dto.StockMovementDTO;
 import com.helvinotech.hms.entity.Drug;
 import com.helvinotech.hms.entity.Prescription;
 import com.helvinotech.hms.entity.User;
 import com.helvinotech.hms.entity.Visit;
+import com.helvinotech.hms.enums.DispenseOutcome;
+import com.helvinotech.hms.enums.StockMovementType;
+import com.helvinotech.hms.event.DrugChangedEvent;
+import com.helvinotech.hms.event.DrugDispensedEvent;
 import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ConfirmationRequiredException;
+import com.helvinotech.hms.exception.ConflictException;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.DrugRepository;
 import com.helvinotech.hms.repository.PrescriptionRepository;
 import com.helvinotech.hms.repository.UserRepository;
 import com.helvinotech.hms.repository.VisitRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,13 +60,26 @@ public class PharmacyService {
     private final PrescriptionRepository prescriptionRepository;
     private final UserRepository userRepository;
     private final VisitRepository visitRepository;
+    private final DrugLotService drugLotService;
+    private final StockLedgerService stockLedger;
+    private final ReorderEngine reorderEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FormularyIndex formularyIndex;
+    private final DrugInteractionService drugInteractionService;
+    private final NamedParameterJdbcTemplate namedJdbc;
 
     @Transactional(readOnly = false)
     public DrugDTO createDrug(DrugDTO dto) {
         Drug drug = new Drug();
         mapDtoToEntity(dto, drug);
+        drug.setQuantityInStock(0);
         drug.setActive(true);
-        return mapDrugToDto(drugRepository.save(drug));
+        drug = drugRepository.save(drug);
+        if (dto.getQuantityInStock() != null && dto.getQuantityInStock() > 0) {
+            drugLotService.receive(drug, dto.getBatchNumber(), dto.getExpiryDate(), dto.getQuantityInStock(),
+                    dto.getCostPrice(), dto.getSupplier(), StockMovementType.RECEIPT);
+        }
+        return publishChanged(getDrug(drug.getId()));
     }
 
     public DrugDTO getDrug(Long id) {
@@ -50,46 +91,220 @@ public class PharmacyService {
         return drugRepository.findByActiveTrue(pageable).map(this::mapDrugToDto);
     }
 
+    /** Served from the in-memory formulary index; see {@link FormularyIndex}. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<DrugDTO> searchDrugs(String query, Pageable pageable) {
-        return drugRepository.searchDrugs(query, pageable).map(this::mapDrugToDto);
+        return formularyIndex.search(query, pageable);
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.pharmacy.formulary-reload-ms:600000}", initialDelayString = "${app.pharmacy.formulary-reload-ms:600000}")
+    public void reloadFormulary() {
+        formularyIndex.replaceAll(drugRepository.findByActiveTrue().stream().map(this::mapDrugToDto).toList());
+    }
+
+    /**
+     * Catalogue details only. The form's stock, batch and expiry are ignored: they describe lots, which
+     * change only through receipts, dispensing, returns and {@link #recordStockCount}.
+     */
     @Transactional(readOnly = false)
     public DrugDTO updateDrug(Long id, DrugDTO dto) {
         Drug drug = drugRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Drug", id));
         mapDtoToEntity(dto, drug);
-        return mapDrugToDto(drugRepository.save(drug));
+        drugRepository.save(drug);
+        return publishChanged(getDrug(id));
+    }
+
+    /**
+     * Books the difference between a physical count and the stock it was taken against: a surplus as an
+     * adjustment lot, a shortfall written off. Refused with a conflict if the stock has moved since, so a
+     * count taken before a dispense cannot undo it.
+     */
+    @Transactional(readOnly = false)
+    public DrugDTO recordStockCount(Long id, StockCountDTO dto) {
+        Drug drug = drugRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Drug", id));
+        if (drugRepository.lockIfStockIs(id, dto.getExpectedQuantity()) == 0) {
+            throw new ConflictException("Stock of " + drug.getGenericName() + " has changed since it was counted; reload and count again");
+        }
+        int delta = dto.getCountedQuantity() - dto.getExpectedQuantity();
+        String reason = dto.getReason() != null && !dto.getReason().isBlank() ? dto.getReason() : "Stock count correction";
+        if (delta > 0) {
+            drugLotService.receive(drug, dto.getBatchNumber(), dto.getExpiryDate(), delta, drug.getCostPrice(),
+                    drug.getSupplier(), StockMovementType.ADJUSTMENT);
+        } else if (delta < 0) {
+            drugLotService.writeOff(drug, -delta, reason);
+        }
+        return publishChanged(getDrug(id));
+    }
+
+    @Transactional(readOnly = false)
+    public DrugLotDTO receiveLot(Long drugId, DrugLotDTO dto) {
+        DrugLotDTO lot = drugLotService.receive(drugId, dto);
+        publishChanged(getDrug(drugId));
+        return lot;
+    }
+
+    public List<DrugLotDTO> getDrugLots(Long drugId) {
+        return drugLotService.getLots(drugId);
+    }
+
+    public List<DrugLotDTO> getExpiringLots(int days) {
+        return drugLotService.getExpiringLots(days);
+    }
+
+    @Transactional(readOnly = false)
+    public DrugLotDTO returnToLot(Long lotId, int quantity, String reference) {
+        DrugLotDTO lot = drugLotService.returnToLot(lotId, quantity, reference);
+        eventPublisher.publishEvent(new DrugDispensedEvent(lot.getDrugId(), -quantity));
+        return lot;
+    }
+
+    public StockBalanceDTO getStockAsOf(Long drugId, LocalDateTime asOf) {
+        if (!drugRepository.existsById(drugId)) throw new ResourceNotFoundException("Drug", drugId);
+        return stockLedger.getBalanceAsOf(drugId, asOf);
+    }
+
+    public Page<StockMovementDTO> getStockMovements(Long drugId, LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return stockLedger.getMovements(drugId, from, to, pageable);
     }
 
+    /**
+     * The prescription is claimed and the stock taken with conditional single-statement UPDATEs, so
+     * concurrent dispenses can neither oversell nor dispense the same prescription twice. If stock is
+     * insufficient the exception rolls back the claim on the prescription.
+     */
     @Transactional(readOnly = false)
     public PrescriptionDTO dispensePrescription(Long prescriptionId, Long pharmacistId) {
-        Prescription rx = prescriptionRepository.findById(prescriptionId)
+        Prescription rx = prescriptionRepository.findWithDrugById(prescriptionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Prescription", prescriptionId));
         if (rx.isDispensed()) throw new BadRequestException("Already dispensed");
+        User pharmacist = userRepository.findById(pharmacistId)
+                .orElseThrow(() -> new ResourceNotFoundException("User", pharmacistId));
 
         Drug drug = rx.getDrug();
-        int qty = rx.getQuantityPrescribed() != null ? rx.getQuantityPrescribed() : 1;
-        if (drug.getQuantityInStock() < qty) throw new BadRequestException("Insufficient stock for " + drug.getGenericName());
+        int qty = quantityOf(rx);
+        LocalDateTime now = LocalDateTime.now();
 
-        drug.setQuantityInStock(drug.getQuantityInStock() - qty);
-        drugRepository.save(drug);
+        if (prescriptionRepository.markDispensed(prescriptionId, qty, pharmacist, now) == 0) {
+            throw new BadRequestException("Already dispensed");
+        }
+        String batches = drugLotService.allocate(drug, qty, "RX-" + prescriptionId).stream()
+                .map(DrugLotService.Allocation::toString).collect(Collectors.joining(", "));
+        prescriptionRepository.recordDispensedBatches(prescriptionId, batches);
+        eventPublisher.publishEvent(new DrugDispensedEvent(drug.getId(), qty));
 
+        // The entities were not modified, so nothing else is flushed; report the state just written
+        PrescriptionDTO dto = mapPrescriptionToDto(rx);
+        dto.setDispensed(true);
+        dto.setQuantityDispensed(qty);
+        dto.setDispensedByName(pharmacist.getFullName());
+        dto.setDispensedAt(now);
+        dto.setDispensedBatches(batches);
+        return dto;
+    }
+
+    /**
+     * Dispenses a visit's prescriptions (or the listed ones) in one transaction. All lines are claimed
+     * with a single UPDATE ... RETURNING, so lines dispensed earlier or by a concurrent request are
+     * reported rather than failing the batch. Claimed lines are then allocated in drug order, which keeps
+     * the drug row locks in the same order as any other batch; a line its stock cannot cover is released
+     * again and reported, and the rest are still dispensed.
+     */
+    @Transactional(readOnly = false)
+    public BatchDispenseResultDTO dispenseBatch(BatchDispenseRequest request, Long pharmacistId) {
+        Long visitId = request.getVisitId();
+        List<Long> requestedIds = request.getPrescriptionIds();
+        List<Prescription> prescriptions;
+        if (requestedIds != null && !requestedIds.isEmpty()) {
+            prescriptions = prescriptionRepository.findWithDrugByIdIn(requestedIds).stream()
+                    .filter(rx -> visitId == null || visitId.equals(rx.getVisit().getId())).toList();
+        } else if (visitId != null) {
+            if (!visitRepository.existsById(visitId)) throw new ResourceNotFoundException("Visit", visitId);
+            prescriptions = prescriptionRepository.findByVisitId(visitId);
+            requestedIds = prescriptions.stream().map(Prescription::getId).toList();
+        } else {
+            throw new BadRequestException("Specify a visit or the prescriptions to dispense");
+        }
         User pharmacist = userRepository.findById(pharmacistId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", pharmacistId));
-        rx.setDispensed(true);
-        rx.setQuantityDispensed(qty);
-        rx.setDispensedBy(pharmacist);
-        rx.setDispensedAt(LocalDateTime.now());
-        return mapPrescriptionToDto(prescriptionRepository.save(rx));
+
+        Map<Long, Prescription> byId = prescriptions.stream()
+                .collect(Collectors.toMap(Prescription::getId, Function.identity()));
+        Map<Long, BatchDispenseResultDTO.Line> lines = new LinkedHashMap<>();
+        for (Long id : requestedIds) {
+            Prescription rx = byId.get(id);
+            lines.putIfAbsent(id, rx == null
+                    ? new BatchDispenseResultDTO.Line(id, null, null, null, DispenseOutcome.NOT_FOUND,
+                            visitId == null ? "Prescription not found" : "Prescription not found on this visit", null)
+                    : new BatchDispenseResultDTO.Line(id, rx.getDrug().getId(), rx.getDrug().getGenericName(),
+                            quantityOf(rx), DispenseOutcome.ALREADY_DISPENSED, "Already dispensed", null));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = byId.isEmpty() ? List.of() : namedJdbc.queryForList(
+                "UPDATE prescriptions SET dispensed = true, quantity_dispensed = COALESCE(quantity_prescribed, 1), " +
+                "dispensed_by = :pharmacist, dispensed_at = :at WHERE id IN (:ids) AND dispensed = false RETURNING id",
+                new MapSqlParameterSource("ids", byId.keySet())
+                        .addValue("pharmacist", pharmacist.getId()).addValue("at", now), Long.class);
+
+        List<Prescription> toAllocate = claimed.stream().map(byId::get)
+                .sorted(Comparator.comparing((Prescription rx) -> rx.getDrug().getId()).thenComparing(Prescription::getId))
+                .toList();
+        List<Long> shortages = new ArrayList<>();
+        List<MapSqlParameterSource> batchUpdates = new ArrayList<>();
+        Map<Long, Integer> dispensedByDrug = new HashMap<>();
+        for (Prescription rx : toAllocate) {
+            int qty = quantityOf(rx);
+            BatchDispenseResultDTO.Line line = lines.get(rx.getId());
+            List<DrugLotService.Allocation> allocations = drugLotService.tryAllocate(rx.getDrug(), qty, "RX-" + rx.getId());
+            if (allocations == null) {
+                shortages.add(rx.getId());
+                line.setOutcome(DispenseOutcome.INSUFFICIENT_STOCK);
+                line.setMessage("Insufficient unexpired stock for " + rx.getDrug().getGenericName());
+                continue;
+            }
+            String batches = allocations.stream()
+                    .map(DrugLotService.Allocation::toString).collect(Collectors.joining(", "));
+            batchUpdates.add(new MapSqlParameterSource("id", rx.getId()).addValue("batches", batches));
+            dispensedByDrug.merge(rx.getDrug().getId(), qty, Integer::sum);
+            line.setOutcome(DispenseOutcome.DISPENSED);
+            line.setMessage(null);
+            line.setDispensedBatches(batches);
+        }
+
+        if (!shortages.isEmpty()) {
+            namedJdbc.update("UPDATE prescriptions SET dispensed = false, quantity_dispensed = NULL, dispensed_by = NULL, " +
+                    "dispensed_at = NULL WHERE id IN (:ids)", new MapSqlParameterSource("ids", shortages));
+        }
+        if (!batchUpdates.isEmpty()) {
+            namedJdbc.batchUpdate("UPDATE prescriptions SET dispensed_batches = :batches WHERE id = :id",
+                    batchUpdates.toArray(new MapSqlParameterSource[0]));
+        }
+        dispensedByDrug.forEach((drugId, qty) -> eventPublisher.publishEvent(new DrugDispensedEvent(drugId, qty)));
+
+        int dispensed = batchUpdates.size();
+        return new BatchDispenseResultDTO(dispensed, lines.size() - dispensed, new ArrayList<>(lines.values()));
     }
 
+    /**
+     * Checked against the patient's active medications and allergies first. Allergy and contraindication
+     * warnings block the prescription with a 409 listing every warning until the prescriber confirms with
+     * {@code overrideWarnings}; all warnings are stored on it.
+     */
     @Transactional(readOnly = false)
     public PrescriptionDTO createPrescription(PrescriptionDTO dto) {
         Visit visit = visitRepository.findById(dto.getVisitId())
                 .orElseThrow(() -> new ResourceNotFoundException("Visit", dto.getVisitId()));
         Drug drug = drugRepository.findById(dto.getDrugId())
                 .orElseThrow(() -> new ResourceNotFoundException("Drug", dto.getDrugId()));
+        List<InteractionWarningDTO> warnings = drugInteractionService.checkNew(visit, drug);
+        List<InteractionWarningDTO> blocking = warnings.stream().filter(InteractionWarningDTO::isBlocking).toList();
+        if (!blocking.isEmpty() && !dto.isOverrideWarnings()) {
+            throw new ConfirmationRequiredException(InteractionChecker.summarize(blocking)
+                    + ". Review the warnings and confirm to prescribe anyway", warnings);
+        }
         Prescription rx = Prescription.builder()
                 .visit(visit)
                 .drug(drug)
@@ -98,6 +313,7 @@ public class PharmacyService {
                 .duration(dto.getDuration())
                 .quantityPrescribed(dto.getQuantityPrescribed())
                 .instructions(dto.getInstructions())
+                .interactionWarnings(InteractionChecker.summarize(warnings))
                 .build();
         return mapPrescriptionToDto(prescriptionRepository.save(rx));
     }
@@ -112,9 +328,18 @@ public class PharmacyService {
                 .stream().map(this::mapPrescriptionToDto).collect(Collectors.toList());
     }
 
+    /** Drugs the reorder engine says to reorder now, least days of cover first. */
     public List<DrugDTO> getLowStockDrugs() {
-        return drugRepository.findByQuantityInStockLessThanEqual(10)
-                .stream().map(this::mapDrugToDto).collect(Collectors.toList());
+        List<Long> ids = reorderEngine.getReorderNowIds();
+        Map<Long, Drug> drugs = drugRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Drug::getId, Function.identity()));
+        return ids.stream().map(drugs::get).filter(Objects::nonNull)
+                .map(this::mapDrugToDto).collect(Collectors.toList());
+    }
+
+    public List<ReorderSuggestionDTO> getReorderSuggestions(boolean dueOnly) {
+        List<ReorderSuggestionDTO> suggestions = reorderEngine.getSuggestions();
+        return dueOnly ? suggestions.stream().filter(ReorderSuggestionDTO::isReorderNow).toList() : suggestions;
     }
 
     public List<DrugDTO> getExpiringDrugs() {
@@ -122,16 +347,22 @@ public class PharmacyService {
                 .stream().map(this::mapDrugToDto).collect(Collectors.toList());
     }
 
+    private static int quantityOf(Prescription rx) {
+        return rx.getQuantityPrescribed() != null ? rx.getQuantityPrescribed() : 1;
+    }
+
+    private DrugDTO publishChanged(DrugDTO drug) {
+        eventPublisher.publishEvent(new DrugChangedEvent(drug));
+        return drug;
+    }
+
     private void mapDtoToEntity(DrugDTO dto, Drug drug) {
         drug.setGenericName(dto.getGenericName());
         drug.setBrandName(dto.getBrandName());
         drug.setCategory(dto.getCategory());
         drug.setFormulation(dto.getFormulation());
         drug.setStrength(dto.getStrength());
-        drug.setQuantityInStock(dto.getQuantityInStock());
         drug.setReorderLevel(dto.getReorderLevel());
-        drug.setBatchNumber(dto.getBatchNumber());
-        drug.setExpiryDate(dto.getExpiryDate());
         drug.setSupplier(dto.getSupplier());
         drug.setCostPrice(dto.getCostPrice());
         drug.setSellingPrice(dto.getSellingPrice());
@@ -174,6 +405,8 @@ public class PharmacyService {
         dto.setDispensed(p.isDispensed());
         if (p.getDispensedBy() != null) dto.setDispensedByName(p.getDispensedBy().getFullName());
         dto.setDispensedAt(p.getDispensedAt());
+        dto.setDispensedBatches(p.getDispensedBatches());
+        dto.setInteractionWarnings(p.getInteractionWarnings());
         dto.setCreatedAt(p.getCreatedAt());
         return dto;
     }
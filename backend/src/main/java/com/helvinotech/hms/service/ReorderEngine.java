@@ -0,0 +1,160 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.ReorderSuggestionDTO;
+import com.helvinotech.hms.event.DrugDispensedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reorder suggestions from consumption velocity. Each drug keeps an exponentially weighted daily
+ * consumption rate, folded in at midnight from the day's dispenses (fed by {@link DrugDispensedEvent})
+ * and seeded at startup from the stock movement ledger. The reorder list is recomputed in the
+ * background and served from memory; a drug needs reordering when its stock will not last the supplier
+ * lead time plus a safety margin, or has fallen to its configured reorder level.
+ */
+@Component
+@Slf4j
+public class ReorderEngine {
+
+    private static final int DEFAULT_REORDER_LEVEL = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double alpha;
+    private final int seedDays;
+    private final int leadTimeDays;
+    private final int safetyDays;
+    private final int targetCoverDays;
+
+    private static final class Rate {
+        volatile double dailyRate;
+        final LongAdder today = new LongAdder();
+    }
+
+    private final Map<Long, Rate> rates = new ConcurrentHashMap<>();
+    private volatile LocalDate rolledThrough;
+    private volatile List<ReorderSuggestionDTO> suggestions = List.of();
+
+    public ReorderEngine(JdbcTemplate jdbcTemplate,
+                         @Value("${app.pharmacy.reorder.ewma-days:14}") int ewmaDays,
+                         @Value("${app.pharmacy.reorder.lead-time-days:7}") int leadTimeDays,
+                         @Value("${app.pharmacy.reorder.safety-days:3}") int safetyDays,
+                         @Value("${app.pharmacy.reorder.target-cover-days:30}") int targetCoverDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.alpha = 2.0 / (Math.max(1, ewmaDays) + 1);
+        this.seedDays = Math.max(1, ewmaDays) * 4;
+        this.leadTimeDays = leadTimeDays;
+        this.safetyDays = safetyDays;
+        this.targetCoverDays = targetCoverDays;
+    }
+
+    public List<ReorderSuggestionDTO> getSuggestions() {
+        return suggestions;
+    }
+
+    /** Drugs due for reordering, least cover first. */
+    public List<Long> getReorderNowIds() {
+        return suggestions.stream().filter(ReorderSuggestionDTO::isReorderNow)
+                .map(ReorderSuggestionDTO::getDrugId).toList();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDispensed(DrugDispensedEvent event) {
+        rates.computeIfAbsent(event.drugId(), id -> new Rate()).today.add(event.quantity());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        LocalDate today = LocalDate.now();
+        LocalDate start = today.minusDays(seedDays);
+        Map<Long, SortedMap<LocalDate, Long>> daily = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT drug_id, CAST(occurred_at AS date) AS day, -SUM(quantity) AS consumed FROM stock_movements " +
+                "WHERE type IN ('DISPENSE', 'RETURN') AND occurred_at >= ? GROUP BY drug_id, CAST(occurred_at AS date)",
+                rs -> {
+                    daily.computeIfAbsent(rs.getLong("drug_id"), id -> new TreeMap<>())
+                            .put(rs.getDate("day").toLocalDate(), rs.getLong("consumed"));
+                },
+                Timestamp.valueOf(start.atStartOfDay()));
+
+        synchronized (this) {
+            daily.forEach((drugId, days) -> {
+                Rate rate = rates.computeIfAbsent(drugId, id -> new Rate());
+                double ewma = 0;
+                for (LocalDate day = start; day.isBefore(today); day = day.plusDays(1)) {
+                    ewma = alpha * days.getOrDefault(day, 0L) + (1 - alpha) * ewma;
+                }
+                rate.dailyRate = ewma;
+                // The ledger already holds today's dispenses, including any counted live before the seed ran
+                rate.today.reset();
+                rate.today.add(days.getOrDefault(today, 0L));
+            });
+            rolledThrough = today;
+        }
+        log.info("Consumption rates seeded for {} drugs from {} days of dispensing", daily.size(), seedDays);
+        recompute();
+    }
+
+    /** Folds the finished day(s) into each rate; days the application was down count as zero use. */
+    @Scheduled(cron = "0 0 0 * * *")
+    public synchronized void rollOver() {
+        LocalDate today = LocalDate.now();
+        if (rolledThrough == null || !today.isAfter(rolledThrough)) return;
+        long elapsed = ChronoUnit.DAYS.between(rolledThrough, today);
+        double idleDecay = Math.pow(1 - alpha, elapsed - 1);
+        rates.values().forEach(rate -> {
+            long consumed = rate.today.sumThenReset();
+            rate.dailyRate = (alpha * consumed + (1 - alpha) * rate.dailyRate) * idleDecay;
+        });
+        rolledThrough = today;
+        recompute();
+    }
+
+    @Scheduled(fixedDelayString = "${app.pharmacy.reorder.refresh-ms:300000}", initialDelayString = "${app.pharmacy.reorder.refresh-ms:300000}")
+    public void recompute() {
+        List<ReorderSuggestionDTO> computed = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT id, generic_name, brand_name, quantity_in_stock, reorder_level FROM drugs WHERE active = true",
+                rs -> {
+                    long drugId = rs.getLong("id");
+                    int stock = rs.getInt("quantity_in_stock");
+                    Integer reorderLevel = (Integer) rs.getObject("reorder_level");
+                    Rate rate = rates.get(drugId);
+                    computed.add(suggest(drugId, rs.getString("generic_name"), rs.getString("brand_name"),
+                            stock, reorderLevel, rate != null ? rate.dailyRate : 0));
+                });
+        computed.sort(Comparator.comparing(ReorderSuggestionDTO::isReorderNow).reversed()
+                .thenComparing(s -> s.getDaysOfCover() != null ? s.getDaysOfCover() : Double.MAX_VALUE));
+        suggestions = List.copyOf(computed);
+    }
+
+    private ReorderSuggestionDTO suggest(long drugId, String genericName, String brandName,
+                                         int stock, Integer reorderLevel, double dailyRate) {
+        int level = reorderLevel != null ? reorderLevel : DEFAULT_REORDER_LEVEL;
+        int velocityPoint = (int) Math.ceil(dailyRate * (leadTimeDays + safetyDays));
+        int reorderPoint = Math.max(level, velocityPoint);
+        boolean reorderNow = stock <= reorderPoint;
+        int target = Math.max(reorderPoint, (int) Math.ceil(dailyRate * (leadTimeDays + targetCoverDays)));
+        int suggested = reorderNow ? Math.max(0, target - stock) : 0;
+        Double daysOfCover = dailyRate > 0
+                ? BigDecimal.valueOf(stock / dailyRate).setScale(1, RoundingMode.HALF_UP).doubleValue() : null;
+        return new ReorderSuggestionDTO(drugId, genericName, brandName, stock, reorderLevel,
+                BigDecimal.valueOf(dailyRate).setScale(2, RoundingMode.HALF_UP).doubleValue(),
+                daysOfCover, reorderPoint, suggested, reorderNow);
+    }
+}
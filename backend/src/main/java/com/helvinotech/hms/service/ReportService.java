@@ -1,5 +1,6 @@
 package com.helvinotech.hms.service;
 
+import com.helvinotech.hms.enums.FinancialMetric;
 import com.helvinotech.hms.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -8,27 +9,44 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReportService {
 
-    private final BillingRepository billingRepository;
-    private final PaymentRepository paymentRepository;
-    private final ExpenseRepository expenseRepository;
+    private static final int MAX_CACHED_REPORTS = 256;
+
+    private final DailyFinancialFactRepository factRepository;
+    private final FinancialFactService financialFactService;
     private final PatientRepository patientRepository;
     private final VisitRepository visitRepository;
 
+    private final Map<String, CachedReport> closedReports = new ConcurrentHashMap<>();
+
+    private record CachedReport(long revision, Map<String, Object> report) {}
+
+    /**
+     * Aggregates the daily fact table, so the cost grows with the number of days rather than transactions.
+     * Reports that end before today only change when a past day is re-posted, so they are cached per range
+     * until the fact revision moves.
+     */
     public Map<String, Object> getFinancialReport(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        boolean closed = endDate.isBefore(LocalDate.now());
+        String key = startDate + ".." + endDate;
+        long revision = financialFactService.getClosedDaysRevision();
+        if (closed) {
+            CachedReport cached = closedReports.get(key);
+            if (cached != null && cached.revision() == revision) {
+                return cached.report();
+            }
+        }
 
-        BigDecimal revenue = billingRepository.sumRevenueByDateRange(start, end);
-        BigDecimal payments = paymentRepository.sumPaymentsByDateRange(start, end);
-        BigDecimal expenses = expenseRepository.sumExpensesByDateRange(startDate, endDate);
+        BigDecimal revenue = factRepository.sumByMetric(FinancialMetric.REVENUE, startDate, endDate);
+        BigDecimal payments = factRepository.sumByMetric(FinancialMetric.PAYMENTS, startDate, endDate);
+        BigDecimal expenses = factRepository.sumByMetric(FinancialMetric.EXPENSES, startDate, endDate);
 
         Map<String, Object> report = new HashMap<>();
         report.put("startDate", startDate);
@@ -37,6 +55,15 @@ public class ReportService {
         report.put("totalPayments", payments);
         report.put("totalExpenses", expenses);
         report.put("netIncome", payments.subtract(expenses));
+        report.put("paymentsByMethod", breakdown(FinancialMetric.PAYMENTS, startDate, endDate));
+        report.put("billedByServiceType", breakdown(FinancialMetric.BILLED, startDate, endDate));
+        report.put("expensesByCategory", breakdown(FinancialMetric.EXPENSES, startDate, endDate));
+
+        if (closed) {
+            if (closedReports.size() >= MAX_CACHED_REPORTS) closedReports.clear();
+            report = Collections.unmodifiableMap(report);
+            closedReports.put(key, new CachedReport(revision, report));
+        }
         return report;
     }
 
@@ -51,4 +78,12 @@ public class ReportService {
         report.put("totalVisits", visitRepository.countByCreatedAtBetween(start, end));
         return report;
     }
+
+    private Map<String, BigDecimal> breakdown(FinancialMetric metric, LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        for (Object[] row : factRepository.sumByDimension(metric, startDate, endDate)) {
+            totals.put((String) row[0], (BigDecimal) row[1]);
+        }
+        return totals;
+    }
 }
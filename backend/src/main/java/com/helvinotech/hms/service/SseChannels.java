@@ -0,0 +1,76 @@
+package com.helvinotech.hms.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Server-sent event subscribers grouped by key. Emitters that fail a send are dropped; clients are
+ * expected to reconnect with Last-Event-ID.
+ */
+@Slf4j
+public class SseChannels<K> {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final Map<K, Set<SseEmitter>> channels = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(K key) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        channels.compute(key, (k, emitters) -> {
+            Set<SseEmitter> set = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            set.add(emitter);
+            return set;
+        });
+        emitter.onCompletion(() -> remove(key, emitter));
+        emitter.onTimeout(() -> remove(key, emitter));
+        emitter.onError(e -> remove(key, emitter));
+        return emitter;
+    }
+
+    /** Event builders are single-use, so one is built per subscriber. */
+    public void broadcast(K key, Supplier<SseEmitter.SseEventBuilder> event) {
+        Set<SseEmitter> emitters = channels.get(key);
+        if (emitters == null) return;
+        for (SseEmitter emitter : emitters) {
+            send(key, emitter, event.get());
+        }
+    }
+
+    public boolean send(K key, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping SSE subscriber on {}: {}", key, e.getMessage());
+            remove(key, emitter);
+            emitter.complete();
+            return false;
+        }
+    }
+
+    /** Comment frame that keeps proxies from closing idle streams and flushes out dead connections. */
+    public void heartbeat() {
+        channels.forEach((key, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                send(key, emitter, SseEmitter.event().comment("ping"));
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return channels.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void remove(K key, SseEmitter emitter) {
+        channels.computeIfPresent(key, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.helvinotech.hms.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pending SSE sends for one stream of events, written in the order they were added by one sender at a
+ * time on the given executor. Callers add under whatever lock orders their events and flush after
+ * releasing it, so a slow subscriber never holds up the thread that produced the event.
+ */
+public class SseOutbox {
+
+    private final Executor sender;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    public SseOutbox(Executor sender) {
+        this.sender = sender;
+    }
+
+    public void add(Runnable send) {
+        pending.add(send);
+    }
+
+    /** Starts a sender for the pending sends unless one is already running. */
+    public void flush() {
+        if (!pending.isEmpty() && sending.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            try {
+                Runnable send;
+                while ((send = pending.poll()) != null) {
+                    send.run();
+                }
+            } finally {
+                sending.set(false);
+            }
+            // A send added after the last poll but before the flag was cleared saw a sender still running
+        } while (!pending.isEmpty() && sending.compareAndSet(false, true));
+    }
+}
@@ -0,0 +1,161 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.StockBalanceDTO;
+import com.helvinotech.hms.dto.StockMovementDTO;
+import com.helvinotech.hms.entity.StockMovement;
+import com.helvinotech.hms.entity.StockSnapshot;
+import com.helvinotech.hms.enums.StockMovementType;
+import com.helvinotech.hms.repository.StockMovementRepository;
+import com.helvinotech.hms.repository.StockSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only journal of stock movements. Movements recorded during a transaction are buffered and
+ * written with one JDBC batch just before it commits, so they land atomically with the stock change
+ * they describe. A nightly job snapshots every drug's balance at midnight from the previous snapshot
+ * plus the day's movements; "stock as of" reads the nearest earlier snapshot and replays only the
+ * movements after it.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Slf4j
+public class StockLedgerService {
+
+    private static final String INSERT =
+            "INSERT INTO stock_movements (drug_id, lot_id, type, quantity, occurred_at, reference) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final StockMovementRepository movementRepository;
+    private final StockSnapshotRepository snapshotRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private record PendingMovement(Long drugId, Long lotId, StockMovementType type, int quantity,
+                                   LocalDateTime occurredAt, String reference) {}
+
+    /** {@code quantity} is signed: positive into stock, negative out of it. */
+    @Transactional(readOnly = false)
+    public void record(Long drugId, Long lotId, StockMovementType type, int quantity, String reference) {
+        if (quantity == 0) return;
+        PendingMovement movement = new PendingMovement(drugId, lotId, type, quantity, LocalDateTime.now(), reference);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(movement));
+            return;
+        }
+        pendingMovements().add(movement);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PendingMovement> pendingMovements() {
+        List<PendingMovement> pending = (List<PendingMovement>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PendingMovement> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockLedgerService.this);
+                }
+            });
+            pending = buffer;
+        }
+        return pending;
+    }
+
+    private void write(List<PendingMovement> movements) {
+        if (movements.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT, movements, movements.size(), (ps, m) -> {
+            ps.setLong(1, m.drugId());
+            ps.setObject(2, m.lotId());
+            ps.setString(3, m.type().name());
+            ps.setInt(4, m.quantity());
+            ps.setTimestamp(5, Timestamp.valueOf(m.occurredAt()));
+            ps.setString(6, m.reference());
+        });
+    }
+
+    public StockBalanceDTO getBalanceAsOf(Long drugId, LocalDateTime asOf) {
+        Optional<StockSnapshot> snapshot = snapshotRepository.findFirstByDrugIdAndAsOfLessThanEqualOrderByAsOfDesc(drugId, asOf);
+        LocalDateTime from = snapshot.map(StockSnapshot::getAsOf).orElse(LocalDateTime.of(1970, 1, 1, 0, 0));
+        long base = snapshot.map(StockSnapshot::getBalance).orElse(0);
+        long quantity = base + movementRepository.sumQuantity(drugId, from, asOf);
+        long replayed = movementRepository.countBetween(drugId, from, asOf);
+        return new StockBalanceDTO(drugId, asOf, quantity, snapshot.map(StockSnapshot::getAsOf).orElse(null), replayed);
+    }
+
+    public Page<StockMovementDTO> getMovements(Long drugId, LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return movementRepository.findByDrugIdAndOccurredAtBetweenOrderByOccurredAtDescIdDesc(drugId, from, to, pageable)
+                .map(this::mapToDto);
+    }
+
+    /**
+     * Snapshots every drug at {@code asOf} from its latest earlier snapshot plus the movements since.
+     * Runs a quarter of an hour after midnight so transactions that recorded movements just before
+     * midnight have committed.
+     */
+    @Scheduled(cron = "0 15 0 * * *")
+    @Transactional(readOnly = false)
+    public void snapshotMidnight() {
+        takeSnapshots(LocalDate.now().atStartOfDay());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = false)
+    public void snapshotIfMissed() {
+        LocalDateTime midnight = LocalDate.now().atStartOfDay();
+        if (LocalDateTime.now().isAfter(midnight.plusMinutes(15))) {
+            takeSnapshots(midnight);
+        }
+    }
+
+    @Transactional(readOnly = false)
+    public int takeSnapshots(LocalDateTime asOf) {
+        Timestamp cutoff = Timestamp.valueOf(asOf);
+        int created = jdbcTemplate.update(
+                "INSERT INTO stock_snapshots (drug_id, as_of, balance) " +
+                "SELECT d.id, ?, COALESCE(prev.balance, 0) + COALESCE((SELECT SUM(m.quantity) FROM stock_movements m " +
+                "WHERE m.drug_id = d.id AND m.occurred_at >= COALESCE(prev.as_of, TIMESTAMP '1970-01-01') AND m.occurred_at < ?), 0) " +
+                "FROM drugs d LEFT JOIN LATERAL (SELECT s.balance, s.as_of FROM stock_snapshots s " +
+                "WHERE s.drug_id = d.id AND s.as_of < ? ORDER BY s.as_of DESC LIMIT 1) prev ON true " +
+                "ON CONFLICT (drug_id, as_of) DO NOTHING",
+                cutoff, cutoff, cutoff);
+        if (created > 0) {
+            log.info("Stock snapshots taken for {} drugs as of {}", created, asOf);
+        }
+        return created;
+    }
+
+    private StockMovementDTO mapToDto(StockMovement m) {
+        StockMovementDTO dto = new StockMovementDTO();
+        dto.setId(m.getId());
+        dto.setDrugId(m.getDrugId());
+        dto.setLotId(m.getLotId());
+        dto.setType(m.getType());
+        dto.setQuantity(m.getQuantity());
+        dto.setOccurredAt(m.getOccurredAt());
+        dto.setReference(m.getReference());
+        return dto;
+    }
+}
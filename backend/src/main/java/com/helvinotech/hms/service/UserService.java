@@ -3,10 +3,12 @@ package com.helvinotech.hms.service;
 import com.helvinotech.hms.dto.UserDTO;
 import com.helvinotech.hms.entity.User;
 import com.helvinotech.hms.enums.UserRole;
+import com.helvinotech.hms.event.UserChangedEvent;
 import com.helvinotech.hms.exception.BadRequestException;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,6 +23,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = false)
     public UserDTO createUser(UserDTO dto) {
@@ -38,7 +41,9 @@ public class UserService {
                 .licenseNumber(dto.getLicenseNumber())
                 .active(true)
                 .build();
-        return mapToDto(userRepository.save(user));
+        user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), user.getTokenVersion()));
+        return mapToDto(user);
     }
 
     public UserDTO getUser(Long id) {
@@ -58,6 +63,8 @@ public class UserService {
     public UserDTO updateUser(Long id, UserDTO dto) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", id));
+        // Issued tokens carry the role, so a role or status change has to revoke them
+        boolean revokeTokens = user.getRole() != dto.getRole() || user.isActive() != dto.isActive();
         user.setFullName(dto.getFullName());
         user.setPhone(dto.getPhone());
         user.setRole(dto.getRole());
@@ -67,8 +74,14 @@ public class UserService {
         user.setActive(dto.isActive());
         if (dto.getPassword() != null && !dto.getPassword().isBlank()) {
             user.setPasswordHash(passwordEncoder.encode(dto.getPassword()));
+            revokeTokens = true;
         }
-        return mapToDto(userRepository.save(user));
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+        user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), user.getTokenVersion()));
+        return mapToDto(user);
     }
 
     @Transactional(readOnly = false)
@@ -79,7 +92,9 @@ public class UserService {
             throw new BadRequestException("Current password is incorrect");
         }
         user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), user.getTokenVersion()));
     }
 
     @Transactional(readOnly = false)
@@ -87,7 +102,9 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", id));
         user.setActive(false);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), user.getTokenVersion()));
     }
 
     private UserDTO mapToDto(User u) {
@@ -2,15 +2,20 @@ package com.helvinotech.hms.service;
 
 import com.helvinotech.hms.dto.*;
 import com.helvinotech.hms.entity.*;
+import com.helvinotech.hms.event.VisitChangedEvent;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,6 +27,9 @@ public class VisitService {
     private final VisitRepository visitRepository;
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
+    private final DoctorQueueRegistry doctorQueueRegistry;
+    private final OperationalCounters operationalCounters;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = false)
     public VisitDTO createVisit(VisitDTO dto) {
@@ -37,7 +45,8 @@ public class VisitService {
             visit.setDoctor(doctor);
         }
         visit = visitRepository.save(visit);
-        return mapToDto(visit);
+        operationalCounters.visitOpened();
+        return publish(visit, null);
     }
 
     public VisitDTO getVisit(Long id) {
@@ -50,15 +59,29 @@ public class VisitService {
         return visitRepository.findByPatientIdOrderByCreatedAtDesc(patientId, pageable).map(this::mapToDto);
     }
 
+    // Served from the in-memory registry; only the first request per doctor reaches the database
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<VisitDTO> getDoctorQueue(Long doctorId) {
-        return visitRepository.findByDoctorIdAndCompletedFalseOrderByCreatedAtAsc(doctorId)
-                .stream().map(this::mapToDto).collect(Collectors.toList());
+        return doctorQueueRegistry.snapshot(doctorId, this::loadDoctorQueue).getVisits();
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public SseEmitter streamDoctorQueue(Long doctorId, String lastEventId) {
+        return doctorQueueRegistry.subscribe(doctorId, lastEventId, this::loadDoctorQueue);
+    }
+
+    /** Corrects the in-memory queues for visits written by another node or directly in the database. */
+    @Scheduled(fixedDelayString = "${app.visits.queue-reload-ms:300000}", initialDelayString = "${app.visits.queue-reload-ms:300000}")
+    public void reloadDoctorQueues() {
+        doctorQueueRegistry.reconcile(doctorIds -> visitRepository.findByDoctorIdInAndCompletedFalse(doctorIds).stream()
+                .map(this::mapToDto).collect(Collectors.groupingBy(VisitDTO::getDoctorId)));
     }
 
     @Transactional(readOnly = false)
     public VisitDTO updateVisit(Long id, VisitDTO dto) {
         Visit visit = visitRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Visit", id));
+        Long previousDoctorId = visit.getDoctor() != null ? visit.getDoctor().getId() : null;
         if (dto.getDoctorId() != null) {
             User doctor = userRepository.findById(dto.getDoctorId())
                     .orElseThrow(() -> new ResourceNotFoundException("Doctor", dto.getDoctorId()));
@@ -79,7 +102,7 @@ public class VisitService {
         visit.setHeight(dto.getHeight());
         visit.setOxygenSaturation(dto.getOxygenSaturation());
         visit = visitRepository.save(visit);
-        return mapToDto(visit);
+        return publish(visit, previousDoctorId);
     }
 
     @Transactional(readOnly = false)
@@ -88,18 +111,35 @@ public class VisitService {
                 .orElseThrow(() -> new ResourceNotFoundException("Visit", id));
         visit.setCompleted(true);
         visit = visitRepository.save(visit);
-        return mapToDto(visit);
+        return publish(visit, null);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public long countVisitsToday() {
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        return visitRepository.countByCreatedAtBetween(startOfDay, startOfDay.plusDays(1));
+        return operationalCounters.get(OperationalCounters.Counter.VISITS_TODAY);
     }
 
     public Page<VisitDTO> getAllVisits(Pageable pageable) {
         return visitRepository.findAll(pageable).map(this::mapToDto);
     }
 
+    public CursorPage<VisitDTO> scrollVisits(String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Visit> rows = visitRepository.findPageBefore(after.createdAt(), after.id(), PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, v -> new PageCursor(v.getCreatedAt(), v.getId()), this::mapToDto);
+    }
+
+    private List<VisitDTO> loadDoctorQueue(Long doctorId) {
+        return visitRepository.findByDoctorIdAndCompletedFalseOrderByCreatedAtAsc(doctorId)
+                .stream().map(this::mapToDto).collect(Collectors.toList());
+    }
+
+    private VisitDTO publish(Visit visit, Long previousDoctorId) {
+        VisitDTO dto = mapToDto(visit);
+        eventPublisher.publishEvent(new VisitChangedEvent(dto, previousDoctorId));
+        return dto;
+    }
+
     private VisitDTO mapToDto(Visit v) {
         VisitDTO dto = new VisitDTO();
         dto.setId(v.getId());
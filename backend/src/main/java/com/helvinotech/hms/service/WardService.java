@@ -4,17 +4,37 @@ import com.helvinotech.hms.dto.*;
 import com.helvinotech.hms.entity.*;
 import com.helvinotech.hms.enums.AdmissionStatus;
 import com.helvinotech.hms.enums.BedStatus;
+import com.helvinotech.hms.enums.Gender;
 import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ConflictException;
 import com.helvinotech.hms.exception.ResourceNotFoundException;
 import com.helvinotech.hms.repository.*;
+import com.helvinotech.hms.repository.BedRepository.BedState;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +42,22 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class WardService {
 
+    private static final int MAX_BED_CAS_ATTEMPTS = 5;
+
+    // Rooms, their beds and each occupied bed's current admission, in display order
+    private static final String HIERARCHY_SQL =
+            "SELECT r.id AS room_id, r.room_number, r.type AS room_type, " +
+            "b.id AS bed_id, b.bed_number, b.status, b.version, b.daily_charge, " +
+            "a.id AS admission_id, a.admitted_at, a.admission_reason, u.full_name AS doctor_name, " +
+            "p.id AS patient_id, p.patient_no, p.full_name AS patient_name, p.gender, p.date_of_birth, p.allergies " +
+            "FROM rooms r " +
+            "LEFT JOIN beds b ON b.room_id = r.id " +
+            "LEFT JOIN admissions a ON a.bed_id = b.id AND a.status = 'ADMITTED' " +
+            "LEFT JOIN patients p ON p.id = a.patient_id " +
+            "LEFT JOIN users u ON u.id = a.admitting_doctor_id " +
+            "WHERE r.ward_id = ? " +
+            "ORDER BY r.room_number, r.id, b.bed_number, b.id, a.admitted_at DESC";
+
     private final WardRepository wardRepository;
     private final RoomRepository roomRepository;
     private final BedRepository bedRepository;
@@ -30,25 +66,51 @@ public class WardService {
     private final PatientRepository patientRepository;
     private final VisitRepository visitRepository;
     private final UserRepository userRepository;
+    private final OperationalCounters operationalCounters;
+    private final BedBoard bedBoard;
+    private final JdbcTemplate jdbcTemplate;
 
     // Ward CRUD
     @Transactional(readOnly = false)
     public WardDTO createWard(WardDTO dto) {
         Ward ward = Ward.builder().name(dto.getName()).type(dto.getType()).totalBeds(dto.getTotalBeds()).build();
-        return mapWardToDto(wardRepository.save(ward));
+        WardDTO created = mapWardToDto(wardRepository.save(ward));
+        bedBoard.wardChanged(created);
+        return created;
     }
 
     public List<WardDTO> getAllWards() {
         return wardRepository.findByActiveTrue().stream().map(this::mapWardToDto).collect(Collectors.toList());
     }
 
+    /** Per-ward bed counts by status, from the in-memory bed board. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<WardOccupancyDTO> getOccupancy() {
+        return bedBoard.getOccupancy();
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public WardOccupancyDTO getWardOccupancy(Long wardId) {
+        WardOccupancyDTO occupancy = bedBoard.getOccupancy(wardId);
+        if (occupancy == null) throw new ResourceNotFoundException("Ward", wardId);
+        return occupancy;
+    }
+
+    /** Bed changes for one ward, or for all wards when {@code wardId} is null; see {@link BedBoard}. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SseEmitter streamBedBoard(Long wardId) {
+        return bedBoard.subscribe(wardId);
+    }
+
     @Transactional(readOnly = false)
     public WardDTO updateWard(Long id, WardDTO dto) {
         Ward ward = wardRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Ward", id));
         ward.setName(dto.getName());
         ward.setType(dto.getType());
         ward.setTotalBeds(dto.getTotalBeds());
-        return mapWardToDto(wardRepository.save(ward));
+        WardDTO updated = mapWardToDto(wardRepository.save(ward));
+        bedBoard.wardChanged(updated);
+        return updated;
     }
 
     // Room CRUD
@@ -56,11 +118,55 @@ public class WardService {
     public RoomDTO createRoom(RoomDTO dto) {
         Ward ward = wardRepository.findById(dto.getWardId()).orElseThrow(() -> new ResourceNotFoundException("Ward", dto.getWardId()));
         Room room = Room.builder().roomNumber(dto.getRoomNumber()).ward(ward).type(dto.getType()).build();
+        bedBoard.wardTouched(ward.getId());
         return mapRoomToDto(roomRepository.save(room));
     }
 
     public List<RoomDTO> getRoomsByWard(Long wardId) {
-        return roomRepository.findByWardId(wardId).stream().map(this::mapRoomToDto).collect(Collectors.toList());
+        return getWardHierarchy(wardId).getRooms();
+    }
+
+    /** Changes with the ward's beds, rooms, admissions and occupants; null for a ward the bed board does not know. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getWardEtag(Long wardId) {
+        return bedBoard.etag(wardId);
+    }
+
+    /**
+     * The ward's rooms and beds, with the current admission and patient on each occupied bed, read with
+     * one query for the ward and one joined query for everything under it.
+     */
+    public WardHierarchyDTO getWardHierarchy(Long wardId) {
+        Ward ward = wardRepository.findById(wardId).orElseThrow(() -> new ResourceNotFoundException("Ward", wardId));
+        Map<Long, RoomDTO> rooms = new LinkedHashMap<>();
+        jdbcTemplate.query(HIERARCHY_SQL, rs -> {
+            long roomId = rs.getLong("room_id");
+            RoomDTO room = rooms.get(roomId);
+            if (room == null) {
+                room = new RoomDTO();
+                room.setId(roomId);
+                room.setRoomNumber(rs.getString("room_number"));
+                room.setType(rs.getString("room_type"));
+                room.setWardId(ward.getId());
+                room.setWardName(ward.getName());
+                room.setBeds(new ArrayList<>());
+                rooms.put(roomId, room);
+            }
+            long bedId = rs.getLong("bed_id");
+            if (rs.wasNull()) return;
+            List<BedDTO> beds = room.getBeds();
+            // A bed with more than one open admission (bad data) keeps only the latest
+            if (!beds.isEmpty() && beds.get(beds.size() - 1).getId() == bedId) return;
+            beds.add(mapHierarchyBed(rs, bedId, room));
+        }, wardId);
+
+        WardHierarchyDTO dto = new WardHierarchyDTO();
+        dto.setId(ward.getId());
+        dto.setName(ward.getName());
+        dto.setType(ward.getType());
+        dto.setActive(ward.isActive());
+        dto.setRooms(new ArrayList<>(rooms.values()));
+        return dto;
     }
 
     // Bed CRUD
@@ -68,24 +174,57 @@ public class WardService {
     public BedDTO createBed(BedDTO dto) {
         Room room = roomRepository.findById(dto.getRoomId()).orElseThrow(() -> new ResourceNotFoundException("Room", dto.getRoomId()));
         Bed bed = Bed.builder().bedNumber(dto.getBedNumber()).room(room).dailyCharge(dto.getDailyCharge()).build();
-        return mapBedToDto(bedRepository.save(bed));
+        operationalCounters.bedStatusChanged(null, bed.getStatus());
+        BedDTO created = mapBedToDto(bedRepository.save(bed));
+        bedBoard.added(created);
+        return created;
     }
 
+    /** Served from the in-memory bed board; see {@link BedBoard}. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<BedDTO> getAvailableBeds() {
-        return bedRepository.findByStatus(BedStatus.AVAILABLE).stream().map(this::mapBedToDto).collect(Collectors.toList());
+        return bedBoard.getBeds(null, BedStatus.AVAILABLE);
+    }
+
+    /** Beds of active wards, optionally for one ward and/or status, from the in-memory bed board. */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BedDTO> getBeds(Long wardId, BedStatus status) {
+        return bedBoard.getBeds(wardId, status);
+    }
+
+    /**
+     * Manual transitions: reserving and releasing, marking a cleaned bed available, maintenance. Beds
+     * only become or stop being OCCUPIED through admission and discharge. If {@code expectedVersion} is
+     * given the change is refused when the bed has moved on since the caller read it.
+     */
+    @Transactional(readOnly = false)
+    public BedDTO updateBedStatus(Long bedId, BedStatus to, Long expectedVersion) {
+        if (to == BedStatus.OCCUPIED) throw new BadRequestException("Beds are occupied by admitting a patient");
+        Set<BedStatus> from = sourcesOf(to);
+        from.remove(BedStatus.OCCUPIED);
+        moveBed(bedId, from, to, expectedVersion);
+        return mapBedToDto(bedRepository.findById(bedId).orElseThrow());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.wards.bed-board-reload-ms:300000}", initialDelayString = "${app.wards.bed-board-reload-ms:300000}")
+    public void reloadBedBoard() {
+        bedBoard.reload(wardRepository.findAll().stream().map(this::mapWardToDto).toList(),
+                bedRepository.findAllWithWard().stream().map(this::mapBedToDto).toList());
     }
 
     // Admissions
+
+    /**
+     * The bed is claimed with a compare-and-set on its version before anything else is written, so of
+     * any number of concurrent admissions to one bed exactly one succeeds and the rest see it occupied.
+     */
     @Transactional(readOnly = false)
     public AdmissionDTO admitPatient(AdmissionDTO dto) {
         Patient patient = patientRepository.findById(dto.getPatientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Patient", dto.getPatientId()));
-        Bed bed = bedRepository.findById(dto.getBedId())
-                .orElseThrow(() -> new ResourceNotFoundException("Bed", dto.getBedId()));
-        if (bed.getStatus() != BedStatus.AVAILABLE) throw new BadRequestException("Bed is not available");
-
-        bed.setStatus(BedStatus.OCCUPIED);
-        bedRepository.save(bed);
+        moveBed(dto.getBedId(), sourcesOf(BedStatus.OCCUPIED), BedStatus.OCCUPIED, null);
+        Bed bed = bedRepository.findById(dto.getBedId()).orElseThrow();
 
         Admission admission = Admission.builder()
                 .patient(patient).bed(bed).admissionReason(dto.getAdmissionReason())
@@ -103,19 +242,34 @@ public class WardService {
     public AdmissionDTO dischargePatient(Long admissionId, String dischargeSummary) {
         Admission admission = admissionRepository.findById(admissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Admission", admissionId));
-        admission.setStatus(AdmissionStatus.DISCHARGED);
-        admission.setDischargeSummary(dischargeSummary);
-        admission.setDischargedAt(LocalDateTime.now());
-        Bed bed = admission.getBed();
-        bed.setStatus(BedStatus.AVAILABLE);
-        bedRepository.save(bed);
-        return mapAdmissionToDto(admissionRepository.save(admission));
+        LocalDateTime now = LocalDateTime.now();
+        if (admissionRepository.markEnded(admissionId, AdmissionStatus.DISCHARGED, dischargeSummary, now) == 0) {
+            throw new BadRequestException("Patient is not currently admitted");
+        }
+        // The bed goes to cleaning; if it was moved off OCCUPIED by hand meanwhile it is left as it is
+        if (tryMoveBed(admission.getBed().getId(), sourcesOf(BedStatus.CLEANING), BedStatus.CLEANING, null) == null) {
+            bedBoard.wardTouched(admission.getBed().getRoom().getWard().getId());
+        }
+
+        // The entity was not modified, so nothing else is flushed; report the state just written
+        AdmissionDTO dto = mapAdmissionToDto(admission);
+        dto.setStatus(AdmissionStatus.DISCHARGED);
+        dto.setDischargeSummary(dischargeSummary);
+        dto.setDischargedAt(now);
+        return dto;
     }
 
     public Page<AdmissionDTO> getAdmissionsByStatus(AdmissionStatus status, Pageable pageable) {
         return admissionRepository.findByStatus(status, pageable).map(this::mapAdmissionToDto);
     }
 
+    public CursorPage<AdmissionDTO> scrollAdmissionsByStatus(AdmissionStatus status, String cursor, int size) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<Admission> rows = admissionRepository.findPageByStatusBefore(status, after.createdAt(), after.id(),
+                PageRequest.of(0, CursorPage.fetchSize(size)));
+        return CursorPage.of(rows, size, a -> new PageCursor(a.getCreatedAt(), a.getId()), this::mapAdmissionToDto);
+    }
+
     // Nursing Notes
     @Transactional(readOnly = false)
     public NursingNoteDTO addNursingNote(NursingNoteDTO dto) {
@@ -133,9 +287,50 @@ public class WardService {
                 .stream().map(this::mapNursingNoteToDto).collect(Collectors.toList());
     }
 
-    public long countAvailableBeds() { return bedRepository.countByStatus(BedStatus.AVAILABLE); }
-    public long countOccupiedBeds() { return bedRepository.countByStatus(BedStatus.OCCUPIED); }
-    public long countTotalBeds() { return bedRepository.count(); }
+    private BedStatus moveBed(Long bedId, Set<BedStatus> from, BedStatus to, Long expectedVersion) {
+        BedStatus previous = tryMoveBed(bedId, from, to, expectedVersion);
+        if (previous == null) {
+            BedStatus current = bedRepository.findStateById(bedId).map(BedState::getStatus).orElse(null);
+            throw new BadRequestException(to == BedStatus.OCCUPIED ? "Bed is not available"
+                    : "Bed cannot move from " + current + " to " + to);
+        }
+        return previous;
+    }
+
+    /**
+     * Reads the bed's (status, version) and moves it with a conditional UPDATE on that version; if another
+     * request got there first the state is re-read and checked again. Returns the status moved from, or
+     * null when the current status does not allow the move.
+     */
+    private BedStatus tryMoveBed(Long bedId, Set<BedStatus> from, BedStatus to, Long expectedVersion) {
+        for (int attempt = 0; attempt < MAX_BED_CAS_ATTEMPTS; attempt++) {
+            BedState current = bedRepository.findStateById(bedId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Bed", bedId));
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                throw new ConflictException("Bed was changed by someone else; reload and try again");
+            }
+            if (!from.contains(current.getStatus())) return null;
+            if (bedRepository.compareAndSetStatus(bedId, current.getVersion(), to) == 1) {
+                operationalCounters.bedStatusChanged(current.getStatus(), to);
+                bedBoard.transitioned(bedId, to, current.getVersion() + 1);
+                return current.getStatus();
+            }
+        }
+        throw new ConflictException("Bed is being changed by other requests; try again");
+    }
+
+    private static Set<BedStatus> sourcesOf(BedStatus to) {
+        Set<BedStatus> sources = EnumSet.noneOf(BedStatus.class);
+        Arrays.stream(BedStatus.values()).filter(s -> s.canMoveTo(to)).forEach(sources::add);
+        return sources;
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long countAvailableBeds() { return operationalCounters.get(OperationalCounters.Counter.AVAILABLE_BEDS); }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long countOccupiedBeds() { return operationalCounters.get(OperationalCounters.Counter.OCCUPIED_BEDS); }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long countTotalBeds() { return operationalCounters.get(OperationalCounters.Counter.TOTAL_BEDS); }
 
     private WardDTO mapWardToDto(Ward w) {
         WardDTO dto = new WardDTO();
@@ -144,6 +339,11 @@ public class WardService {
         dto.setType(w.getType());
         dto.setTotalBeds(w.getTotalBeds());
         dto.setActive(w.isActive());
+        WardOccupancyDTO occupancy = bedBoard.getOccupancy(w.getId());
+        if (occupancy != null) {
+            dto.setAvailableBeds(occupancy.getAvailable());
+            dto.setOccupiedBeds(occupancy.getOccupied());
+        }
         return dto;
     }
 
@@ -158,14 +358,50 @@ public class WardService {
         return dto;
     }
 
+    private BedDTO mapHierarchyBed(ResultSet rs, long bedId, RoomDTO room) throws SQLException {
+        BedDTO bed = new BedDTO();
+        bed.setId(bedId);
+        bed.setBedNumber(rs.getString("bed_number"));
+        bed.setRoomId(room.getId());
+        bed.setRoomNumber(room.getRoomNumber());
+        bed.setWardId(room.getWardId());
+        bed.setWardName(room.getWardName());
+        String status = rs.getString("status");
+        bed.setStatus(status != null ? BedStatus.valueOf(status) : null);
+        bed.setVersion(rs.getLong("version"));
+        bed.setDailyCharge(rs.getBigDecimal("daily_charge"));
+
+        long admissionId = rs.getLong("admission_id");
+        if (!rs.wasNull()) {
+            BedOccupantDTO occupant = new BedOccupantDTO();
+            occupant.setAdmissionId(admissionId);
+            Timestamp admittedAt = rs.getTimestamp("admitted_at");
+            occupant.setAdmittedAt(admittedAt != null ? admittedAt.toLocalDateTime() : null);
+            occupant.setAdmissionReason(rs.getString("admission_reason"));
+            occupant.setAdmittingDoctorName(rs.getString("doctor_name"));
+            occupant.setPatientId(rs.getLong("patient_id"));
+            occupant.setPatientNo(rs.getString("patient_no"));
+            occupant.setPatientName(rs.getString("patient_name"));
+            String gender = rs.getString("gender");
+            occupant.setGender(gender != null ? Gender.valueOf(gender) : null);
+            Date dateOfBirth = rs.getDate("date_of_birth");
+            occupant.setDateOfBirth(dateOfBirth != null ? dateOfBirth.toLocalDate() : null);
+            occupant.setAllergies(rs.getString("allergies"));
+            bed.setOccupant(occupant);
+        }
+        return bed;
+    }
+
     private BedDTO mapBedToDto(Bed b) {
         BedDTO dto = new BedDTO();
         dto.setId(b.getId());
         dto.setBedNumber(b.getBedNumber());
         dto.setRoomId(b.getRoom().getId());
         dto.setRoomNumber(b.getRoom().getRoomNumber());
+        dto.setWardId(b.getRoom().getWard().getId());
         dto.setWardName(b.getRoom().getWard().getName());
         dto.setStatus(b.getStatus());
+        dto.setVersion(b.getVersion());
         dto.setDailyCharge(b.getDailyCharge());
         return dto;
     }
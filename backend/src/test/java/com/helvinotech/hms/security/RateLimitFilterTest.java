@@ -0,0 +1,132 @@
+package com.helvinotech.hms.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.helvinotech.hms.entity.User;
+import com.helvinotech.hms.enums.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private final JwtTokenProvider tokenProvider =
+            new JwtTokenProvider("0123456789abcdef0123456789abcdef0123456789abcdef", 60000, 60000);
+    private final RateLimitFilter filter = new RateLimitFilter(
+            new MockEnvironment()
+                    .withProperty("app.rate-limit.auth.capacity", "2")
+                    .withProperty("app.rate-limit.auth.refill-per-second", "0.001")
+                    .withProperty("app.rate-limit.auth-ip.capacity", "5")
+                    .withProperty("app.rate-limit.auth-ip.refill-per-second", "0.001"),
+            new SimpleMeterRegistry(), new ObjectMapper(), tokenProvider);
+
+    private final List<String> forwardedBodies = new ArrayList<>();
+    private final FilterChain chain = (request, response) ->
+            forwardedBodies.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+
+    @Test
+    void loginIsLimitedPerAccountAndAddress() throws Exception {
+        assertThat(login("nurse@hms.local", "10.0.0.1")).isEqualTo(200);
+        assertThat(login("NURSE@hms.local", "10.0.0.1")).isEqualTo(200);
+        assertThat(login("nurse@hms.local", "10.0.0.1")).isEqualTo(429);
+        // Guessing from one address does not lock the owner out from another
+        assertThat(login("nurse@hms.local", "10.0.0.2")).isEqualTo(200);
+        // Another account from the same address has its own budget
+        assertThat(login("doctor@hms.local", "10.0.0.1")).isEqualTo(200);
+    }
+
+    @Test
+    void refreshDoesNotShareTheLoginBudget() throws Exception {
+        User user = User.builder().id(7L).email("nurse@hms.local").role(UserRole.NURSE).build();
+        String refreshToken = tokenProvider.generateRefreshToken(user);
+        login("nurse@hms.local", "10.0.0.1");
+        login("nurse@hms.local", "10.0.0.1");
+        assertThat(login("nurse@hms.local", "10.0.0.1")).isEqualTo(429);
+
+        assertThat(refresh(refreshToken, "10.0.0.1")).isEqualTo(200);
+        assertThat(refresh(refreshToken, "10.0.0.1")).isEqualTo(200);
+    }
+
+    @Test
+    void addressLimitBoundsSprayingAcrossAccounts() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(login("user" + i + "@hms.local", "10.0.0.9")).isEqualTo(200);
+        }
+        assertThat(login("user5@hms.local", "10.0.0.9")).isEqualTo(429);
+    }
+
+    @Test
+    void bufferedBodyStillReachesTheController() throws Exception {
+        login("clerk@hms.local", "10.0.0.1");
+        assertThat(forwardedBodies).containsExactly(body("clerk@hms.local"));
+    }
+
+    @Test
+    void bufferedBodyCanBeReadWithAReadListener() throws Exception {
+        List<String> events = new ArrayList<>();
+        FilterChain asyncChain = (request, response) -> {
+            ServletInputStream in = request.getInputStream();
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(in.read());
+                    }
+                    events.add("data");
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("done " + read.toString(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+        };
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setContentType("application/json");
+        request.setContent(body("clerk@hms.local").getBytes(StandardCharsets.UTF_8));
+        filter.doFilter(request, new MockHttpServletResponse(), asyncChain);
+
+        assertThat(events).containsExactly("data", "done " + body("clerk@hms.local"));
+    }
+
+    private int login(String email, String remoteAddr) throws Exception {
+        return post("/api/auth/login", body(email), remoteAddr);
+    }
+
+    private int refresh(String refreshToken, String remoteAddr) throws Exception {
+        return post("/api/auth/refresh", "{\"refreshToken\":\"" + refreshToken + "\"}", remoteAddr);
+    }
+
+    private int post(String path, String body, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    private static String body(String email) {
+        return "{\"email\":\"" + email + "\",\"password\":\"secret\"}";
+    }
+}
@@ -0,0 +1,122 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.dto.*;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.enums.BedStatus;
+import com.helvinotech.hms.enums.Gender;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.repository.BedRepository;
+import com.helvinotech.hms.repository.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many admissions desks racing for the same bed, each with a different patient. The compare-and-set on
+ * the bed's version has to let exactly one of them through.
+ */
+class BedAllocationConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int ATTEMPTS = 24;
+    private static final int THREADS = 12;
+
+    @Autowired private WardService wardService;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private BedRepository bedRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Long wardId;
+    private Long bedId;
+    private long initialVersion;
+    private List<Long> patientIds;
+
+    @BeforeEach
+    void seed() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        WardDTO ward = new WardDTO();
+        ward.setName("Ward " + run);
+        ward.setType("General");
+        wardId = wardService.createWard(ward).getId();
+        RoomDTO room = new RoomDTO();
+        room.setRoomNumber("R-" + run);
+        room.setWardId(wardId);
+        BedDTO bed = new BedDTO();
+        bed.setBedNumber("B-" + run);
+        bed.setRoomId(wardService.createRoom(room).getId());
+        bed.setDailyCharge(BigDecimal.TEN);
+        BedDTO created = wardService.createBed(bed);
+        bedId = created.getId();
+        initialVersion = created.getVersion();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            ids.add(patientRepository.save(Patient.builder().patientNo("C-" + run + "-" + i).fullName("Patient " + run + " " + i)
+                    .gender(Gender.MALE).phone("0744" + run).build()).getId());
+        }
+        patientIds = ids;
+    }
+
+    @AfterEach
+    void discharge() {
+        // An open admission would be charged by accrual runs in other tests
+        jdbcTemplate.update("UPDATE admissions SET status = 'DISCHARGED' WHERE bed_id = ?", bedId);
+    }
+
+    @Test
+    void exactlyOneConcurrentAdmissionClaimsTheBed() throws Exception {
+        List<AdmissionDTO> admitted = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger refused = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Long patientId : patientIds) {
+                pool.submit(() -> {
+                    start.await();
+                    AdmissionDTO dto = new AdmissionDTO();
+                    dto.setPatientId(patientId);
+                    dto.setBedId(bedId);
+                    dto.setAdmissionReason("Observation");
+                    try {
+                        admitted.add(wardService.admitPatient(dto));
+                    } catch (BadRequestException e) {
+                        // Another desk got the bed first
+                        refused.incrementAndGet();
+                    } catch (Throwable t) {
+                        unexpected.add(t);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(unexpected).isEmpty();
+        assertThat(admitted).hasSize(1);
+        assertThat(refused.get()).isEqualTo(ATTEMPTS - 1);
+
+        int admissions = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM admissions WHERE bed_id = ? AND status = 'ADMITTED'", Integer.class, bedId);
+        assertThat(admissions).isEqualTo(1);
+        BedRepository.BedState state = bedRepository.findStateById(bedId).orElseThrow();
+        assertThat(state.getStatus()).isEqualTo(BedStatus.OCCUPIED);
+        assertThat(state.getVersion()).isEqualTo(initialVersion + 1);
+        // The board took the one committed transition
+        assertThat(wardService.getBeds(wardId, BedStatus.OCCUPIED)).extracting(BedDTO::getId).containsExactly(bedId);
+        assertThat(wardService.getWardOccupancy(wardId).getOccupied()).isEqualTo(1);
+    }
+}
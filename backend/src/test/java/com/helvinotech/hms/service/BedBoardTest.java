@@ -0,0 +1,120 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.BedDTO;
+import com.helvinotech.hms.dto.WardDTO;
+import com.helvinotech.hms.dto.WardOccupancyDTO;
+import com.helvinotech.hms.enums.BedStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BedBoardTest {
+
+    private final BedBoard board = new BedBoard();
+
+    @AfterEach
+    void stopSender() {
+        board.shutdown();
+    }
+
+    @Test
+    void bedStatesOnlyAdvance() {
+        board.reload(List.of(ward(1L, true)), List.of(bed(10L, 1L, "A", BedStatus.AVAILABLE, 0), bed(11L, 1L, "B", BedStatus.AVAILABLE, 0)));
+
+        board.transitioned(10L, BedStatus.OCCUPIED, 1);
+        // A late notification for the same version, then a newer one
+        board.transitioned(10L, BedStatus.AVAILABLE, 1);
+        board.transitioned(10L, BedStatus.CLEANING, 2);
+        // A reload that read the bed before the last transition
+        board.reload(List.of(ward(1L, true)), List.of(bed(10L, 1L, "A", BedStatus.OCCUPIED, 1), bed(11L, 1L, "B", BedStatus.AVAILABLE, 0)));
+
+        assertThat(board.getBeds(1L, BedStatus.CLEANING)).singleElement()
+                .satisfies(bed -> assertThat(bed.getVersion()).isEqualTo(2));
+        assertThat(board.getBeds(1L, BedStatus.OCCUPIED)).isEmpty();
+        assertThat(board.getBeds(1L, BedStatus.AVAILABLE)).extracting(BedDTO::getId).containsExactly(11L);
+
+        board.reload(List.of(ward(1L, true)), List.of(bed(10L, 1L, "A", BedStatus.AVAILABLE, 3), bed(11L, 1L, "B", BedStatus.AVAILABLE, 0)));
+        assertThat(board.getBeds(1L, BedStatus.AVAILABLE)).extracting(BedDTO::getId).containsExactly(10L, 11L);
+    }
+
+    @Test
+    void occupancyFollowsTheStatusSets() {
+        board.reload(List.of(ward(1L, true), ward(2L, true)), List.of(
+                bed(10L, 1L, "A", BedStatus.AVAILABLE, 0),
+                bed(11L, 1L, "B", BedStatus.AVAILABLE, 0),
+                bed(12L, 1L, "C", BedStatus.MAINTENANCE, 0),
+                bed(20L, 2L, "A", BedStatus.AVAILABLE, 0)));
+
+        board.transitioned(10L, BedStatus.OCCUPIED, 1);
+        // Moved to ward 2 by a later edit picked up on reload
+        board.reload(List.of(ward(1L, true), ward(2L, true)), List.of(
+                bed(10L, 1L, "A", BedStatus.OCCUPIED, 1),
+                bed(11L, 2L, "B", BedStatus.AVAILABLE, 0),
+                bed(12L, 1L, "C", BedStatus.MAINTENANCE, 0),
+                bed(20L, 2L, "A", BedStatus.AVAILABLE, 0)));
+
+        WardOccupancyDTO first = board.getOccupancy(1L);
+        assertThat(first.getTotalBeds()).isEqualTo(2);
+        assertThat(first.getOccupied()).isEqualTo(1);
+        assertThat(first.getMaintenance()).isEqualTo(1);
+        assertThat(first.getAvailable()).isZero();
+        assertThat(first.getOccupancyRate()).isEqualTo(50.0);
+        WardOccupancyDTO second = board.getOccupancy(2L);
+        assertThat(second.getTotalBeds()).isEqualTo(2);
+        assertThat(second.getAvailable()).isEqualTo(2);
+        assertThat(board.getBeds(null, BedStatus.AVAILABLE)).extracting(BedDTO::getId).containsExactly(20L, 11L);
+    }
+
+    @Test
+    void inactiveWardsAreLeftOutOfBedListsAndSummaries() {
+        board.reload(List.of(ward(1L, true), ward(2L, false)), List.of(
+                bed(10L, 1L, "A", BedStatus.AVAILABLE, 0), bed(20L, 2L, "A", BedStatus.AVAILABLE, 0)));
+
+        assertThat(board.getBeds(null, null)).extracting(BedDTO::getId).containsExactly(10L);
+        assertThat(board.getOccupancy()).extracting(WardOccupancyDTO::getWardId).containsExactly(1L);
+    }
+
+    @Test
+    void etagMovesWithAnyChangeToTheWard() {
+        board.reload(List.of(ward(1L, true), ward(2L, true)), List.of(bed(10L, 1L, "A", BedStatus.AVAILABLE, 0)));
+        String initial = board.etag(1L);
+        String otherWard = board.etag(2L);
+
+        board.transitioned(10L, BedStatus.AVAILABLE, 0);
+        assertThat(board.etag(1L)).isEqualTo(initial);
+
+        board.transitioned(10L, BedStatus.OCCUPIED, 1);
+        String occupied = board.etag(1L);
+        assertThat(occupied).isNotEqualTo(initial);
+
+        board.wardTouched(1L);
+        assertThat(board.etag(1L)).isNotEqualTo(occupied);
+        assertThat(board.etag(2L)).isEqualTo(otherWard);
+        assertThat(board.etag(3L)).isNull();
+    }
+
+    private static WardDTO ward(Long id, boolean active) {
+        WardDTO ward = new WardDTO();
+        ward.setId(id);
+        ward.setName("Ward " + id);
+        ward.setType("General");
+        ward.setActive(active);
+        return ward;
+    }
+
+    private static BedDTO bed(Long id, Long wardId, String number, BedStatus status, long version) {
+        BedDTO bed = new BedDTO();
+        bed.setId(id);
+        bed.setBedNumber(number);
+        bed.setRoomId(wardId * 100);
+        bed.setRoomNumber("R" + wardId);
+        bed.setWardId(wardId);
+        bed.setWardName("Ward " + wardId);
+        bed.setStatus(status);
+        bed.setVersion(version);
+        return bed;
+    }
+}
@@ -0,0 +1,165 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.entity.*;
+import com.helvinotech.hms.enums.Gender;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Accrual runs over admissions of the test's own, all admitted early in 2024 so that the charge dates used
+ * here do not reach the admissions of other tests. Each run charges a three-day catch-up window.
+ */
+class BedChargeAccrualServiceTest extends PostgresIntegrationTest {
+
+    private static final BigDecimal DAILY_CHARGE = new BigDecimal("100.00");
+    private static final LocalDate ADMITTED_ON = LocalDate.of(2024, 1, 1);
+
+    @Autowired private NamedParameterJdbcTemplate namedJdbc;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private DocumentNumberService documentNumberService;
+    @Autowired private FinancialFactService financialFactService;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private WardRepository wardRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private BedRepository bedRepository;
+    @Autowired private AdmissionRepository admissionRepository;
+
+    private final List<Long> admissionIds = new ArrayList<>();
+
+    @BeforeEach
+    void clearCheckpoints() {
+        jdbcTemplate.update("DELETE FROM job_checkpoints WHERE job_name LIKE ?", BedChargeAccrualService.JOB_NAME + ":2024-%");
+    }
+
+    @AfterEach
+    void discharge() {
+        // Open admissions would be charged by other tests' runs
+        admissionIds.forEach(id -> jdbcTemplate.update("UPDATE admissions SET status = 'DISCHARGED' WHERE id = ?", id));
+    }
+
+    @Test
+    void rerunningADayChargesNothingTwice() {
+        Long admission = admit(1).get(0);
+        BedChargeAccrualService accrual = accrual(200);
+        LocalDate day = LocalDate.of(2024, 3, 10);
+
+        accrual.accrue(day);
+        accrual.accrue(day);
+        // From scratch, as if the checkpoint had been lost
+        jdbcTemplate.update("DELETE FROM job_checkpoints WHERE job_name = ?", BedChargeAccrualService.checkpointName(day));
+        accrual.accrue(day);
+
+        assertThat(chargedDays(admission)).containsExactly("2024-03-08", "2024-03-09", "2024-03-10");
+        assertThat(jdbcTemplate.queryForObject("SELECT total_amount FROM billings WHERE id = " +
+                "(SELECT billing_id FROM billing_items WHERE accrual_key = ?)", BigDecimal.class, "BED-" + admission + "-2024-03-10"))
+                .isEqualByComparingTo("300");
+    }
+
+    @Test
+    void interruptedRunResumesAfterTheLastAdmissionItRecorded() {
+        List<Long> admissions = admit(2);
+        LocalDate day = LocalDate.of(2024, 4, 10);
+        // Left by a run that crashed once the first admission's page was committed
+        jdbcTemplate.update("INSERT INTO job_checkpoints (job_name, run_date, last_id, updated_at) VALUES (?, ?, ?, now())",
+                BedChargeAccrualService.checkpointName(day), day, admissions.get(0));
+
+        accrual(1).accrue(day);
+
+        assertThat(chargedDays(admissions.get(0))).isEmpty();
+        assertThat(chargedDays(admissions.get(1))).hasSize(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT completed_at IS NOT NULL FROM job_checkpoints WHERE job_name = ?",
+                Boolean.class, BedChargeAccrualService.checkpointName(day))).isTrue();
+    }
+
+    @Test
+    void manualRunsAreRefusedForDaysThatHaveNotEnded() {
+        BedChargeAccrualService accrual = accrual(200);
+
+        assertThatThrownBy(() -> accrual.accrueEndedDay(LocalDate.now())).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> accrual.accrueEndedDay(LocalDate.now().plusDays(1))).isInstanceOf(BadRequestException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_checkpoints WHERE job_name = ?",
+                Integer.class, BedChargeAccrualService.checkpointName(LocalDate.now()))).isZero();
+    }
+
+    @Test
+    void runsForDifferentDatesFinishSideBySide() throws Exception {
+        List<Long> admissions = admit(4);
+        LocalDate manual = LocalDate.of(2024, 5, 10);
+        LocalDate nightly = LocalDate.of(2024, 5, 12);
+        // One admission per page, so the two runs interleave
+        BedChargeAccrualService accrual = accrual(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = pool.submit(() -> accrual.accrue(manual));
+            Future<?> second = pool.submit(() -> accrual.accrue(nightly));
+            first.get(1, TimeUnit.MINUTES);
+            second.get(1, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Long admission : admissions) {
+            assertThat(chargedDays(admission))
+                    .containsExactly("2024-05-08", "2024-05-09", "2024-05-10", "2024-05-11", "2024-05-12");
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT billing_id) FROM billing_items WHERE accrual_key LIKE ?",
+                    Integer.class, "BED-" + admission + "-2%")).isEqualTo(1);
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_checkpoints WHERE job_name IN (?, ?) AND completed_at IS NOT NULL",
+                Integer.class, BedChargeAccrualService.checkpointName(manual), BedChargeAccrualService.checkpointName(nightly)))
+                .isEqualTo(2);
+    }
+
+    private BedChargeAccrualService accrual(int pageSize) {
+        return new BedChargeAccrualService(namedJdbc, transactionManager, documentNumberService, financialFactService, pageSize, 3);
+    }
+
+    private List<Long> admit(int count) {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            String run = UUID.randomUUID().toString().substring(0, 8);
+            Ward ward = wardRepository.save(Ward.builder().name("Ward " + run).type("General").build());
+            Room room = roomRepository.save(Room.builder().roomNumber("R-" + run).ward(ward).build());
+            List<Long> created = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Patient patient = patientRepository.save(Patient.builder().patientNo("A-" + run + "-" + i)
+                        .fullName("Inpatient " + run + " " + i).gender(Gender.MALE).phone("0733" + run).build());
+                Bed bed = bedRepository.save(Bed.builder().bedNumber("B" + i).room(room).dailyCharge(DAILY_CHARGE).build());
+                created.add(admissionRepository.save(Admission.builder().patient(patient).bed(bed)
+                        .admittedAt(ADMITTED_ON.atTime(10, 0)).build()).getId());
+            }
+            return created;
+        });
+        admissionIds.addAll(ids);
+        return ids;
+    }
+
+    private List<String> chargedDays(Long admission) {
+        String prefix = "BED-" + admission + "-";
+        return jdbcTemplate.queryForList("SELECT accrual_key FROM billing_items WHERE accrual_key LIKE ? ORDER BY accrual_key",
+                String.class, prefix + "2%").stream().map(key -> key.substring(prefix.length())).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.entity.*;
+import com.helvinotech.hms.enums.Gender;
+import com.helvinotech.hms.enums.StockMovementType;
+import com.helvinotech.hms.enums.UserRole;
+import com.helvinotech.hms.enums.VisitType;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many pharmacists dispensing the same drug at once, each prescription claimed by several of them. Stock
+ * is spread over two lots and cannot cover every prescription, so both the claim and the stock decrement
+ * are contended.
+ */
+class DispenseConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int STOCK = 50;
+    private static final int PRESCRIPTIONS = 20;
+    private static final int UNITS_EACH = 3;
+    private static final int ATTEMPTS_PER_PRESCRIPTION = 3;
+    private static final int THREADS = 12;
+
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private VisitRepository visitRepository;
+    @Autowired private DrugRepository drugRepository;
+    @Autowired private PrescriptionRepository prescriptionRepository;
+    @Autowired private DrugLotService drugLotService;
+    @Autowired private PharmacyService pharmacyService;
+
+    private Long drugId;
+    private Long pharmacistId;
+    private List<Long> prescriptionIds;
+
+    @BeforeEach
+    void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            String run = UUID.randomUUID().toString().substring(0, 8);
+            Patient patient = patientRepository.save(Patient.builder().patientNo("D-" + run).fullName("Patient " + run)
+                    .gender(Gender.MALE).phone("0711" + run).build());
+            User doctor = userRepository.save(User.builder().fullName("Doctor " + run).email("doctor-" + run + "@test.local")
+                    .passwordHash("x").role(UserRole.DOCTOR).build());
+            User pharmacist = userRepository.save(User.builder().fullName("Pharmacist " + run).email("pharm-" + run + "@test.local")
+                    .passwordHash("x").role(UserRole.PHARMACIST).build());
+            Visit visit = visitRepository.save(Visit.builder().patient(patient).doctor(doctor).visitType(VisitType.OPD).build());
+            Drug drug = drugRepository.save(Drug.builder().genericName("Drug " + run).quantityInStock(0)
+                    .sellingPrice(BigDecimal.ONE).build());
+            drugLotService.receive(drug, "A-" + run, LocalDate.now().plusMonths(3), 30, BigDecimal.ONE, null, StockMovementType.RECEIPT);
+            drugLotService.receive(drug, "B-" + run, LocalDate.now().plusMonths(9), STOCK - 30, BigDecimal.ONE, null, StockMovementType.RECEIPT);
+
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < PRESCRIPTIONS; i++) {
+                ids.add(prescriptionRepository.save(Prescription.builder().visit(visit).drug(drug).dosage("1x" + i)
+                        .quantityPrescribed(UNITS_EACH).build()).getId());
+            }
+            drugId = drug.getId();
+            pharmacistId = pharmacist.getId();
+            prescriptionIds = ids;
+        });
+    }
+
+    @AfterEach
+    void removePrescriptions() {
+        // Undispensed lines would otherwise show up in other tests' pending lists
+        jdbcTemplate.update("DELETE FROM prescriptions WHERE drug_id = ?", drugId);
+    }
+
+    @Test
+    void concurrentDispensingNeitherOversellsNorDispensesTwice() throws Exception {
+        List<Long> attempts = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS_PER_PRESCRIPTION; i++) {
+            attempts.addAll(prescriptionIds);
+        }
+        Collections.shuffle(attempts, new Random(42));
+
+        List<Long> dispensed = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Long prescriptionId : attempts) {
+                pool.submit(() -> {
+                    start.await();
+                    try {
+                        dispensed.add(pharmacyService.dispensePrescription(prescriptionId, pharmacistId).getId());
+                    } catch (BadRequestException e) {
+                        // Already dispensed by another attempt, or out of stock
+                    } catch (Throwable t) {
+                        unexpected.add(t);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(unexpected).isEmpty();
+        assertThat(dispensed).doesNotHaveDuplicates();
+        // Every prescription that fits in the stock is dispensed, whichever order they arrived in
+        assertThat(dispensed).hasSize(STOCK / UNITS_EACH);
+
+        int stock = jdbcTemplate.queryForObject("SELECT quantity_in_stock FROM drugs WHERE id = ?", Integer.class, drugId);
+        int unitsDispensed = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity_dispensed), 0) FROM prescriptions WHERE drug_id = ? AND dispensed", Integer.class, drugId);
+        int inLots = jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity_remaining) FROM drug_lots WHERE drug_id = ?", Integer.class, drugId);
+        int ledgerOut = jdbcTemplate.queryForObject(
+                "SELECT -SUM(quantity) FROM stock_movements WHERE drug_id = ? AND type = 'DISPENSE'", Integer.class, drugId);
+
+        assertThat(stock).isGreaterThanOrEqualTo(0);
+        assertThat(stock + unitsDispensed).isEqualTo(STOCK);
+        assertThat(unitsDispensed).isEqualTo(dispensed.size() * UNITS_EACH);
+        assertThat(inLots).isEqualTo(stock);
+        assertThat(ledgerOut).isEqualTo(unitsDispensed);
+    }
+}
@@ -0,0 +1,72 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.QueueSnapshot;
+import com.helvinotech.hms.dto.VisitDTO;
+import com.helvinotech.hms.event.VisitChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DoctorQueueRegistryTest {
+
+    private static final Long DOCTOR = 7L;
+
+    private final DoctorQueueRegistry registry = new DoctorQueueRegistry();
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void reconcileAppliesVisitsWrittenElsewhere() {
+        registry.snapshot(DOCTOR, id -> List.of(visit(1, "headache"), visit(2, "cough")));
+
+        registry.reconcile(ids -> Map.of(DOCTOR, List.of(visit(1, "migraine"), visit(3, "fever"))));
+
+        QueueSnapshot snapshot = registry.snapshot(DOCTOR, id -> List.of());
+        assertThat(snapshot.getVisits()).extracting(VisitDTO::getId).containsExactly(1L, 3L);
+        assertThat(snapshot.getVisits().get(0).getChiefComplaint()).isEqualTo("migraine");
+        // one upsert, one removal, one insert
+        assertThat(snapshot.getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void reconcileDoesNotUndoChangesCommittedDuringTheRead() {
+        registry.snapshot(DOCTOR, id -> List.of(visit(1, "headache"), visit(2, "cough")));
+
+        registry.reconcile(ids -> {
+            // Committed after the reconcile read its rows: visit 1 completed, visit 4 opened
+            VisitDTO completed = visit(1, "headache");
+            completed.setCompleted(true);
+            registry.onVisitChanged(new VisitChangedEvent(completed, null));
+            registry.onVisitChanged(new VisitChangedEvent(visit(4, "rash"), null));
+            return Map.of(DOCTOR, List.of(visit(1, "headache"), visit(2, "cough")));
+        });
+
+        QueueSnapshot snapshot = registry.snapshot(DOCTOR, id -> List.of());
+        assertThat(snapshot.getVisits()).extracting(VisitDTO::getId).containsExactly(2L, 4L);
+        assertThat(snapshot.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileSkipsQueuesNeverLoaded() {
+        registry.reconcile(ids -> {
+            throw new AssertionError("nothing is loaded, so nothing should be read");
+        });
+    }
+
+    private static VisitDTO visit(long id, String complaint) {
+        VisitDTO visit = new VisitDTO();
+        visit.setId(id);
+        visit.setDoctorId(DOCTOR);
+        visit.setChiefComplaint(complaint);
+        visit.setCreatedAt(LocalDateTime.of(2026, 1, 1, 8, 0).plusMinutes(id));
+        return visit;
+    }
+}
@@ -0,0 +1,86 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.enums.DocumentType;
+import com.helvinotech.hms.enums.Gender;
+import com.helvinotech.hms.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Numbers are drawn for years far in the future, so each test has sequences of its own rather than the
+ * ones the application prepared for the current year.
+ */
+class DocumentNumberServiceTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int NUMBERS_EACH = 40;
+
+    @Autowired private DocumentNumberService documentNumberService;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentCallersGetDistinctConsecutiveNumbers() throws Exception {
+        int year = 2090;
+        documentNumberService.prepare(year);
+
+        List<String> issued = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                calls.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < NUMBERS_EACH; i++) {
+                        issued.add(documentNumberService.next(DocumentType.INVOICE, year));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> call : calls) {
+                call.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // One node draws whole blocks in order, so nothing is skipped between the first and the last
+        List<Long> numbers = issued.stream().map(n -> Long.parseLong(n.substring("INV-2090-".length()))).sorted().toList();
+        assertThat(numbers).doesNotHaveDuplicates();
+        assertThat(numbers.get(0)).isEqualTo(1);
+        assertThat(numbers.get(numbers.size() - 1)).isEqualTo(THREADS * NUMBERS_EACH);
+    }
+
+    @Test
+    void preparingAYearAlsoCreatesTheNextOnesSequences() {
+        documentNumberService.prepare(2091);
+
+        assertThat(jdbcTemplate.queryForList("SELECT sequencename FROM pg_sequences WHERE sequencename LIKE 'doc_seq_%_2092'",
+                String.class)).containsExactlyInAnyOrder("doc_seq_pt_2092", "doc_seq_inv_2092", "doc_seq_rcp_2092", "doc_seq_clm_2092");
+        assertThat(documentNumberService.next(DocumentType.RECEIPT, 2091)).isEqualTo("RCP-2091-000001");
+        // The new year starts its own count
+        assertThat(documentNumberService.next(DocumentType.RECEIPT, 2092)).isEqualTo("RCP-2092-000001");
+        assertThat(documentNumberService.next(DocumentType.RECEIPT, 2091)).isEqualTo("RCP-2091-000002");
+    }
+
+    @Test
+    void newSequenceContinuesAfterNumbersAlreadyIssued() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        patientRepository.save(Patient.builder().patientNo("PT-2093-000041").fullName("Patient " + run)
+                .gender(Gender.MALE).phone("0744" + run).build());
+
+        documentNumberService.prepare(2093);
+
+        assertThat(documentNumberService.next(DocumentType.PATIENT, 2093)).isEqualTo("PT-2093-000042");
+    }
+}
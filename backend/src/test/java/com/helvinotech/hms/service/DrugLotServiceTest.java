@@ -0,0 +1,85 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.entity.Drug;
+import com.helvinotech.hms.enums.StockMovementType;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.repository.DrugLotRepository;
+import com.helvinotech.hms.repository.DrugLotRepository.AvailableLot;
+import com.helvinotech.hms.repository.DrugRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** The row counts of the conditional stock updates decide whether an allocation goes ahead. */
+@ExtendWith(MockitoExtension.class)
+class DrugLotServiceTest {
+
+    private static final Long DRUG_ID = 5L;
+
+    @Mock private DrugLotRepository lotRepository;
+    @Mock private DrugRepository drugRepository;
+    @Mock private StockLedgerService stockLedger;
+
+    @InjectMocks private DrugLotService drugLotService;
+
+    private final Drug drug = Drug.builder().id(DRUG_ID).genericName("Amoxicillin").build();
+
+    @Test
+    void noRowDecrementedMeansShortageAndNoLotIsTouched() {
+        when(drugRepository.decrementStock(DRUG_ID, 4)).thenReturn(0);
+
+        assertThatThrownBy(() -> drugLotService.allocate(drug, 4, "RX-1"))
+                .isInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(lotRepository, stockLedger);
+        verify(drugRepository, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void decrementedStockWithoutAllocatableLotsIsPutBack() {
+        when(drugRepository.decrementStock(DRUG_ID, 4)).thenReturn(1);
+        // The stock includes expired units that may not be dispensed
+        when(lotRepository.sumAllocatable(eq(DRUG_ID), any())).thenReturn(3L);
+
+        assertThat(drugLotService.tryAllocate(drug, 4, "RX-1")).isNull();
+
+        verify(drugRepository).incrementStock(DRUG_ID, 4);
+        verify(lotRepository, never()).decrementRemaining(anyLong(), anyInt());
+        verifyNoInteractions(stockLedger);
+    }
+
+    @Test
+    void lotWhoseDecrementMatchesNoRowIsSkipped() {
+        AvailableLot contended = lot(1L, 10);
+        AvailableLot next = lot(2L, 10);
+        when(drugRepository.decrementStock(DRUG_ID, 4)).thenReturn(1);
+        when(lotRepository.sumAllocatable(eq(DRUG_ID), any())).thenReturn(20L);
+        when(lotRepository.findAllocatable(eq(DRUG_ID), any(), eq(false), any())).thenReturn(List.of(contended, next));
+        when(lotRepository.decrementRemaining(1L, 4)).thenReturn(0);
+        when(lotRepository.decrementRemaining(2L, 4)).thenReturn(1);
+
+        List<DrugLotService.Allocation> allocations = drugLotService.allocate(drug, 4, "RX-1");
+
+        assertThat(allocations).extracting(DrugLotService.Allocation::lotId).containsExactly(2L);
+        verify(stockLedger).record(DRUG_ID, 2L, StockMovementType.DISPENSE, -4, "RX-1");
+        verify(stockLedger, never()).record(eq(DRUG_ID), eq(1L), any(), anyInt(), any());
+    }
+
+    private static AvailableLot lot(Long id, int remaining) {
+        AvailableLot lot = mock(AvailableLot.class);
+        lenient().when(lot.getId()).thenReturn(id);
+        lenient().when(lot.getQuantityRemaining()).thenReturn(remaining);
+        lenient().when(lot.getExpiryDate()).thenReturn(LocalDate.now().plusMonths(id));
+        return lot;
+    }
+}
@@ -0,0 +1,91 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.InteractionWarningDTO;
+import com.helvinotech.hms.entity.DrugInteraction;
+import com.helvinotech.hms.enums.InteractionSeverity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InteractionCheckerTest {
+
+    private final InteractionChecker checker = new InteractionChecker();
+
+    @Test
+    void reactionNotedAfterTheAllergenIsIgnored() {
+        assertThat(allergyWarnings("Penicillin V", null, "Penicillin (rash)"))
+                .containsExactly("Patient is allergic to Penicillin (rash)");
+        assertThat(allergyWarnings("Sulfamethoxazole/Trimethoprim", "Septrin", "Sulfa - hives"))
+                .containsExactly("Patient is allergic to Sulfa - hives");
+        assertThat(allergyWarnings("Aspirin", null, "aspirin: wheeze")).hasSize(1);
+        assertThat(allergyWarnings("Penicillin V", null, "Penicillin (rash")).hasSize(1);
+    }
+
+    @Test
+    void entryIsMatchedWordByWord() {
+        assertThat(allergyWarnings("Amoxicillin", "Amoxil", "Allergic to amoxicillin")).hasSize(1);
+        assertThat(allergyWarnings("Penicillin G", null, "penicillins (anaphylaxis)")).hasSize(1);
+        assertThat(allergyWarnings("Ibuprofen", "Brufen", "Brufen tablets")).hasSize(1);
+        assertThat(allergyWarnings("Co-trimoxazole", null, "co-trimoxazole")).hasSize(1);
+    }
+
+    @Test
+    void eachEntryIsCheckedSeparately() {
+        assertThat(allergyWarnings("Codeine Phosphate", null, "Latex; codeine (vomiting), and peanuts"))
+                .containsExactly("Patient is allergic to codeine (vomiting)");
+    }
+
+    @Test
+    void unrelatedOrNegativeEntriesRaiseNothing() {
+        assertThat(allergyWarnings("Amoxicillin", null, "Latex, peanuts")).isEmpty();
+        assertThat(allergyWarnings("Amoxicillin", null, "NKDA")).isEmpty();
+        assertThat(allergyWarnings("Amoxicillin", null, "None known")).isEmpty();
+        assertThat(allergyWarnings("Amoxicillin", null, "Nil (confirmed with family)")).isEmpty();
+        assertThat(allergyWarnings("Amoxicillin", null, "Severe rash")).isEmpty();
+        assertThat(allergyWarnings("Amoxicillin", null, null)).isEmpty();
+    }
+
+    @Test
+    void saltAndCounterIonWordsAreNotAllergens() {
+        assertThat(allergyWarnings("Ferrous sulfate", null, "Sulfa")).isEmpty();
+        assertThat(allergyWarnings("Morphine sulfate", null, "Sulfa drugs")).isEmpty();
+        assertThat(allergyWarnings("Magnesium sulfate", null, "Sulphonamides")).isEmpty();
+        assertThat(allergyWarnings("Sodium phosphate", null, "Codeine phosphate")).isEmpty();
+        assertThat(allergyWarnings("Promethazine hydrochloride", null, "Penicillin")).isEmpty();
+        // The ingredient itself is still caught whatever salt it comes as
+        assertThat(allergyWarnings("Morphine sulfate", null, "Morphine")).hasSize(1);
+        assertThat(allergyWarnings("Codeine phosphate", null, "Codeine phosphate")).hasSize(1);
+        assertThat(allergyWarnings("Potassium chloride", null, "Potassium chloride")).hasSize(1);
+    }
+
+    @Test
+    void drugClassesMatchTheirIngredients() {
+        assertThat(allergyWarnings("Co-trimoxazole", "Septrin", "Sulfa")).hasSize(1);
+        assertThat(allergyWarnings("Sulfasalazine", null, "Sulphonamides")).hasSize(1);
+        assertThat(allergyWarnings("Amoxicillin", null, "Penicillins")).hasSize(1);
+        assertThat(allergyWarnings("Ceftriaxone", null, "Cephalosporins")).hasSize(1);
+        assertThat(allergyWarnings("Diclofenac sodium", null, "NSAIDs")).hasSize(1);
+        assertThat(allergyWarnings("Co-codamol", null, "Co-trimoxazole")).isEmpty();
+    }
+
+    @Test
+    void interactionRulesApplyInBothDirections() {
+        InteractionChecker.Table table = InteractionChecker.build(List.of(DrugInteraction.builder()
+                .drugId(1L).interactingDrugId(2L).severity(InteractionSeverity.MAJOR).description("Bleeding risk").build()));
+
+        List<InteractionWarningDTO> warnings = checker.check(table, 2L, "Aspirin", null, null,
+                List.of(new InteractionChecker.Medication(10L, 1L, "Warfarin")), null);
+
+        assertThat(warnings).extracting(InteractionWarningDTO::getMessage)
+                .containsExactly("MAJOR interaction with Warfarin: Bleeding risk");
+        assertThat(checker.check(table, 3L, "Paracetamol", null, null,
+                List.of(new InteractionChecker.Medication(10L, 1L, "Warfarin")), null)).isEmpty();
+    }
+
+    private List<String> allergyWarnings(String genericName, String brandName, String allergies) {
+        return checker.check(InteractionChecker.Table.EMPTY, 1L, genericName, brandName, "Other", List.of(), allergies)
+                .stream().filter(InteractionWarningDTO::isAllergy).map(InteractionWarningDTO::getMessage).toList();
+    }
+}
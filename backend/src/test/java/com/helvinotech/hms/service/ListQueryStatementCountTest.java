@@ -0,0 +1,250 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.entity.*;
+import com.helvinotech.hms.enums.*;
+import com.helvinotech.hms.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the fetch plans on list and page queries: each list endpoint must cost a fixed number of SQL
+ * statements however many rows it returns. Every list here holds several rows whose associations all
+ * differ, so a lazy load per row would push the count past the expected value. Lists that are not scoped
+ * to the seeded rows also return whatever other tests left behind, so only their minimum size is known.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListQueryStatementCountTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 6;
+    // A full first page, so Spring Data always issues the count query as well
+    private static final PageRequest PAGE = PageRequest.of(0, ROWS);
+    // Seeded rows hang off these patients, users and the ward; children before parents
+    private static final String PATIENTS = "SELECT id FROM patients WHERE patient_no LIKE 'T-' || :run || '-%'";
+    private static final List<String> CLEANUP = List.of(
+            "DELETE FROM nursing_notes WHERE admission_id IN (SELECT id FROM admissions WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM prescriptions WHERE visit_id IN (SELECT id FROM visits WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM admissions WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM beds WHERE room_id IN (SELECT r.id FROM rooms r JOIN wards w ON w.id = r.ward_id WHERE w.name = 'Ward ' || :run)",
+            "DELETE FROM rooms WHERE ward_id IN (SELECT id FROM wards WHERE name = 'Ward ' || :run)",
+            "DELETE FROM wards WHERE name = 'Ward ' || :run",
+            "DELETE FROM lab_orders WHERE visit_id IN (SELECT id FROM visits WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM imaging_orders WHERE visit_id IN (SELECT id FROM visits WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM insurance_claims WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM payments WHERE billing_id IN (SELECT id FROM billings WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM billing_items WHERE billing_id IN (SELECT id FROM billings WHERE patient_id IN (" + PATIENTS + "))",
+            "DELETE FROM billings WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM appointments WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM visits WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM duplicate_patient_pairs WHERE patient_a_id IN (" + PATIENTS + ") OR patient_b_id IN (" + PATIENTS + ")",
+            "DELETE FROM patient_blocking_keys WHERE patient_id IN (" + PATIENTS + ")",
+            "DELETE FROM patients WHERE id IN (" + PATIENTS + ")",
+            "DELETE FROM users WHERE email LIKE '%-' || :run || '-%@test.local'",
+            "DELETE FROM insurance_companies WHERE name LIKE 'Insurer ' || :run || '-%'",
+            "DELETE FROM lab_tests WHERE test_name = 'FBC ' || :run",
+            "DELETE FROM drugs WHERE generic_name = 'Drug ' || :run");
+
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private VisitRepository visitRepository;
+    @Autowired private AppointmentRepository appointmentRepository;
+    @Autowired private BillingRepository billingRepository;
+    @Autowired private InsuranceCompanyRepository insuranceCompanyRepository;
+    @Autowired private InsuranceClaimRepository claimRepository;
+    @Autowired private LabTestRepository labTestRepository;
+    @Autowired private LabOrderRepository labOrderRepository;
+    @Autowired private ImagingOrderRepository imagingOrderRepository;
+    @Autowired private WardRepository wardRepository;
+    @Autowired private RoomRepository roomRepository;
+    @Autowired private BedRepository bedRepository;
+    @Autowired private AdmissionRepository admissionRepository;
+    @Autowired private NursingNoteRepository nursingNoteRepository;
+    @Autowired private DrugRepository drugRepository;
+    @Autowired private PrescriptionRepository prescriptionRepository;
+
+    @Autowired private PatientService patientService;
+    @Autowired private VisitService visitService;
+    @Autowired private AppointmentService appointmentService;
+    @Autowired private BillingService billingService;
+    @Autowired private InsuranceService insuranceService;
+    @Autowired private LabService labService;
+    @Autowired private ImagingService imagingService;
+    @Autowired private WardService wardService;
+    @Autowired private PharmacyService pharmacyService;
+
+    private Statistics statistics;
+    private String run;
+    private Long patientId;
+    private Long visitId;
+    private Long admissionId;
+    private LocalDate appointmentDate;
+
+    @BeforeAll
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        appointmentDate = LocalDate.now().plusYears(50);
+        run = UUID.randomUUID().toString().substring(0, 8);
+        transactionTemplate.executeWithoutResult(status -> {
+            Ward ward = wardRepository.save(Ward.builder().name("Ward " + run).type("General").build());
+            LabTest test = labTestRepository.save(LabTest.builder().testName("FBC " + run).price(BigDecimal.TEN).build());
+            Drug drug = drugRepository.save(Drug.builder().genericName("Drug " + run).quantityInStock(0)
+                    .sellingPrice(BigDecimal.ONE).build());
+            Patient first = null;
+            Visit firstVisit = null;
+            Admission firstAdmission = null;
+            for (int i = 0; i < ROWS; i++) {
+                String tag = run + "-" + i;
+                InsuranceCompany insurer = insuranceCompanyRepository.save(InsuranceCompany.builder().name("Insurer " + tag).build());
+                Patient patient = patientRepository.save(Patient.builder().patientNo("T-" + tag).fullName("Patient " + tag)
+                        .gender(Gender.FEMALE).phone("07000" + i).insuranceCompany(insurer).build());
+                User doctor = userRepository.save(user("doctor", tag, UserRole.DOCTOR));
+                User nurse = userRepository.save(user("nurse", tag, UserRole.NURSE));
+                Visit visit = visitRepository.save(Visit.builder().patient(patient).doctor(doctor).visitType(VisitType.OPD).build());
+                appointmentRepository.save(Appointment.builder().patient(patient).doctor(doctor)
+                        .appointmentDate(appointmentDate).appointmentTime(LocalTime.of(8, i)).build());
+
+                Billing billing = Billing.builder().invoiceNumber("T-INV-" + tag).patient(patient).visit(visit).build();
+                billing.getItems().add(BillingItem.builder().billing(billing).serviceType("Lab").description("FBC")
+                        .quantity(1).unitPrice(BigDecimal.TEN).totalPrice(BigDecimal.TEN).build());
+                billing.getPayments().add(Payment.builder().billing(billing).amount(BigDecimal.ONE)
+                        .paymentMethod(PaymentMethod.CASH).receivedBy(nurse).build());
+                billing = billingRepository.save(billing);
+                claimRepository.save(InsuranceClaim.builder().claimNumber("T-CLM-" + tag).billing(billing)
+                        .insuranceCompany(insurer).patient(patient).claimAmount(BigDecimal.TEN).build());
+
+                labOrderRepository.save(LabOrder.builder().visit(visit).test(test).orderedBy(doctor)
+                        .processedBy(nurse).verifiedBy(doctor).build());
+                imagingOrderRepository.save(ImagingOrder.builder().visit(visit).imagingType(ImagingType.XRAY).radiologist(doctor).build());
+
+                Room room = roomRepository.save(Room.builder().roomNumber("R" + i).ward(ward).build());
+                Bed bed = bedRepository.save(Bed.builder().bedNumber("B" + i).room(room).status(BedStatus.OCCUPIED).build());
+                Admission admission = admissionRepository.save(Admission.builder().patient(patient).visit(visit).bed(bed)
+                        .admittingDoctor(doctor).admittedAt(LocalDateTime.now()).build());
+                prescriptionRepository.save(Prescription.builder().visit(firstVisit != null ? firstVisit : visit).drug(drug)
+                        .dosage("1x" + i).quantityPrescribed(1).build());
+                nursingNoteRepository.save(NursingNote.builder().admission(firstAdmission != null ? firstAdmission : admission)
+                        .nurse(nurse).notes("note " + i).build());
+                if (first == null) {
+                    first = patient;
+                    firstVisit = visit;
+                    firstAdmission = admission;
+                }
+            }
+            patientId = first.getId();
+            visitId = firstVisit.getId();
+            admissionId = firstAdmission.getId();
+        });
+    }
+
+    @AfterAll
+    void removeSeededRows() {
+        transactionTemplate.executeWithoutResult(status ->
+                CLEANUP.forEach(statement -> namedJdbc.update(statement, Map.of("run", run))));
+    }
+
+    @Test
+    void patientLists() {
+        assertStatements(2, () -> patientService.getAllPatients(PAGE).getContent());
+        assertStatements(1, () -> patientService.scrollPatients(null, ROWS).getContent());
+    }
+
+    @Test
+    void visitLists() {
+        assertStatements(2, () -> visitService.getAllVisits(PAGE).getContent());
+        assertStatements(1, () -> visitService.scrollVisits(null, ROWS).getContent());
+    }
+
+    @Test
+    void appointmentLists() {
+        assertStatements(2, () -> appointmentService.getAllAppointments(PAGE).getContent());
+        assertStatements(2, () -> appointmentService.getAppointmentsByDate(appointmentDate, PAGE).getContent(), ROWS);
+    }
+
+    @Test
+    void billingLists() {
+        // page (+ count), then one IN-batch each for items and payments, and one for the payment receivers
+        assertStatements(5, () -> billingService.getAllBillings(PAGE).getContent());
+        assertStatements(4, () -> billingService.scrollBillings(null, ROWS).getContent());
+        assertStatements(4, () -> billingService.scrollBillingsByStatus(PaymentStatus.PENDING, null, ROWS).getContent());
+    }
+
+    @Test
+    void claimLists() {
+        assertStatements(2, () -> insuranceService.getAllClaims(PAGE).getContent());
+        assertStatements(1, () -> insuranceService.scrollClaims(null, ROWS).getContent());
+        assertStatements(1, () -> insuranceService.scrollClaimsByStatus(ClaimStatus.DRAFT, null, ROWS).getContent());
+    }
+
+    @Test
+    void orderLists() {
+        assertStatements(2, () -> labService.getOrdersByStatus(LabOrderStatus.ORDERED, PAGE).getContent());
+        assertStatements(1, () -> labService.scrollOrdersByStatus(LabOrderStatus.ORDERED, null, ROWS).getContent());
+        assertStatements(2, () -> imagingService.getAllOrders(PAGE).getContent());
+    }
+
+    @Test
+    void wardLists() {
+        assertStatements(2, () -> wardService.getAdmissionsByStatus(AdmissionStatus.ADMITTED, PAGE).getContent());
+        assertStatements(1, () -> wardService.scrollAdmissionsByStatus(AdmissionStatus.ADMITTED, null, ROWS).getContent());
+        assertStatements(1, () -> wardService.getNursingNotes(admissionId), ROWS);
+    }
+
+    @Test
+    void prescriptionLists() {
+        assertStatements(1, () -> pharmacyService.getVisitPrescriptions(visitId), ROWS);
+        assertStatements(1, () -> pharmacyService.getPendingPrescriptions());
+    }
+
+    @Test
+    void perPatientPages() {
+        // A short first page needs no count query
+        assertStatements(1, () -> visitService.getVisitsByPatient(patientId, PAGE).getContent(), 1);
+        assertStatements(4, () -> billingService.getBillingsByPatient(patientId, PAGE).getContent(), 1);
+    }
+
+    private void assertStatements(long expected, Supplier<? extends Collection<?>> call) {
+        assertStatements(expected, call, -1);
+    }
+
+    private void assertStatements(long expected, Supplier<? extends Collection<?>> call, int expectedRows) {
+        statistics.clear();
+        Collection<?> rows = call.get();
+        long statements = statistics.getPrepareStatementCount();
+        if (expectedRows >= 0) {
+            assertThat(rows).hasSize(expectedRows);
+        } else {
+            assertThat(rows).hasSizeGreaterThanOrEqualTo(ROWS);
+        }
+        assertThat(statements).as("SQL statements issued").isEqualTo(expected);
+    }
+
+    private static User user(String kind, String tag, UserRole role) {
+        return User.builder().fullName(kind + " " + tag).email(kind + "-" + tag + "@test.local")
+                .passwordHash("x").role(role).build();
+    }
+}
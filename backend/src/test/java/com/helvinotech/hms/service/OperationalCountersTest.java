@@ -0,0 +1,89 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static com.helvinotech.hms.service.OperationalCounters.Counter.PATIENTS_TODAY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OperationalCountersTest {
+
+    @Mock private PatientRepository patientRepository;
+    @Mock private VisitRepository visitRepository;
+    @Mock private AppointmentRepository appointmentRepository;
+    @Mock private BillingRepository billingRepository;
+    @Mock private LabOrderRepository labOrderRepository;
+    @Mock private BedRepository bedRepository;
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @InjectMocks private OperationalCounters counters;
+
+    @Test
+    void reseedReplacesDriftedValue() {
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(3L);
+        counters.reseed();
+        counters.patientRegistered();
+
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(10L);
+        counters.reseed();
+
+        assertThat(counters.get(PATIENTS_TODAY)).isEqualTo(10);
+    }
+
+    @Test
+    void reseedKeepsIncrementsCommittedAfterTheCount() {
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(3L);
+        counters.reseed();
+
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(3L);
+        // Registered while the seed is still counting, after the patient count's snapshot
+        when(visitRepository.countByCreatedAtBetween(any(), any())).thenAnswer(invocation -> {
+            counters.patientRegistered();
+            return 0L;
+        });
+        counters.reseed();
+
+        assertThat(counters.get(PATIENTS_TODAY)).isEqualTo(4);
+    }
+
+    @Test
+    void reseedDropsIncrementsCommittedBeforeTheCount() {
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(3L);
+        counters.reseed();
+
+        // Registered in transaction 101, which commits before the count; its after-commit hook runs late
+        List<TransactionSynchronization> registration;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            when(jdbcTemplate.queryForObject("SELECT txid_current()", Long.class)).thenReturn(101L);
+            counters.patientRegistered();
+            registration = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        when(jdbcTemplate.queryForObject("SELECT CAST(txid_current_snapshot() AS text)", String.class)).thenReturn("102:102:");
+        when(patientRepository.countByCreatedAtBetween(any(), any())).thenReturn(4L);
+        when(visitRepository.countByCreatedAtBetween(any(), any())).thenAnswer(invocation -> {
+            registration.forEach(TransactionSynchronization::afterCommit);
+            registration.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return 0L;
+        });
+        counters.reseed();
+
+        assertThat(counters.get(PATIENTS_TODAY)).isEqualTo(4);
+    }
+}
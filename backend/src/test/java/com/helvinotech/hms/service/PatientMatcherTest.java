@@ -0,0 +1,77 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.service.PatientMatcher.Candidate;
+import com.helvinotech.hms.service.PatientMatcher.Match;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PatientMatcherTest {
+
+    private static final LocalDate DOB = LocalDate.of(1980, 6, 15);
+
+    private final PatientMatcher matcher = new PatientMatcher();
+
+    @Test
+    void misspelledNamesShareABlock() {
+        Candidate registered = new Candidate(1L, "Mohamed Ali", DOB, null, null);
+        Candidate typed = new Candidate(null, "Mohammed Ali", LocalDate.of(1980, 1, 1), null, null);
+
+        assertThat(matcher.blockingKeys(typed)).containsAnyElementsOf(matcher.blockingKeys(registered));
+        // Same spelling, another birth year
+        assertThat(matcher.blockingKeys(new Candidate(null, "Mohamed Ali", LocalDate.of(1981, 6, 15), null, null)))
+                .doesNotContainAnyElementsOf(matcher.blockingKeys(registered));
+    }
+
+    @Test
+    void phoneAndIdKeysIgnoreFormatting() {
+        Candidate a = new Candidate(1L, "Grace Akinyi", null, "+254 712 345 678", "12-345 678");
+        Candidate b = new Candidate(2L, "Akinyi Grace", null, "0712345678", "12345678");
+
+        assertThat(matcher.blockingKeys(a)).containsExactly("P:2345678", "I:12345678");
+        assertThat(matcher.blockingKeys(b)).containsExactly("P:2345678", "I:12345678");
+        // No name keys without a date of birth, and short phone numbers are not keyed
+        assertThat(matcher.blockingKeys(new Candidate(3L, "Grace Akinyi", null, "12345", null))).isEmpty();
+    }
+
+    @Test
+    void misspellingWithSameBirthDateAndPhoneIsAStrongMatch() {
+        Match match = matcher.score(new Candidate(1L, "Mohamed Ali", DOB, "0712345678", null),
+                new Candidate(2L, "Ali Mohammed", DOB, "+254712345678", null));
+
+        assertThat(match.score()).isGreaterThanOrEqualTo(PatientMatcher.STRONG_THRESHOLD);
+        assertThat(match.reasons()).contains("same date of birth", "same phone");
+    }
+
+    @Test
+    void namesakeBornAnotherYearIsNotACandidate() {
+        Match match = matcher.score(new Candidate(1L, "John Otieno", DOB, "0712345678", null),
+                new Candidate(2L, "John Otieno", LocalDate.of(1992, 3, 2), "0798765432", null));
+
+        assertThat(match.score()).isLessThan(PatientMatcher.CANDIDATE_THRESHOLD);
+    }
+
+    @Test
+    void idNumbersDecideWhenBothArePresent() {
+        Match sameId = matcher.score(new Candidate(1L, "Jane Wanjiru", null, null, "A1234567"),
+                new Candidate(2L, "Jane W. Kamau", null, null, "a-1234567"));
+        assertThat(sameId.score()).isGreaterThanOrEqualTo(0.97);
+        assertThat(sameId.reasons()).contains("same ID number");
+
+        Match differentId = matcher.score(new Candidate(1L, "Jane Wanjiru", DOB, "0712345678", "A1234567"),
+                new Candidate(2L, "Jane Wanjiru", DOB, "0712345678", "B7654321"));
+        assertThat(differentId.score()).isEqualTo(0.6);
+        assertThat(differentId.score()).isLessThan(PatientMatcher.CANDIDATE_THRESHOLD);
+        assertThat(differentId.reasons()).contains("different ID numbers");
+    }
+
+    @Test
+    void jaroWinklerMatchesTheReferenceValues() {
+        assertThat(PatientMatcher.jaroWinkler("martha", "marhta")).isCloseTo(0.961, within(0.001));
+        assertThat(PatientMatcher.jaroWinkler("dwayne", "duane")).isCloseTo(0.840, within(0.001));
+        assertThat(PatientMatcher.jaroWinkler("abc", "xyz")).isZero();
+    }
+}
@@ -0,0 +1,121 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.dto.DrugDTO;
+import com.helvinotech.hms.dto.InteractionWarningDTO;
+import com.helvinotech.hms.dto.PrescriptionDTO;
+import com.helvinotech.hms.dto.StockCountDTO;
+import com.helvinotech.hms.entity.Drug;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.entity.Prescription;
+import com.helvinotech.hms.entity.User;
+import com.helvinotech.hms.entity.Visit;
+import com.helvinotech.hms.exception.BadRequestException;
+import com.helvinotech.hms.exception.ConfirmationRequiredException;
+import com.helvinotech.hms.exception.ConflictException;
+import com.helvinotech.hms.repository.DrugRepository;
+import com.helvinotech.hms.repository.PrescriptionRepository;
+import com.helvinotech.hms.repository.UserRepository;
+import com.helvinotech.hms.repository.VisitRepository;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PharmacyServiceTest {
+
+    private static final Long RX_ID = 11L;
+    private static final Long PHARMACIST_ID = 3L;
+
+    @Mock private DrugRepository drugRepository;
+    @Mock private PrescriptionRepository prescriptionRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private DrugLotService drugLotService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private VisitRepository visitRepository;
+    @Mock private DrugInteractionService drugInteractionService;
+
+    @InjectMocks private PharmacyService pharmacyService;
+
+    @Test
+    void editingADrugNeverMovesStock() {
+        Drug drug = Drug.builder().id(5L).genericName("Amoxicillin").quantityInStock(40).build();
+        when(drugRepository.findById(5L)).thenReturn(Optional.of(drug));
+        DrugDTO form = new DrugDTO();
+        form.setGenericName("Amoxicillin");
+        // Pre-filled when the form was opened; 12 units have been dispensed since
+        form.setQuantityInStock(52);
+
+        pharmacyService.updateDrug(5L, form);
+
+        verifyNoInteractions(drugLotService);
+        verify(drugRepository, never()).incrementStock(anyLong(), anyInt());
+        verify(drugRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void stockCountAgainstAStaleFigureIsRefused() {
+        when(drugRepository.findById(5L)).thenReturn(Optional.of(Drug.builder().id(5L).genericName("Amoxicillin").build()));
+        when(drugRepository.lockIfStockIs(5L, 52)).thenReturn(0);
+        StockCountDTO count = new StockCountDTO();
+        count.setExpectedQuantity(52);
+        count.setCountedQuantity(50);
+
+        assertThatThrownBy(() -> pharmacyService.recordStockCount(5L, count)).isInstanceOf(ConflictException.class);
+
+        verifyNoInteractions(drugLotService);
+    }
+
+    @Test
+    void losingTheClaimToAnotherDispenseTakesNoStock() {
+        Prescription rx = Prescription.builder().id(RX_ID).drug(Drug.builder().id(5L).build()).quantityPrescribed(2).build();
+        when(prescriptionRepository.findWithDrugById(RX_ID)).thenReturn(Optional.of(rx));
+        when(userRepository.findById(PHARMACIST_ID)).thenReturn(Optional.of(User.builder().id(PHARMACIST_ID).build()));
+        // Read as undispensed, but a concurrent dispense committed its claim first
+        when(prescriptionRepository.markDispensed(eq(RX_ID), eq(2), any(), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> pharmacyService.dispensePrescription(RX_ID, PHARMACIST_ID))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Already dispensed");
+
+        verifyNoInteractions(drugLotService, drugRepository, eventPublisher);
+        verify(prescriptionRepository, never()).recordDispensedBatches(anyLong(), any());
+    }
+
+    @Test
+    void allergyWarningAsksForConfirmationWithTheWarnings() {
+        Visit visit = Visit.builder().id(20L).patient(Patient.builder().id(30L).fullName("Jane").build()).build();
+        Drug drug = Drug.builder().id(5L).genericName("Amoxicillin").build();
+        InteractionWarningDTO allergy = new InteractionWarningDTO(true, null, null, null, null,
+                "Patient is allergic to Penicillins", true);
+        when(visitRepository.findById(20L)).thenReturn(Optional.of(visit));
+        when(drugRepository.findById(5L)).thenReturn(Optional.of(drug));
+        when(drugInteractionService.checkNew(visit, drug)).thenReturn(List.of(allergy));
+        PrescriptionDTO dto = new PrescriptionDTO();
+        dto.setVisitId(20L);
+        dto.setDrugId(5L);
+
+        assertThatThrownBy(() -> pharmacyService.createPrescription(dto))
+                .hasMessageNotContaining("overrideWarnings")
+                .asInstanceOf(InstanceOfAssertFactories.type(ConfirmationRequiredException.class))
+                .extracting(ConfirmationRequiredException::getDetails, InstanceOfAssertFactories.LIST)
+                .containsExactly(allergy);
+        verify(prescriptionRepository, never()).save(any());
+
+        dto.setOverrideWarnings(true);
+        when(prescriptionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        assertThat(pharmacyService.createPrescription(dto).getInteractionWarnings())
+                .contains("Patient is allergic to Penicillins");
+    }
+}
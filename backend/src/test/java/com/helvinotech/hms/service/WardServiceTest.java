@@ -0,0 +1,125 @@
+package com.helvinotech.hms.service;
+
+import com.helvinotech.hms.PostgresIntegrationTest;
+import com.helvinotech.hms.config.EnumConstraintInitializer;
+import com.helvinotech.hms.controller.WardController;
+import com.helvinotech.hms.dto.*;
+import com.helvinotech.hms.entity.Patient;
+import com.helvinotech.hms.enums.AdmissionStatus;
+import com.helvinotech.hms.enums.BedStatus;
+import com.helvinotech.hms.enums.Gender;
+import com.helvinotech.hms.repository.BedRepository;
+import com.helvinotech.hms.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WardServiceTest extends PostgresIntegrationTest {
+
+    @Autowired private WardService wardService;
+    @Autowired private WardController wardController;
+    @Autowired private PatientService patientService;
+    @Autowired private PatientRepository patientRepository;
+    @Autowired private BedRepository bedRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EnumConstraintInitializer enumConstraintInitializer;
+
+    private String run;
+    private Long wardId;
+    private Long bedId;
+    private Long patientId;
+
+    @BeforeEach
+    void seed() {
+        run = UUID.randomUUID().toString().substring(0, 8);
+        WardDTO ward = new WardDTO();
+        ward.setName("Ward " + run);
+        ward.setType("General");
+        wardId = wardService.createWard(ward).getId();
+        RoomDTO room = new RoomDTO();
+        room.setRoomNumber("R-" + run);
+        room.setWardId(wardId);
+        Long roomId = wardService.createRoom(room).getId();
+        bedId = createBed(roomId, "B-" + run).getId();
+        patientId = patientRepository.save(Patient.builder().patientNo("W-" + run).fullName("Patient " + run)
+                .gender(Gender.FEMALE).phone("0722" + run).build()).getId();
+    }
+
+    @Test
+    void dischargeMovesTheBedToCleaningOnADatabaseCreatedBeforeCleaningExisted() {
+        // The constraint Hibernate wrote before CLEANING was added; schema update never rewrites it
+        jdbcTemplate.execute("ALTER TABLE beds DROP CONSTRAINT IF EXISTS beds_status_check, " +
+                "ADD CONSTRAINT beds_status_check CHECK (status IN ('AVAILABLE', 'OCCUPIED', 'RESERVED', 'MAINTENANCE'))");
+        enumConstraintInitializer.run();
+
+        AdmissionDTO admission = wardService.admitPatient(admission(bedId));
+        AdmissionDTO discharged = wardService.dischargePatient(admission.getId(), "Recovered");
+
+        assertThat(discharged.getStatus()).isEqualTo(AdmissionStatus.DISCHARGED);
+        assertThat(bedRepository.findStateById(bedId).orElseThrow().getStatus()).isEqualTo(BedStatus.CLEANING);
+        assertThat(wardService.getBeds(wardId, BedStatus.CLEANING)).extracting(BedDTO::getId).containsExactly(bedId);
+        assertThat(wardService.getWardOccupancy(wardId).getCleaning()).isEqualTo(1);
+    }
+
+    @Test
+    void hierarchyIsNotModifiedUntilItsOccupantChanges() {
+        AdmissionDTO admission = wardService.admitPatient(admission(bedId));
+        ResponseEntity<ApiResponse<WardHierarchyDTO>> first = getHierarchy(null, new MockHttpServletResponse());
+        assertThat(first.getBody().getData().getRooms()).singleElement()
+                .satisfies(room -> assertThat(room.getBeds()).singleElement()
+                        .satisfies(bed -> assertThat(bed.getOccupant().getPatientId()).isEqualTo(patientId)));
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotNull();
+
+        MockHttpServletResponse revalidated = new MockHttpServletResponse();
+        assertThat(getHierarchy(etag, revalidated)).isNull();
+        assertThat(revalidated.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+
+        // A change to the occupant outside the ward's own tables
+        PatientDTO patient = patientService.getPatient(patientId);
+        patient.setAllergies("Penicillin " + run);
+        patientService.updatePatient(patientId, patient);
+
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        ResponseEntity<ApiResponse<WardHierarchyDTO>> response = getHierarchy(etag, changed);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotNull().isNotEqualTo(etag);
+        assertThat(response.getBody().getData().getRooms().get(0).getBeds().get(0).getOccupant().getAllergies())
+                .isEqualTo("Penicillin " + run);
+        wardService.dischargePatient(admission.getId(), "Recovered");
+    }
+
+    private ResponseEntity<ApiResponse<WardHierarchyDTO>> getHierarchy(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/wards/" + wardId + "/hierarchy");
+        if (ifNoneMatch != null) request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return wardController.getWardHierarchy(wardId, new ServletWebRequest(request, response));
+    }
+
+    private BedDTO createBed(Long roomId, String number) {
+        BedDTO bed = new BedDTO();
+        bed.setBedNumber(number);
+        bed.setRoomId(roomId);
+        bed.setDailyCharge(BigDecimal.TEN);
+        return wardService.createBed(bed);
+    }
+
+    private AdmissionDTO admission(Long bed) {
+        AdmissionDTO dto = new AdmissionDTO();
+        dto.setPatientId(patientId);
+        dto.setBedId(bed);
+        dto.setAdmissionReason("Observation " + run);
+        return dto;
+    }
+}
@@ -1,5 +1,5 @@
 import api from './client';
-import type { ApiResponse, Patient, Visit, Appointment, Drug, Prescription, LabTest, LabOrder, ImagingOrder, Billing, BillingItem, Payment, InsuranceCompany, InsuranceClaim, Ward, Room, Bed, Admission, NursingNote, User, Dashboard, Notification, PageResponse, AuthResponse } from '../types';
+import type { ApiResponse, Patient, Visit, Appointment, Drug, DrugLot, StockCount, Prescription, BatchDispenseResult, DrugInteraction, InteractionWarning, LabTest, LabOrder, ImagingOrder, Billing, BillingItem, Payment, InsuranceCompany, InsuranceClaim, Ward, Room, Bed, BedStatus, WardOccupancy, WardHierarchy, Admission, NursingNote, User, Dashboard, Notification, PageResponse, AuthResponse } from '../types';
 
 // Auth
 export const authApi = {
@@ -17,7 +17,8 @@ export const patientApi = {
   getByNo: (no: string) => api.get<ApiResponse<Patient>>(`/patients/by-no/${no}`),
   search: (q: string, page = 0) =>
     api.get<ApiResponse<PageResponse<Patient>>>(`/patients/search?q=${q}&page=${page}`),
-  create: (data: Partial<Patient>) => api.post<ApiResponse<Patient>>('/patients', data),
+  create: (data: Partial<Patient>, allowDuplicate = false) =>
+    api.post<ApiResponse<Patient>>(`/patients${allowDuplicate ? '?allowDuplicate=true' : ''}`, data),
   update: (id: number, data: Partial<Patient>) => api.put<ApiResponse<Patient>>(`/patients/${id}`, data),
 };
 
@@ -56,12 +57,26 @@ export const pharmacyApi = {
   updateDrug: (id: number, data: Partial<Drug>) => api.put<ApiResponse<Drug>>(`/pharmacy/drugs/${id}`, data),
   getLowStock: () => api.get<ApiResponse<Drug[]>>('/pharmacy/drugs/low-stock'),
   getExpiring: () => api.get<ApiResponse<Drug[]>>('/pharmacy/drugs/expiring'),
+  getDrugLots: (drugId: number) => api.get<ApiResponse<DrugLot[]>>(`/pharmacy/drugs/${drugId}/lots`),
+  receiveLot: (drugId: number, data: Partial<DrugLot>) =>
+    api.post<ApiResponse<DrugLot>>(`/pharmacy/drugs/${drugId}/lots`, data),
+  recordStockCount: (drugId: number, data: StockCount) =>
+    api.post<ApiResponse<Drug>>(`/pharmacy/drugs/${drugId}/stock-count`, data),
+  getExpiringLots: (days = 90) => api.get<ApiResponse<DrugLot[]>>(`/pharmacy/lots/expiring?days=${days}`),
+  getInteractions: (drugId?: number) =>
+    api.get<ApiResponse<DrugInteraction[]>>(`/pharmacy/interactions${drugId ? `?drugId=${drugId}` : ''}`),
+  addInteraction: (data: Partial<DrugInteraction>) => api.post<ApiResponse<DrugInteraction>>('/pharmacy/interactions', data),
+  deleteInteraction: (id: number) => api.delete<ApiResponse<void>>(`/pharmacy/interactions/${id}`),
+  checkInteractions: (visitId: number, drugId: number) =>
+    api.get<ApiResponse<InteractionWarning[]>>(`/pharmacy/interactions/check?visitId=${visitId}&drugId=${drugId}`),
   createPrescription: (data: Partial<Prescription>) =>
     api.post<ApiResponse<Prescription>>('/pharmacy/prescriptions', data),
   getPendingRx: () => api.get<ApiResponse<Prescription[]>>('/pharmacy/prescriptions/pending'),
   getVisitRx: (visitId: number) => api.get<ApiResponse<Prescription[]>>(`/pharmacy/prescriptions/visit/${visitId}`),
   dispense: (id: number, pharmacistId: number) =>
     api.post<ApiResponse<Prescription>>(`/pharmacy/prescriptions/${id}/dispense?pharmacistId=${pharmacistId}`),
+  dispenseBatch: (data: { visitId?: number; prescriptionIds?: number[] }, pharmacistId: number) =>
+    api.post<ApiResponse<BatchDispenseResult>>(`/pharmacy/prescriptions/dispense?pharmacistId=${pharmacistId}`, data),
 };
 
 // Lab
@@ -105,6 +120,8 @@ export const billingApi = {
   addItem: (billingId: number, item: Partial<BillingItem>) =>
     api.post<ApiResponse<Billing>>(`/billing/${billingId}/items`, item),
   processPayment: (data: Partial<Payment>) => api.post<ApiResponse<Billing>>('/billing/payments', data),
+  accrueBedCharges: (date?: string) =>
+    api.post<ApiResponse<Record<string, unknown>>>('/billing/bed-charges/accrue', null, { params: { date } }),
 };
 
 // Insurance
@@ -126,10 +143,18 @@ export const wardApi = {
   getWards: () => api.get<ApiResponse<Ward[]>>('/wards'),
   createWard: (data: Partial<Ward>) => api.post<ApiResponse<Ward>>('/wards', data),
   updateWard: (id: number, data: Partial<Ward>) => api.put<ApiResponse<Ward>>(`/wards/${id}`, data),
+  // Revalidated with the ward ETag; the browser cache turns a 304 into the cached body
+  getHierarchy: (wardId: number) => api.get<ApiResponse<WardHierarchy>>(`/wards/${wardId}/hierarchy`),
   getRooms: (wardId: number) => api.get<ApiResponse<Room[]>>(`/wards/${wardId}/rooms`),
   createRoom: (data: Partial<Room>) => api.post<ApiResponse<Room>>('/wards/rooms', data),
   createBed: (data: Partial<Bed>) => api.post<ApiResponse<Bed>>('/wards/beds', data),
   getAvailableBeds: () => api.get<ApiResponse<Bed[]>>('/wards/beds/available'),
+  getBeds: (params: { wardId?: number; status?: BedStatus } = {}) =>
+    api.get<ApiResponse<Bed[]>>('/wards/beds', { params }),
+  getOccupancy: () => api.get<ApiResponse<WardOccupancy[]>>('/wards/occupancy'),
+  getWardOccupancy: (wardId: number) => api.get<ApiResponse<WardOccupancy>>(`/wards/${wardId}/occupancy`),
+  updateBedStatus: (id: number, status: BedStatus, version?: number) =>
+    api.put<ApiResponse<Bed>>(`/wards/beds/${id}/status?status=${status}${version != null ? `&version=${version}` : ''}`),
   admit: (data: Partial<Admission>) => api.post<ApiResponse<Admission>>('/wards/admissions', data),
   getAdmissions: (status: string, page = 0) =>
     api.get<ApiResponse<PageResponse<Admission>>>(`/wards/admissions/status/${status}?page=${page}`),
@@ -0,0 +1,71 @@
+// Server-sent events over fetch so the bearer token can be sent (EventSource cannot set headers).
+// Reconnects with Last-Event-ID so the server can replay missed events instead of a full snapshot.
+
+export interface StreamEvent {
+  id?: string;
+  event: string;
+  data: string;
+}
+
+const baseURL = import.meta.env.VITE_API_URL || '/api';
+
+export function subscribe(path: string, onEvent: (event: StreamEvent) => void): () => void {
+  const controller = new AbortController();
+  let lastEventId: string | undefined;
+  let retryMs = 1000;
+
+  const connect = async () => {
+    while (!controller.signal.aborted) {
+      try {
+        const headers: Record<string, string> = { Accept: 'text/event-stream' };
+        const token = localStorage.getItem('token');
+        if (token) headers.Authorization = `Bearer ${token}`;
+        if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+
+        const res = await fetch(`${baseURL}${path}`, { headers, signal: controller.signal });
+        if (!res.ok || !res.body) throw new Error(`stream failed: ${res.status}`);
+        retryMs = 1000;
+
+        const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = '';
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          let boundary: number;
+          while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+            const frame = buffer.slice(0, boundary);
+            buffer = buffer.slice(boundary + 2);
+            const parsed = parseFrame(frame);
+            if (!parsed) continue;
+            if (parsed.id) lastEventId = parsed.id;
+            onEvent(parsed);
+          }
+        }
+      } catch {
+        if (controller.signal.aborted) return;
+      }
+      await new Promise((r) => setTimeout(r, retryMs));
+      retryMs = Math.min(retryMs * 2, 30000);
+    }
+  };
+
+  connect();
+  return () => controller.abort();
+}
+
+function parseFrame(frame: string): StreamEvent | null {
+  let id: string | undefined;
+  let event = 'message';
+  const data: string[] = [];
+  for (const line of frame.split('\n')) {
+    if (line.startsWith(':')) continue;
+    const idx = line.indexOf(':');
+    const field = idx >= 0 ? line.slice(0, idx) : line;
+    const value = idx >= 0 ? line.slice(idx + 1).replace(/^ /, '') : '';
+    if (field === 'id') id = value;
+    else if (field === 'event') event = value;
+    else if (field === 'data') data.push(value);
+  }
+  return data.length ? { id, event, data: data.join('\n') } : null;
+}
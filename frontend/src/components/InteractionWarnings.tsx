@@ -0,0 +1,70 @@
+import { AlertTriangle } from 'lucide-react';
+import { pharmacyApi } from '../api/services';
+import type { InteractionWarning, Prescription } from '../types';
+
+const severityColors: Record<string, string> = {
+  CONTRAINDICATED: 'bg-red-100 text-red-800',
+  MAJOR: 'bg-red-50 text-red-700',
+  MODERATE: 'bg-orange-50 text-orange-700',
+  MINOR: 'bg-yellow-50 text-yellow-700',
+};
+
+/**
+ * Creates the prescription unless the drug raises interaction or allergy warnings, in which case they are
+ * returned for the prescriber to review; calling again with override set records it anyway.
+ */
+export async function prescribeOrWarn(data: Partial<Prescription>, override: boolean): Promise<InteractionWarning[] | null> {
+  if (!override && data.visitId && data.drugId) {
+    const check = await pharmacyApi.checkInteractions(data.visitId, data.drugId);
+    if (check.data.data.length > 0) return check.data.data;
+  }
+  try {
+    await pharmacyApi.createPrescription({ ...data, overrideWarnings: override });
+    return null;
+  } catch (err) {
+    // Another prescription may have been added since the check
+    const response = (err as { response?: { status?: number; data?: { details?: InteractionWarning[] } } }).response;
+    if (response?.status === 409 && response.data?.details) return response.data.details;
+    throw err;
+  }
+}
+
+interface Props {
+  warnings: InteractionWarning[];
+  onConfirm: () => void;
+  onCancel: () => void;
+  saving?: boolean;
+}
+
+export default function InteractionWarnings({ warnings, onConfirm, onCancel, saving }: Props) {
+  const blocking = warnings.some((w) => w.blocking);
+  return (
+    <div className={`rounded-lg border p-3 space-y-2 ${blocking ? 'border-red-200 bg-red-50/50' : 'border-amber-200 bg-amber-50/50'}`}>
+      <div className="flex items-center gap-2 text-sm font-semibold text-gray-900">
+        <AlertTriangle className={`w-4 h-4 ${blocking ? 'text-red-600' : 'text-amber-600'}`} />
+        {blocking ? 'Allergy or contraindication warnings' : 'Interaction warnings'}
+      </div>
+      <ul className="space-y-1.5">
+        {warnings.map((w, i) => (
+          <li key={i} className="text-sm text-gray-700 flex items-start gap-2">
+            <span className={`px-1.5 py-0.5 rounded text-xs font-medium shrink-0 ${w.allergy ? 'bg-red-100 text-red-800' : severityColors[w.severity] || 'bg-gray-100 text-gray-600'}`}>
+              {w.allergy ? 'ALLERGY' : w.severity}
+            </span>
+            <span>{w.message}</span>
+          </li>
+        ))}
+      </ul>
+      <p className="text-xs text-gray-500">The warnings are recorded on the prescription if you continue.</p>
+      <div className="flex gap-2 pt-1">
+        <button type="button" onClick={onCancel}
+          className="flex-1 py-2 text-sm font-medium text-gray-700 bg-white border border-gray-200 rounded-lg hover:bg-gray-50">
+          Cancel
+        </button>
+        <button type="button" onClick={onConfirm} disabled={saving}
+          className="flex-1 py-2 text-sm font-medium text-white bg-red-600 rounded-lg hover:bg-red-700 disabled:opacity-50">
+          {saving ? 'Prescribing...' : 'Prescribe Anyway'}
+        </button>
+      </div>
+    </div>
+  );
+}
@@ -17,6 +17,7 @@ const colors: Record<string, string> = {
   OCCUPIED: 'bg-red-50 text-red-700',
   RESERVED: 'bg-yellow-50 text-yellow-700',
   MAINTENANCE: 'bg-gray-100 text-gray-600',
+  CLEANING: 'bg-orange-50 text-orange-700',
   ADMITTED: 'bg-blue-50 text-blue-700',
   DISCHARGED: 'bg-green-50 text-green-700',
   DRAFT: 'bg-gray-100 text-gray-600',
@@ -6,11 +6,12 @@ import {
   ChevronDown, ChevronUp, X, LogOut, Share2,
 } from 'lucide-react';
 import StatusBadge from '../../components/StatusBadge';
+import InteractionWarnings, { prescribeOrWarn } from '../../components/InteractionWarnings';
 import { patientApi, visitApi, billingApi, userApi, wardApi, pharmacyApi } from '../../api/services';
 import { useHospitalStore } from '../../store/hospitalStore';
 import type {
   Patient, Visit, Billing, User as UserType, Ward, Room, Bed, Admission,
-  Drug, Prescription, VisitType,
+  Drug, Prescription, VisitType, InteractionWarning,
 } from '../../types';
 
 type Tab = 'overview' | 'visits' | 'admissions' | 'billing';
@@ -894,6 +895,7 @@ function PrescribeModal({ visitId, onClose, onCreated }: { visitId: number; onCl
   const [instructions, setInstructions] = useState('');
   const [saving, setSaving] = useState(false);
   const [searching, setSearching] = useState(false);
+  const [warnings, setWarnings] = useState<InteractionWarning[] | null>(null);
 
   useEffect(() => {
     if (drugSearch.length < 2) { setDrugs([]); return; }
@@ -904,11 +906,11 @@ function PrescribeModal({ visitId, onClose, onCreated }: { visitId: number; onCl
     return () => clearTimeout(timer);
   }, [drugSearch]);
 
-  const handleSubmit = async () => {
+  const handleSubmit = async (override = false) => {
     if (!selectedDrug) return;
     setSaving(true);
     try {
-      await pharmacyApi.createPrescription({
+      const found = await prescribeOrWarn({
         visitId,
         drugId: selectedDrug.id,
         dosage,
@@ -916,7 +918,8 @@ function PrescribeModal({ visitId, onClose, onCreated }: { visitId: number; onCl
         duration,
         quantityPrescribed: Number(quantity),
         instructions,
-      });
+      }, override);
+      if (found) { setWarnings(found); return; }
       onCreated();
     } catch {
       alert('Failed to create prescription');
@@ -962,7 +965,7 @@ function PrescribeModal({ visitId, onClose, onCreated }: { visitId: number; onCl
               <span className="font-medium text-blue-900">{selectedDrug.brandName}</span>
               <span className="text-blue-700 ml-2">({selectedDrug.genericName}) {selectedDrug.strength}</span>
             </div>
-            <button onClick={() => setSelectedDrug(null)} className="text-blue-500 hover:text-blue-700"><X className="w-4 h-4" /></button>
+            <button onClick={() => { setSelectedDrug(null); setWarnings(null); }} className="text-blue-500 hover:text-blue-700"><X className="w-4 h-4" /></button>
           </div>
         )}
         <InputField label="Dosage">
@@ -982,7 +985,12 @@ function PrescribeModal({ visitId, onClose, onCreated }: { visitId: number; onCl
         <InputField label="Instructions">
           <textarea value={instructions} onChange={(e) => setInstructions(e.target.value)} rows={2} className={inputCls} placeholder="Take after meals..." />
         </InputField>
-        <button onClick={handleSubmit} disabled={saving || !selectedDrug || !dosage || !frequency} className={btnPrimary}>{saving ? 'Prescribing...' : 'Create Prescription'}</button>
+        {warnings ? (
+          <InteractionWarnings warnings={warnings} saving={saving}
+            onConfirm={() => handleSubmit(true)} onCancel={() => setWarnings(null)} />
+        ) : (
+          <button onClick={() => handleSubmit()} disabled={saving || !selectedDrug || !dosage || !frequency} className={btnPrimary}>{saving ? 'Prescribing...' : 'Create Prescription'}</button>
+        )}
       </div>
     </ModalShell>
   );
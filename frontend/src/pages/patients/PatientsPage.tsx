@@ -1,10 +1,10 @@
 import { useState, useEffect, useCallback } from 'react';
 import { useNavigate } from 'react-router-dom';
-import { Search, UserPlus, Pencil } from 'lucide-react';
+import { Search, UserPlus, Pencil, AlertTriangle } from 'lucide-react';
 import DataTable from '../../components/DataTable';
 import Modal from '../../components/Modal';
 import { patientApi, insuranceApi } from '../../api/services';
-import type { Patient, InsuranceCompany, Gender } from '../../types';
+import type { Patient, InsuranceCompany, Gender, DuplicateCandidate } from '../../types';
 
 const genderOptions: Gender[] = ['MALE', 'FEMALE', 'OTHER'];
 
@@ -35,6 +35,7 @@ export default function PatientsPage() {
   const [modalOpen, setModalOpen] = useState(false);
   const [submitting, setSubmitting] = useState(false);
   const [form, setForm] = useState(emptyForm);
+  const [duplicates, setDuplicates] = useState<DuplicateCandidate[] | null>(null);
   const [insuranceCompanies, setInsuranceCompanies] = useState<InsuranceCompany[]>([]);
   const [editModal, setEditModal] = useState(false);
   const [editForm, setEditForm] = useState(emptyForm);
@@ -66,6 +67,7 @@ export default function PatientsPage() {
 
   const openModal = async () => {
     setForm(emptyForm);
+    setDuplicates(null);
     setModalOpen(true);
     try {
       const res = await insuranceApi.getCompanies();
@@ -77,13 +79,19 @@ export default function PatientsPage() {
 
   const handleSubmit = async (e: React.FormEvent) => {
     e.preventDefault();
+    await registerPatient(false);
+  };
+
+  // A likely existing record comes back as 409 with the matches, for the clerk to open one or confirm
+  const registerPatient = async (allowDuplicate: boolean) => {
     setSubmitting(true);
     try {
-      await patientApi.create(form);
+      await patientApi.create(form, allowDuplicate);
       setModalOpen(false);
       fetchPatients();
-    } catch {
-      // Error handled silently
+    } catch (err) {
+      const response = (err as { response?: { status?: number; data?: { details?: DuplicateCandidate[] } } }).response;
+      if (response?.status === 409 && response.data?.details) setDuplicates(response.data.details);
     } finally {
       setSubmitting(false);
     }
@@ -353,22 +361,58 @@ export default function PatientsPage() {
             </div>
           </div>
 
-          <div className="flex justify-end gap-3 pt-2">
-            <button
-              type="button"
-              onClick={() => setModalOpen(false)}
-              className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200 transition-colors"
-            >
-              Cancel
-            </button>
-            <button
-              type="submit"
-              disabled={submitting}
-              className="px-4 py-2 text-sm font-medium text-white bg-blue-600 rounded-lg hover:bg-blue-700 disabled:opacity-50 transition-colors"
-            >
-              {submitting ? 'Registering...' : 'Register Patient'}
-            </button>
-          </div>
+          {duplicates ? (
+            <div className="rounded-lg border border-amber-200 bg-amber-50/50 p-4 space-y-3">
+              <div className="flex items-center gap-2 text-sm font-semibold text-gray-900">
+                <AlertTriangle className="w-4 h-4 text-amber-600" />
+                This patient may already be registered
+              </div>
+              <ul className="space-y-2">
+                {duplicates.map((c) => (
+                  <li key={c.patient.id} className="flex items-center justify-between gap-3 bg-white rounded-lg border border-gray-100 px-3 py-2">
+                    <div className="text-sm">
+                      <p className="font-medium text-gray-900">{c.patient.fullName} <span className="text-gray-500 font-normal">({c.patient.patientNo})</span></p>
+                      <p className="text-xs text-gray-500">
+                        {[c.patient.dateOfBirth, c.patient.phone, c.patient.idNumber].filter(Boolean).join(' · ')}
+                        {' — '}{Math.round(c.score * 100)}% match: {c.reasons.join(', ')}
+                      </p>
+                    </div>
+                    <button type="button" onClick={() => navigate(`/patients/${c.patient.id}`)}
+                      className="px-3 py-1.5 text-xs font-medium rounded-lg bg-blue-600 text-white hover:bg-blue-700 shrink-0">
+                      Open Record
+                    </button>
+                  </li>
+                ))}
+              </ul>
+              <div className="flex justify-end gap-3">
+                <button type="button" onClick={() => setDuplicates(null)}
+                  className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200 transition-colors">
+                  Back to Form
+                </button>
+                <button type="button" onClick={() => registerPatient(true)} disabled={submitting}
+                  className="px-4 py-2 text-sm font-medium text-white bg-amber-600 rounded-lg hover:bg-amber-700 disabled:opacity-50 transition-colors">
+                  {submitting ? 'Registering...' : 'Register as New Patient'}
+                </button>
+              </div>
+            </div>
+          ) : (
+            <div className="flex justify-end gap-3 pt-2">
+              <button
+                type="button"
+                onClick={() => setModalOpen(false)}
+                className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200 transition-colors"
+              >
+                Cancel
+              </button>
+              <button
+                type="submit"
+                disabled={submitting}
+                className="px-4 py-2 text-sm font-medium text-white bg-blue-600 rounded-lg hover:bg-blue-700 disabled:opacity-50 transition-colors"
+              >
+                {submitting ? 'Registering...' : 'Register Patient'}
+              </button>
+            </div>
+          )}
         </form>
       </Modal>
       {/* Edit Patient Modal */}
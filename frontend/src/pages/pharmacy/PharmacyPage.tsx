@@ -2,8 +2,9 @@ import { useState, useEffect, useCallback, useRef } from 'react';
 import { Search, Plus, AlertTriangle, Pill, ClipboardList, FileText, X, Pencil } from 'lucide-react';
 import DataTable from '../../components/DataTable';
 import Modal from '../../components/Modal';
+import InteractionWarnings, { prescribeOrWarn } from '../../components/InteractionWarnings';
 import { pharmacyApi, patientApi, visitApi } from '../../api/services';
-import type { Drug, Prescription, Patient, Visit } from '../../types';
+import type { Drug, Prescription, Patient, Visit, InteractionWarning } from '../../types';
 
 type Tab = 'inventory' | 'prescriptions';
 
@@ -30,6 +31,7 @@ export default function PharmacyPage() {
   const [saving, setSaving] = useState(false);
   const [editingDrug, setEditingDrug] = useState<Drug | null>(null);
   const [editModalOpen, setEditModalOpen] = useState(false);
+  const [count, setCount] = useState({ countedQuantity: '', batchNumber: '', expiryDate: '' });
 
   const [prescriptions, setPrescriptions] = useState<Prescription[]>([]);
   const [rxLoading, setRxLoading] = useState(false);
@@ -50,6 +52,7 @@ export default function PharmacyPage() {
     visitId: '', dosage: '', frequency: '', duration: '', quantityPrescribed: 1, instructions: '',
   });
   const [prescribing, setPrescribing] = useState(false);
+  const [rxWarnings, setRxWarnings] = useState<InteractionWarning[] | null>(null);
 
   const fetchDrugs = useCallback(async () => {
     setLoading(true);
@@ -88,10 +91,10 @@ export default function PharmacyPage() {
     setEditingDrug(drug);
     setForm({
       genericName: drug.genericName, brandName: drug.brandName, category: drug.category,
-      formulation: drug.formulation, strength: drug.strength, quantityInStock: drug.quantityInStock,
-      reorderLevel: drug.reorderLevel, batchNumber: drug.batchNumber, expiryDate: drug.expiryDate || '',
+      formulation: drug.formulation, strength: drug.strength, reorderLevel: drug.reorderLevel,
       supplier: drug.supplier || '', costPrice: drug.costPrice, sellingPrice: drug.sellingPrice,
     });
+    setCount({ countedQuantity: '', batchNumber: '', expiryDate: '' });
     setEditModalOpen(true);
   };
 
@@ -104,6 +107,23 @@ export default function PharmacyPage() {
     } catch { /* handled */ } finally { setSaving(false); }
   };
 
+  // Stock only changes through a count taken against the figure shown; the server refuses it if stock has moved
+  const handleStockCount = async () => {
+    if (!editingDrug || count.countedQuantity === '') return;
+    setSaving(true);
+    try {
+      const res = await pharmacyApi.recordStockCount(editingDrug.id, {
+        expectedQuantity: editingDrug.quantityInStock,
+        countedQuantity: parseInt(count.countedQuantity) || 0,
+        batchNumber: count.batchNumber || undefined,
+        expiryDate: count.expiryDate || undefined,
+      });
+      setEditingDrug(res.data.data);
+      setCount({ countedQuantity: '', batchNumber: '', expiryDate: '' });
+      fetchDrugs(); fetchLowStock();
+    } catch { /* handled */ } finally { setSaving(false); }
+  };
+
   const handleDispense = async (rx: Prescription) => {
     setDispensing(rx.id);
     try {
@@ -119,6 +139,7 @@ export default function PharmacyPage() {
     setSelectedPatient(null);
     setPatientVisits([]);
     setRxForm((p) => ({ ...p, visitId: '' }));
+    setRxWarnings(null);
     if (searchTimeout.current) clearTimeout(searchTimeout.current);
     if (query.length < 2) { setPatientResults([]); setShowPatientDD(false); return; }
     setSearchingPatient(true);
@@ -149,15 +170,20 @@ export default function PharmacyPage() {
     setPatientResults([]);
     setPatientVisits([]);
     setRxForm({ visitId: '', dosage: '', frequency: '', duration: '', quantityPrescribed: 1, instructions: '' });
+    setRxWarnings(null);
     setPrescribeModal(true);
   };
 
   const handlePrescribe = async (e: React.FormEvent) => {
     e.preventDefault();
+    await submitPrescription(false);
+  };
+
+  const submitPrescription = async (override: boolean) => {
     if (!prescribeDrug || !rxForm.visitId) return;
     setPrescribing(true);
     try {
-      await pharmacyApi.createPrescription({
+      const found = await prescribeOrWarn({
         visitId: Number(rxForm.visitId),
         drugId: prescribeDrug.id,
         dosage: rxForm.dosage,
@@ -165,7 +191,8 @@ export default function PharmacyPage() {
         duration: rxForm.duration,
         quantityPrescribed: rxForm.quantityPrescribed,
         instructions: rxForm.instructions,
-      });
+      }, override);
+      if (found) { setRxWarnings(found); return; }
       setPrescribeModal(false);
       fetchPrescriptions();
     } catch { /* handled */ } finally { setPrescribing(false); }
@@ -331,14 +358,8 @@ export default function PharmacyPage() {
               <option value="">Select formulation</option>{FORMULATIONS.map((f) => <option key={f} value={f}>{f}</option>)}</select></div>
           <div><label className="block text-sm font-medium text-gray-700 mb-1">Strength</label>
             <input type="text" value={form.strength || ''} onChange={(e) => updateForm('strength', e.target.value)} placeholder="e.g. 500mg" className={inputClass} /></div>
-          <div><label className="block text-sm font-medium text-gray-700 mb-1">Quantity in Stock</label>
-            <input type="number" value={form.quantityInStock || 0} onChange={(e) => updateForm('quantityInStock', parseInt(e.target.value) || 0)} className={inputClass} /></div>
           <div><label className="block text-sm font-medium text-gray-700 mb-1">Reorder Level</label>
             <input type="number" value={form.reorderLevel || 0} onChange={(e) => updateForm('reorderLevel', parseInt(e.target.value) || 0)} className={inputClass} /></div>
-          <div><label className="block text-sm font-medium text-gray-700 mb-1">Batch Number</label>
-            <input type="text" value={form.batchNumber || ''} onChange={(e) => updateForm('batchNumber', e.target.value)} className={inputClass} /></div>
-          <div><label className="block text-sm font-medium text-gray-700 mb-1">Expiry Date</label>
-            <input type="date" value={form.expiryDate || ''} onChange={(e) => updateForm('expiryDate', e.target.value)} className={inputClass} /></div>
           <div><label className="block text-sm font-medium text-gray-700 mb-1">Supplier</label>
             <input type="text" value={form.supplier || ''} onChange={(e) => updateForm('supplier', e.target.value)} className={inputClass} /></div>
           <div><label className="block text-sm font-medium text-gray-700 mb-1">Cost Price (KES)</label>
@@ -346,6 +367,24 @@ export default function PharmacyPage() {
           <div><label className="block text-sm font-medium text-gray-700 mb-1">Selling Price (KES)</label>
             <input type="number" value={form.sellingPrice || 0} onChange={(e) => updateForm('sellingPrice', parseFloat(e.target.value) || 0)} className={inputClass} /></div>
         </div>
+        <div className="mt-6 pt-4 border-t border-gray-100">
+          <h4 className="text-sm font-semibold text-gray-900 mb-3">Stock Count</h4>
+          <div className="grid grid-cols-2 gap-4">
+            <div><label className="block text-sm font-medium text-gray-700 mb-1">Current Stock</label>
+              <p className="px-3 py-2 text-sm text-gray-900">{editingDrug?.quantityInStock ?? 0}</p></div>
+            <div><label className="block text-sm font-medium text-gray-700 mb-1">Counted Quantity</label>
+              <input type="number" min={0} value={count.countedQuantity} onChange={(e) => setCount((c) => ({ ...c, countedQuantity: e.target.value }))} className={inputClass} /></div>
+            <div><label className="block text-sm font-medium text-gray-700 mb-1">Batch Number (surplus)</label>
+              <input type="text" value={count.batchNumber} onChange={(e) => setCount((c) => ({ ...c, batchNumber: e.target.value }))} className={inputClass} /></div>
+            <div><label className="block text-sm font-medium text-gray-700 mb-1">Expiry Date (surplus)</label>
+              <input type="date" value={count.expiryDate} onChange={(e) => setCount((c) => ({ ...c, expiryDate: e.target.value }))} className={inputClass} /></div>
+          </div>
+          <div className="flex justify-end mt-3">
+            <button onClick={handleStockCount} disabled={saving || count.countedQuantity === ''}
+              className="px-4 py-2 text-sm font-medium text-blue-700 bg-blue-50 rounded-lg hover:bg-blue-100 disabled:opacity-50">
+              Record Count</button>
+          </div>
+        </div>
         <div className="flex justify-end gap-3 mt-6">
           <button onClick={() => { setEditModalOpen(false); setEditingDrug(null); }} className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200">Cancel</button>
           <button onClick={handleEditDrug} disabled={saving || !form.genericName || !form.category}
@@ -403,7 +442,7 @@ export default function PharmacyPage() {
             <div>
               <label className="block text-sm font-medium text-gray-700 mb-1">Visit *</label>
               {patientVisits.length > 0 ? (
-                <select value={rxForm.visitId} onChange={(e) => setRxForm((p) => ({ ...p, visitId: e.target.value }))} className={inputClass} required>
+                <select value={rxForm.visitId} onChange={(e) => { setRxForm((p) => ({ ...p, visitId: e.target.value })); setRxWarnings(null); }} className={inputClass} required>
                   <option value="">Select a visit</option>
                   {patientVisits.map((v) => (
                     <option key={v.id} value={v.id}>Visit #{v.id} - {new Date(v.createdAt).toLocaleDateString()} ({v.completed ? 'Completed' : 'In Progress'})</option>
@@ -449,15 +488,20 @@ export default function PharmacyPage() {
               rows={2} placeholder="e.g. Take after meals, avoid alcohol" className={inputClass} />
           </div>
 
-          <div className="flex justify-end gap-3 pt-2">
-            <button type="button" onClick={() => setPrescribeModal(false)}
-              className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200">Cancel</button>
-            <button type="submit"
-              disabled={prescribing || !selectedPatient || !rxForm.visitId || !rxForm.dosage || !rxForm.frequency || !rxForm.duration}
-              className="px-4 py-2 text-sm font-medium text-white bg-blue-600 rounded-lg hover:bg-blue-700 disabled:opacity-50">
-              {prescribing ? 'Prescribing...' : 'Create Prescription'}
-            </button>
-          </div>
+          {rxWarnings ? (
+            <InteractionWarnings warnings={rxWarnings} saving={prescribing}
+              onConfirm={() => submitPrescription(true)} onCancel={() => setRxWarnings(null)} />
+          ) : (
+            <div className="flex justify-end gap-3 pt-2">
+              <button type="button" onClick={() => setPrescribeModal(false)}
+                className="px-4 py-2 text-sm font-medium text-gray-700 bg-gray-100 rounded-lg hover:bg-gray-200">Cancel</button>
+              <button type="submit"
+                disabled={prescribing || !selectedPatient || !rxForm.visitId || !rxForm.dosage || !rxForm.frequency || !rxForm.duration}
+                className="px-4 py-2 text-sm font-medium text-white bg-blue-600 rounded-lg hover:bg-blue-700 disabled:opacity-50">
+                {prescribing ? 'Prescribing...' : 'Create Prescription'}
+              </button>
+            </div>
+          )}
         </form>
       </Modal>
     </div>
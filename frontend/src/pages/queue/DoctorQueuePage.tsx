@@ -2,6 +2,7 @@ import { useEffect, useState, useCallback } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { ClipboardList, Play, RefreshCw } from 'lucide-react';
 import { visitApi } from '../../api/services';
+import { subscribe } from '../../api/stream';
 import { useAuthStore } from '../../store/authStore';
 import type { Visit } from '../../types';
 import StatusBadge from '../../components/StatusBadge';
@@ -26,10 +27,23 @@ export default function DoctorQueuePage() {
   }, [userId]);
 
   useEffect(() => {
-    loadQueue();
-    const interval = setInterval(loadQueue, 30000);
-    return () => clearInterval(interval);
-  }, [loadQueue]);
+    if (!userId) return;
+    // The stream opens with a snapshot and then pushes only changes, so no polling is needed
+    return subscribe(`/visits/doctor/${userId}/queue/stream`, (event) => {
+      if (event.event === 'snapshot') {
+        setQueue(JSON.parse(event.data).visits || []);
+        setLoading(false);
+      } else if (event.event === 'delta') {
+        const delta = JSON.parse(event.data) as { type: 'UPSERT' | 'REMOVE'; visitId: number; visit?: Visit };
+        setQueue((current) => {
+          const rest = current.filter((v) => v.id !== delta.visitId);
+          if (delta.type === 'REMOVE' || !delta.visit) return rest;
+          return [...rest, delta.visit].sort((a, b) =>
+            a.createdAt === b.createdAt ? a.id - b.id : a.createdAt < b.createdAt ? -1 : 1);
+        });
+      }
+    });
+  }, [userId]);
 
   const getWaitTime = (createdAt: string) => {
     const diff = Date.now() - new Date(createdAt).getTime();
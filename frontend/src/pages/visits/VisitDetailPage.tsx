@@ -4,9 +4,10 @@ import { ArrowLeft, Save, Plus, Pill, FlaskConical, Scan, Printer, Share2 } from
 import { visitApi, pharmacyApi, labApi, patientApi } from '../../api/services';
 import { useAuthStore } from '../../store/authStore';
 import { useHospitalStore } from '../../store/hospitalStore';
-import type { Visit, Drug, LabTest } from '../../types';
+import type { Visit, Drug, LabTest, InteractionWarning } from '../../types';
 import StatusBadge from '../../components/StatusBadge';
 import Modal from '../../components/Modal';
+import InteractionWarnings, { prescribeOrWarn } from '../../components/InteractionWarnings';
 
 export default function VisitDetailPage() {
   const { id } = useParams();
@@ -21,6 +22,8 @@ export default function VisitDetailPage() {
   const [drugSearch, setDrugSearch] = useState('');
   const [drugs, setDrugs] = useState<Drug[]>([]);
   const [rxForm, setRxForm] = useState({ drugId: 0, drugName: '', dosage: '', frequency: '', duration: '', quantityPrescribed: 1, instructions: '' });
+  const [rxWarnings, setRxWarnings] = useState<InteractionWarning[] | null>(null);
+  const [prescribing, setPrescribing] = useState(false);
 
   // Lab order modal
   const [showLabModal, setShowLabModal] = useState(false);
@@ -70,23 +73,34 @@ export default function VisitDetailPage() {
     setDrugSearch('');
     setDrugs([]);
     setRxForm({ drugId: 0, drugName: '', dosage: '', frequency: '', duration: '', quantityPrescribed: 1, instructions: '' });
+    setRxWarnings(null);
     setShowRxModal(true);
   };
 
   const handleCreateRx = async (e: React.FormEvent) => {
     e.preventDefault();
+    await submitRx(false);
+  };
+
+  const submitRx = async (override: boolean) => {
     if (!id || !rxForm.drugId) return;
-    await pharmacyApi.createPrescription({
-      visitId: Number(id),
-      drugId: rxForm.drugId,
-      dosage: rxForm.dosage,
-      frequency: rxForm.frequency,
-      duration: rxForm.duration,
-      quantityPrescribed: rxForm.quantityPrescribed,
-      instructions: rxForm.instructions,
-    });
-    setShowRxModal(false);
-    loadVisit();
+    setPrescribing(true);
+    try {
+      const found = await prescribeOrWarn({
+        visitId: Number(id),
+        drugId: rxForm.drugId,
+        dosage: rxForm.dosage,
+        frequency: rxForm.frequency,
+        duration: rxForm.duration,
+        quantityPrescribed: rxForm.quantityPrescribed,
+        instructions: rxForm.instructions,
+      }, override);
+      if (found) { setRxWarnings(found); return; }
+      setShowRxModal(false);
+      loadVisit();
+    } finally {
+      setPrescribing(false);
+    }
   };
 
   const openLabModal = async () => {
@@ -552,6 +566,7 @@ ${imagingOrders.map(io => `<tr>
               onChange={(e) => {
                 setDrugSearch(e.target.value);
                 setRxForm({ ...rxForm, drugId: 0, drugName: '' });
+                setRxWarnings(null);
               }}
               className="w-full border border-gray-200 rounded-lg px-3 py-2 text-sm focus:outline-none focus:ring-2 focus:ring-primary-500"
             />
@@ -606,9 +621,14 @@ ${imagingOrders.map(io => `<tr>
             <textarea value={rxForm.instructions} onChange={(e) => setRxForm({ ...rxForm, instructions: e.target.value })}
               className="w-full border border-gray-200 rounded-lg px-3 py-2 text-sm" rows={2} placeholder="e.g. Take after meals" />
           </div>
-          <button type="submit" disabled={!rxForm.drugId} className="w-full bg-primary-600 text-white py-2 rounded-lg text-sm font-medium hover:bg-primary-700 disabled:opacity-50 disabled:cursor-not-allowed">
-            Create Prescription
-          </button>
+          {rxWarnings ? (
+            <InteractionWarnings warnings={rxWarnings} saving={prescribing}
+              onConfirm={() => submitRx(true)} onCancel={() => setRxWarnings(null)} />
+          ) : (
+            <button type="submit" disabled={!rxForm.drugId || prescribing} className="w-full bg-primary-600 text-white py-2 rounded-lg text-sm font-medium hover:bg-primary-700 disabled:opacity-50 disabled:cursor-not-allowed">
+              {prescribing ? 'Prescribing...' : 'Create Prescription'}
+            </button>
+          )}
         </form>
       </Modal>
 
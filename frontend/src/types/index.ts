@@ -20,7 +20,7 @@ export type AppointmentType = 'NEW' | 'REVIEW' | 'FOLLOW_UP' | 'EMERGENCY';
 export type PaymentMethod = 'CASH' | 'MPESA' | 'CARD' | 'BANK_TRANSFER' | 'INSURANCE';
 export type PaymentStatus = 'PENDING' | 'PARTIAL' | 'PAID' | 'REFUNDED' | 'WAIVED';
 export type LabOrderStatus = 'ORDERED' | 'SAMPLE_COLLECTED' | 'PROCESSING' | 'COMPLETED' | 'VERIFIED' | 'RELEASED' | 'CANCELLED';
-export type BedStatus = 'AVAILABLE' | 'OCCUPIED' | 'RESERVED' | 'MAINTENANCE';
+export type BedStatus = 'AVAILABLE' | 'OCCUPIED' | 'RESERVED' | 'MAINTENANCE' | 'CLEANING';
 export type AdmissionStatus = 'ADMITTED' | 'DISCHARGED' | 'TRANSFERRED' | 'DECEASED';
 export type ClaimStatus = 'DRAFT' | 'SUBMITTED' | 'PRE_AUTHORIZED' | 'APPROVED' | 'PARTIALLY_APPROVED' | 'REJECTED' | 'PAID';
 export type ImagingType = 'XRAY' | 'ULTRASOUND' | 'CT_SCAN' | 'MRI';
@@ -67,6 +67,12 @@ export interface Patient {
   insuranceMemberNumber: string;
 }
 
+export interface DuplicateCandidate {
+  patient: Patient;
+  score: number;
+  reasons: string[];
+}
+
 export interface Visit {
   id: number;
   patientId: number;
@@ -144,9 +150,69 @@ export interface Prescription {
   dispensed: boolean;
   dispensedByName: string;
   dispensedAt: string;
+  dispensedBatches?: string;
+  interactionWarnings?: string;
+  overrideWarnings?: boolean;
   createdAt: string;
 }
 
+export interface DrugInteraction {
+  id: number;
+  drugId: number;
+  drugName: string;
+  interactingDrugId: number;
+  interactingDrugName: string;
+  severity: 'MINOR' | 'MODERATE' | 'MAJOR' | 'CONTRAINDICATED';
+  description: string;
+}
+
+export interface InteractionWarning {
+  allergy: boolean;
+  severity: DrugInteraction['severity'];
+  conflictingPrescriptionId?: number;
+  conflictingDrugId?: number;
+  conflictingDrugName?: string;
+  message: string;
+  blocking: boolean;
+}
+
+export interface BatchDispenseLine {
+  prescriptionId: number;
+  drugId?: number;
+  drugName?: string;
+  quantity?: number;
+  outcome: 'DISPENSED' | 'ALREADY_DISPENSED' | 'INSUFFICIENT_STOCK' | 'NOT_FOUND';
+  message?: string;
+  dispensedBatches?: string;
+}
+
+export interface BatchDispenseResult {
+  dispensed: number;
+  notDispensed: number;
+  lines: BatchDispenseLine[];
+}
+
+export interface DrugLot {
+  id: number;
+  drugId: number;
+  drugName: string;
+  batchNumber: string;
+  expiryDate: string;
+  quantityReceived: number;
+  quantityRemaining: number;
+  costPrice: number;
+  supplier: string;
+  receivedAt: string;
+}
+
+export interface StockCount {
+  expectedQuantity: number;
+  countedQuantity: number;
+  batchNumber?: string;
+  expiryDate?: string;
+  reason?: string;
+}
+
 export interface LabTest {
   id: number;
   testName: string;
@@ -285,9 +351,59 @@ export interface Bed {
   bedNumber: string;
   roomId: number;
   roomNumber: string;
+  wardId: number;
   wardName: string;
   status: BedStatus;
+  version: number;
   dailyCharge: number;
+  occupant?: BedOccupant;
+}
+
+export interface BedOccupant {
+  admissionId: number;
+  admittedAt: string;
+  admissionReason: string;
+  admittingDoctorName?: string;
+  patientId: number;
+  patientNo: string;
+  patientName: string;
+  gender?: string;
+  dateOfBirth?: string;
+  allergies?: string;
+}
+
+export interface WardHierarchy {
+  id: number;
+  name: string;
+  type: string;
+  active: boolean;
+  rooms: Room[];
+}
+
+export interface WardOccupancy {
+  wardId: number;
+  wardName: string;
+  wardType: string;
+  totalBeds: number;
+  available: number;
+  occupied: number;
+  reserved: number;
+  cleaning: number;
+  maintenance: number;
+  occupancyRate: number;
+}
+
+// Bed board stream: a "snapshot" event on connect, then a "bed" event per change
+export interface BedBoardSnapshot {
+  version: number;
+  wards: WardOccupancy[];
+  beds: Bed[];
+}
+
+export interface BedBoardUpdate {
+  version: number;
+  bed: Bed;
+  ward: WardOccupancy;
 }
 
 export interface Admission {